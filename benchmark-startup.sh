@@ -0,0 +1,130 @@
+#!/bin/bash
+
+# So sánh startup time và RSS của gateway giữa các cách build/chạy:
+#   baseline - fat jar build từ BASELINE_REF (mặc định merge-base của HEAD với main, tức trước các thay đổi của branch;
+#              trên main thì phải đặt BASELINE_REF, ví dụ commit/tag trước fast-startup profile)
+#   jar      - fat jar hiện tại (devtools chỉ còn ở developmentOnly)
+#   aot      - jar -PfastStartup giải nén, -Dspring.aot.enabled=true
+#   aot-cds  - như aot + AppCDS archive (training run với -Dspring.context.exit=onRefresh)
+#   native   - GraalVM native image, chỉ chạy khi NATIVE=1 (cần GraalVM 21 làm JAVA_HOME)
+#
+# Usage: ./benchmark-startup.sh
+#        RUNS=10 BASELINE_REF=origin/main NATIVE=1 ./benchmark-startup.sh
+#
+# Mỗi variant chạy RUNS lần với cùng JVM, port ngẫu nhiên và warm-up tắt (warm-up gọi WSO2 IS nên không ổn định);
+# đặt WARMUP=true để đo cả warm-up. Startup time lấy từ log "Started FidoApplication in", RSS đo bằng ps
+# ngay sau khi app started. Kết quả (median) in ra màn hình và ghi vào build/reports/startup/results.csv
+
+set -euo pipefail
+
+RUNS=${RUNS:-5}
+BASELINE_REF=${BASELINE_REF:-}
+NATIVE=${NATIVE:-0}
+WARMUP=${WARMUP:-false}
+STARTUP_TIMEOUT=${STARTUP_TIMEOUT:-120}
+
+ROOT=$(cd "$(dirname "$0")" && pwd)
+WORK="$ROOT/build/startup-bench"
+REPORT_DIR="$ROOT/build/reports/startup"
+APP_ARGS="--server.port=0 --gateway.warmup.enabled=$WARMUP"
+
+mkdir -p "$WORK" "$REPORT_DIR"
+cd "$ROOT"
+
+boot_jar() {
+    ls "$1"/build/libs/*-SNAPSHOT.jar | grep -v plain | head -1
+}
+
+# Baseline phải là commit cố định: ref tương đối (HEAD~1) trỏ sang commit khác mỗi khi branch có commit mới
+if [ -z "$BASELINE_REF" ]; then
+    BASELINE_REF=$(git merge-base HEAD main 2>/dev/null || git merge-base HEAD origin/main 2>/dev/null) || {
+        echo "No main branch to compare against, set BASELINE_REF to a commit or tag" >&2
+        exit 1
+    }
+fi
+BASELINE_SHA=$(git rev-parse --verify "$BASELINE_REF^{commit}")
+if [ "$BASELINE_SHA" = "$(git rev-parse HEAD)" ]; then
+    echo "BASELINE_REF $BASELINE_REF is the current commit, set BASELINE_REF to a commit or tag before the change" >&2
+    exit 1
+fi
+
+echo "Building baseline jar from $BASELINE_REF ($BASELINE_SHA)..."
+rm -rf "$WORK/baseline-src"
+git worktree prune
+git worktree add --detach "$WORK/baseline-src" "$BASELINE_SHA" > /dev/null
+(cd "$WORK/baseline-src" && ./gradlew -q clean bootJar)
+cp "$(boot_jar "$WORK/baseline-src")" "$WORK/baseline.jar"
+git worktree remove --force "$WORK/baseline-src"
+
+echo "Building current jar..."
+./gradlew -q clean bootJar
+cp "$(boot_jar "$ROOT")" "$WORK/current.jar"
+
+echo "Building AOT jar and AppCDS archive..."
+./gradlew -q clean bootJar -PfastStartup
+rm -rf "$WORK/aot"
+java -Djarmode=tools -jar "$(boot_jar "$ROOT")" extract --destination "$WORK/aot"
+java -XX:ArchiveClassesAtExit="$WORK/aot/application.jsa" -Dspring.aot.enabled=true \
+    -Dspring.context.exit=onRefresh -jar "$WORK/aot/app.jar" $APP_ARGS > "$WORK/cds-training.log" 2>&1
+
+declare -A COMMANDS
+COMMANDS[baseline]="java -jar $WORK/baseline.jar"
+COMMANDS[jar]="java -jar $WORK/current.jar"
+COMMANDS[aot]="java -Dspring.aot.enabled=true -jar $WORK/aot/app.jar"
+COMMANDS[aot-cds]="java -XX:SharedArchiveFile=$WORK/aot/application.jsa -Dspring.aot.enabled=true -jar $WORK/aot/app.jar"
+VARIANTS="baseline jar aot aot-cds"
+
+if [ "$NATIVE" = "1" ]; then
+    echo "Building native image (this takes a few minutes)..."
+    ./gradlew -q nativeCompile -PnativeImage -x test
+    COMMANDS[native]="$ROOT/build/native/nativeCompile/fido"
+    VARIANTS="$VARIANTS native"
+fi
+
+# Chạy một lần, in "<startup seconds> <rss KB>"
+measure() {
+    local log="$WORK/run.log"
+    $1 $APP_ARGS > "$log" 2>&1 &
+    local pid=$!
+    local waited=0
+    until grep -q "Started FidoApplication in" "$log"; do
+        if ! kill -0 "$pid" 2> /dev/null || [ "$waited" -ge $((STARTUP_TIMEOUT * 10)) ]; then
+            echo "❌ Application did not start, see $log" >&2
+            kill "$pid" 2> /dev/null || true
+            exit 1
+        fi
+        sleep 0.1
+        waited=$((waited + 1))
+    done
+    local rss
+    rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+    local seconds
+    seconds=$(grep -o "Started FidoApplication in [0-9.]* seconds" "$log" | grep -o "[0-9.]*")
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo "$seconds $rss"
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print (NR % 2) ? values[(NR + 1) / 2] : (values[NR / 2] + values[NR / 2 + 1]) / 2 }'
+}
+
+echo "variant,run,startup_seconds,rss_kb" > "$REPORT_DIR/results.csv"
+printf "\n%-10s %18s %16s\n" "variant" "startup (median s)" "RSS (median MB)"
+for variant in $VARIANTS; do
+    : > "$WORK/$variant.samples"
+    for run in $(seq 1 "$RUNS"); do
+        read -r seconds rss <<< "$(measure "${COMMANDS[$variant]}")"
+        if [ -z "$seconds" ]; then
+            exit 1
+        fi
+        echo "$variant,$run,$seconds,$rss" >> "$REPORT_DIR/results.csv"
+        echo "$seconds $rss" >> "$WORK/$variant.samples"
+    done
+    startup=$(cut -d' ' -f1 "$WORK/$variant.samples" | median)
+    rss=$(cut -d' ' -f2 "$WORK/$variant.samples" | median)
+    printf "%-10s %18s %16s\n" "$variant" "$startup" "$(awk -v kb="$rss" 'BEGIN { printf "%.0f", kb / 1024 }')"
+done
+
+echo ""
+echo "✅ Results: $REPORT_DIR/results.csv"
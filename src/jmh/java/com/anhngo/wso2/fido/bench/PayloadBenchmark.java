@@ -0,0 +1,158 @@
+package com.anhngo.wso2.fido.bench;
+
+import com.anhngo.wso2.fido.dto.ApiResponse;
+import com.anhngo.wso2.fido.service.JsonCodec;
+import com.anhngo.wso2.fido.service.Wso2Payloads;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jwt.JWTParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU hot path của gateway: dựng payload gửi WSO2 IS, decode JWT/clientDataJSON và serialize ApiResponse.
+ * Chạy cùng GC profiler (cấu hình trong build.gradle) để thấy gc.alloc.rate.norm (byte/op) bên cạnh throughput.
+ *
+ * ./gradlew jmh -Pjmh.includes=PayloadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadBenchmark {
+
+    private ObjectMapper objectMapper;
+    private JsonCodec jsonCodec;
+
+    private String requestId;
+    private String rawId;
+    private String attestationObject;
+    private String clientDataJSON;
+    private String authenticatorData;
+    private String signature;
+    private String userHandle;
+    private String flowId;
+    private String authenticatorId;
+    private Map<String, String> loginForm;
+    private String accessToken;
+    private JsonNode registrationOptions;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        jsonCodec = JsonCodec.standalone();
+
+        requestId = "5b2f0c1e-9d6a-4a61-8f0e-0c1f3d1f8a42";
+        rawId = base64Url(randomBytes(32));
+        attestationObject = base64Url(randomBytes(700));
+        clientDataJSON = base64Url(("{\"type\":\"webauthn.get\",\"challenge\":\"" + base64Url(randomBytes(32))
+            + "\",\"origin\":\"https://anhngo.site\",\"crossOrigin\":false}").getBytes(StandardCharsets.UTF_8));
+        authenticatorData = base64Url(randomBytes(37));
+        signature = base64Url(randomBytes(72));
+        userHandle = base64Url(randomBytes(16));
+        flowId = "b7c2a9f4-1e0d-4c4b-9a57-3a2d8e6f0c11";
+        authenticatorId = "RklET0F1dGhlbnRpY2F0b3I6TE9DQUw";
+
+        loginForm = new LinkedHashMap<>();
+        loginForm.put("grant_type", "password");
+        loginForm.put("username", "alice@anhngo.site");
+        loginForm.put("password", "p@ss w0rd&more");
+        loginForm.put("scope", "openid profile");
+
+        String header = base64Url("{\"alg\":\"RS256\",\"kid\":\"key-1\",\"typ\":\"at+jwt\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = base64Url(("{\"sub\":\"alice\",\"username\":\"alice\",\"name\":\"Alice Nguyen\","
+            + "\"iss\":\"https://ndanh.site/oauth2/token\",\"aud\":\"y_3HL0fqNgSgacLCZvRwp6nImpwa\","
+            + "\"scope\":\"openid profile\",\"iat\":1760000000,\"exp\":1760003600}").getBytes(StandardCharsets.UTF_8));
+        accessToken = header + "." + payload + "." + base64Url(randomBytes(256));
+
+        registrationOptions = objectMapper.readTree("{\"requestId\":\"" + requestId + "\",\"publicKeyCredentialCreationOptions\":"
+            + "{\"rp\":{\"name\":\"FIDO Demo Application\",\"id\":\"anhngo.site\"},\"challenge\":\"" + base64Url(randomBytes(32)) + "\","
+            + "\"pubKeyCredParams\":[{\"type\":\"public-key\",\"alg\":-7},{\"type\":\"public-key\",\"alg\":-257}],"
+            + "\"timeout\":60000,\"attestation\":\"none\"}}");
+    }
+
+    @Benchmark
+    public String registrationFinishBody() throws Exception {
+        return Wso2Payloads.registrationFinishBody(jsonCodec, requestId, rawId, attestationObject, clientDataJSON);
+    }
+
+    @Benchmark
+    public String passkeyVerifyBody() throws Exception {
+        String responseJson = Wso2Payloads.passkeyTokenResponseJson(jsonCodec, requestId, rawId,
+            authenticatorData, clientDataJSON, signature, userHandle);
+        String tokenResponse = Base64.getEncoder().encodeToString(responseJson.getBytes());
+        return Wso2Payloads.passkeyVerifyBody(jsonCodec, flowId, authenticatorId, tokenResponse);
+    }
+
+    @Benchmark
+    public byte[] passkeyVerifyBodyStreaming() throws Exception {
+        return Wso2Payloads.passkeyVerifyBodyBytes(jsonCodec, flowId, authenticatorId, requestId, rawId,
+            authenticatorData, clientDataJSON, signature, userHandle);
+    }
+
+    @Benchmark
+    public String authenticationFinishBody() {
+        return Wso2Payloads.authenticationFinishBody(rawId, attestationObject, clientDataJSON);
+    }
+
+    @Benchmark
+    public String formData() {
+        return Wso2Payloads.formData(loginForm);
+    }
+
+    /**
+     * Cách registerFidoCredential decode JWT trước đây: split, thêm padding, Base64, readTree
+     */
+    @Benchmark
+    public String jwtPayloadManualDecode() throws Exception {
+        String payload = accessToken.split("\\.")[1];
+        while (payload.length() % 4 != 0) {
+            payload += "=";
+        }
+        JsonNode tokenNode = objectMapper.readTree(new String(Base64.getUrlDecoder().decode(payload)));
+        return tokenNode.get("username").asText();
+    }
+
+    @Benchmark
+    public Object jwtPayloadNimbusParse() throws Exception {
+        return JWTParser.parse(accessToken).getJWTClaimsSet().getClaim("username");
+    }
+
+    @Benchmark
+    public String clientDataJsonParse() throws Exception {
+        JsonNode clientData = objectMapper.readTree(new String(Base64.getUrlDecoder().decode(clientDataJSON)));
+        return clientData.get("challenge").asText() + clientData.get("origin").asText();
+    }
+
+    @Benchmark
+    public byte[] apiResponseSerialization() throws Exception {
+        return objectMapper.writeValueAsBytes(ApiResponse.success("Registration options retrieved", registrationOptions));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,150 @@
+package com.anhngo.wso2.fido.bench;
+
+import com.anhngo.wso2.fido.config.Wso2HttpClientPoolConfig;
+import com.anhngo.wso2.fido.transport.ClassicWso2Transport;
+import com.anhngo.wso2.fido.transport.Http2Wso2Transport;
+import com.anhngo.wso2.fido.transport.Wso2Transport;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.core5.reactor.ssl.SSLBufferMode;
+import org.apache.hc.core5.ssl.SSLContextBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+import javax.net.ssl.SSLContext;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh transport classic (HttpClient5, HTTP/1.1, pool 20 connection/route như RestTemplateConfig)
+ * và http2 (JDK HttpClient, multiplex trên một connection TLS) khi một burst concurrentCalls request
+ * tới cùng WSO2 IS host có độ trễ cao. Stub là reactor-netty với TLS (keystore.p12) và ALPN h2/http1.1.
+ * Classic bị giới hạn bởi số connection/route, http2 bởi max concurrent streams của server.
+ *
+ * ./gradlew jmh -Pjmh.includes=TransportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.internal.httpclient.disableHostnameVerification")
+public class TransportBenchmark {
+
+    private static final String BODY = "{\"access_token\":\"bench\",\"expires_in\":3600}";
+
+    @Param({"classic", "http2"})
+    public String transport;
+
+    @Param({"50", "200"})
+    public int wso2LatencyMillis;
+
+    @Param({"100", "500"})
+    public int concurrentCalls;
+
+    private DisposableServer wso2Stub;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private Wso2Transport wso2Transport;
+    private RestTemplate restTemplate;
+    private ExecutorService requestThreads;
+    private String tokenUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = TransportBenchmark.class.getResourceAsStream("/keystore.p12")) {
+            keyStore.load(in, "password".toCharArray());
+        }
+        PrivateKey key = (PrivateKey) keyStore.getKey("tomcat", "password".toCharArray());
+        Certificate[] chain = keyStore.getCertificateChain("tomcat");
+        X509Certificate[] certificates = Arrays.copyOf(chain, chain.length, X509Certificate[].class);
+
+        wso2Stub = HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+            .secure(spec -> spec.sslContext(Http2SslContextSpec.forServer(key, certificates)))
+            .route(routes -> routes.post("/oauth2/token", (request, response) -> request.receive().aggregate()
+                .then(Mono.delay(Duration.ofMillis(wso2LatencyMillis)))
+                .then(response.header("Content-Type", "application/json").sendString(Mono.just(BODY)).then())))
+            .bindNow();
+        tokenUrl = "https://127.0.0.1:" + wso2Stub.port() + "/oauth2/token";
+
+        SSLContext sslContext = new SSLContextBuilder()
+            .loadTrustMaterial(null, (x509Certificates, s) -> true)
+            .build();
+        requestThreads = Executors.newVirtualThreadPerTaskExecutor();
+        if ("http2".equals(transport)) {
+            wso2Transport = new Http2Wso2Transport(sslContext, sslContext.getDefaultSSLParameters(), Duration.ofSeconds(5),
+                Duration.ofSeconds(10), false, requestThreads);
+        } else {
+            connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setTlsSocketStrategy(new DefaultClientTlsStrategy(sslContext, null, null, SSLBufferMode.STATIC,
+                    NoopHostnameVerifier.INSTANCE))
+                .setMaxConnTotal(100)
+                .setMaxConnPerRoute(20)
+                .build();
+            Wso2HttpClientPoolConfig pool = new Wso2HttpClientPoolConfig();
+            pool.setConnectionRequestTimeout(Duration.ofSeconds(30));
+            wso2Transport = new ClassicWso2Transport(connectionManager, pool, Duration.ofSeconds(10), false);
+        }
+        restTemplate = new RestTemplate(wso2Transport.requestFactory());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (wso2Transport instanceof Http2Wso2Transport http2) {
+            http2.close();
+        }
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+        requestThreads.shutdownNow();
+        wso2Stub.disposeNow();
+    }
+
+    @Benchmark
+    public int tokenBurst() throws Exception {
+        List<Future<String>> results = new ArrayList<>(concurrentCalls);
+        for (int i = 0; i < concurrentCalls; i++) {
+            results.add(requestThreads.submit(() -> restTemplate.postForObject(tokenUrl, "grant_type=client_credentials", String.class)));
+        }
+        int completed = 0;
+        for (Future<String> result : results) {
+            if (result.get() != null) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,120 @@
+package com.anhngo.wso2.fido.bench;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh platform threads (giới hạn như Tomcat mặc định, 200 threads) và virtual threads
+ * khi mỗi login phải chờ một WSO2 call có độ trễ cao. Mỗi invocation là một burst concurrentLogins request
+ * qua RestTemplate + HttpClient5 pool thật, nên pool lease cũng nằm trên đường đo (pinning sẽ thể hiện ở đây).
+ *
+ * ./gradlew jmh -Pjmh.includes=VirtualThreadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+public class VirtualThreadBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"100", "500"})
+    public int wso2LatencyMillis;
+
+    @Param({"1000"})
+    public int concurrentLogins;
+
+    private HttpServer wso2Stub;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private RestTemplate restTemplate;
+    private ExecutorService requestThreads;
+    private String tokenUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] body = "{\"access_token\":\"bench\",\"expires_in\":3600}".getBytes(StandardCharsets.UTF_8);
+
+        wso2Stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        wso2Stub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        wso2Stub.createContext("/oauth2/token", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(wso2LatencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        wso2Stub.start();
+        tokenUrl = "http://127.0.0.1:" + wso2Stub.getAddress().getPort() + "/oauth2/token";
+
+        // Pool đủ lớn để giới hạn duy nhất là số request thread
+        connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(concurrentLogins)
+            .setMaxConnPerRoute(concurrentLogins)
+            .build();
+        restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(
+            HttpClients.custom().setConnectionManager(connectionManager).build()));
+
+        requestThreads = "virtual".equals(threads)
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(200);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requestThreads.shutdownNow();
+        connectionManager.close();
+        wso2Stub.stop(0);
+    }
+
+    @Benchmark
+    public int loginBurst() throws Exception {
+        List<Future<String>> results = new ArrayList<>(concurrentLogins);
+        for (int i = 0; i < concurrentLogins; i++) {
+            results.add(requestThreads.submit(() -> restTemplate.postForObject(tokenUrl, "grant_type=client_credentials", String.class)));
+        }
+        int completed = 0;
+        for (Future<String> result : results) {
+            if (result.get() != null) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+}
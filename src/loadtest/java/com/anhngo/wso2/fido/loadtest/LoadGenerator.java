@@ -0,0 +1,355 @@
+package com.anhngo.wso2.fido.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Load test end-to-end cho gateway theo open model: journey bắt đầu theo arrival rate cố định (Poisson hoặc đều),
+ * không phụ thuộc việc request trước đã xong chưa.
+ *
+ * Latency mỗi step được đo từ thời điểm step lẽ ra bắt đầu (arrival time cho step đầu, lúc step trước xong cho các
+ * step sau), nên khi gateway hoặc chính generator chậm lại, thời gian chờ được tính vào latency
+ * (hiệu chỉnh coordinated omission).
+ *
+ * Journeys:
+ *   fido-registration:   /fido/registration-options → /fido/register
+ *   fido-authentication: /fido/authentication-options → /fido/authenticate
+ *   native-auth:         /native-auth/init → /native-auth/verify → /native-auth/callback
+ *
+ * ./gradlew loadTest -Dloadtest.rate=50 -Dloadtest.duration=2m -Dloadtest.p99-threshold-ms=500
+ * Exit code khác 0 khi p99 của một step vượt ngưỡng hoặc tỉ lệ lỗi vượt loadtest.max-error-rate.
+ */
+public class LoadGenerator {
+
+    // Microseconds, tối đa 1 giờ, 3 chữ số có nghĩa
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final String PASSKEY_AUTHENTICATOR_ID = "RklET0F1dGhlbnRpY2F0b3I6TE9DQUw";
+
+    private final LoadTestConfig config;
+    private final GatewayClient client;
+    private final Map<String, StepStats> stats = new ConcurrentHashMap<>();
+    private final LongAdder inFlight = new LongAdder();
+    private volatile long measureFromNanos;
+
+    LoadGenerator(LoadTestConfig config) throws Exception {
+        this.config = config;
+        this.client = new GatewayClient(config);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        System.out.println("Load test: " + config);
+
+        LoadGenerator generator = new LoadGenerator(config);
+        generator.run();
+        boolean passed = generator.report();
+        System.exit(passed ? 0 : 1);
+    }
+
+    void run() throws InterruptedException {
+        ExecutorService journeys = Executors.newVirtualThreadPerTaskExecutor();
+        List<String> names = new ArrayList<>(config.mix.keySet());
+        double totalWeight = config.mix.values().stream().mapToDouble(Double::doubleValue).sum();
+
+        long start = System.nanoTime();
+        measureFromNanos = start + config.warmup.toNanos();
+        long end = measureFromNanos + config.duration.toNanos();
+        long next = start;
+        long started = 0;
+
+        while (next < end) {
+            long now = System.nanoTime();
+            if (next > now) {
+                LockSupport.parkNanos(next - now);
+            }
+
+            String journey = pick(names, totalWeight);
+            long intendedStart = next;
+            inFlight.increment();
+            journeys.execute(() -> {
+                try {
+                    runJourney(journey, intendedStart);
+                } finally {
+                    inFlight.decrement();
+                }
+            });
+            started++;
+            next += interArrivalNanos();
+        }
+
+        System.out.printf("Started %d journeys, waiting for %d in flight%n", started, inFlight.sum());
+        journeys.shutdown();
+        if (!journeys.awaitTermination(config.requestTimeout.toSeconds() * 4, TimeUnit.SECONDS)) {
+            System.out.printf("%d journeys still running after timeout%n", inFlight.sum());
+            journeys.shutdownNow();
+        }
+    }
+
+    private void runJourney(String journey, long intendedStart) {
+        JourneyRun run = new JourneyRun(intendedStart, intendedStart >= measureFromNanos);
+        boolean success = true;
+        try {
+            switch (journey) {
+                case "fido-registration" -> fidoRegistration(run);
+                case "fido-authentication" -> fidoAuthentication(run);
+                case "native-auth" -> nativeAuth(run);
+                default -> throw new IllegalArgumentException("Unknown journey: " + journey);
+            }
+        } catch (StepFailedException e) {
+            success = false;
+        }
+        if (run.measured) {
+            stats("journey:" + journey).record(System.nanoTime() - intendedStart, success);
+        }
+    }
+
+    private void fidoRegistration(JourneyRun run) {
+        String username = "loadtest-" + ThreadLocalRandom.current().nextInt(10_000);
+        Map<String, Object> optionsRequest = new LinkedHashMap<>();
+        optionsRequest.put("username", username);
+        optionsRequest.put("displayName", username);
+        GatewayClient.Response options = step(run, "fido/registration-options",
+            () -> client.post("/fido/registration-options", optionsRequest, config.bearerToken), GatewayClient.Response::isSuccess);
+
+        Map<String, Object> registerRequest = new LinkedHashMap<>();
+        registerRequest.put("username", username);
+        registerRequest.put("displayName", username);
+        registerRequest.put("requestId", text(options.body(), "requestId", UUID.randomUUID().toString()));
+        registerRequest.put("attestationObject", randomBase64Url(700));
+        registerRequest.put("clientDataJSON", clientDataJson("webauthn.create"));
+        registerRequest.put("rawId", randomBase64Url(32));
+        step(run, "fido/register",
+            () -> client.post("/fido/register", registerRequest, config.bearerToken), GatewayClient.Response::isSuccess);
+    }
+
+    private void fidoAuthentication(JourneyRun run) {
+        String username = "loadtest-" + ThreadLocalRandom.current().nextInt(10_000);
+        step(run, "fido/authentication-options",
+            () -> client.post("/fido/authentication-options", Map.of("username", username), config.bearerToken),
+            GatewayClient.Response::isSuccess);
+
+        Map<String, Object> authenticateRequest = new LinkedHashMap<>();
+        authenticateRequest.put("username", username);
+        authenticateRequest.put("assertionObject", randomBase64Url(300));
+        authenticateRequest.put("clientDataJSON", clientDataJson("webauthn.get"));
+        authenticateRequest.put("rawId", randomBase64Url(32));
+        step(run, "fido/authenticate",
+            () -> client.post("/fido/authenticate", authenticateRequest, config.bearerToken), GatewayClient.Response::isSuccess);
+    }
+
+    private void nativeAuth(JourneyRun run) {
+        GatewayClient.Response init = step(run, "native-auth/init",
+            () -> client.post("/native-auth/init", Map.of("redirectUri", config.redirectUri), null),
+            response -> response.isSuccess() && response.body().findValue("flowId") != null);
+
+        Map<String, Object> credentials = new LinkedHashMap<>();
+        credentials.put("credentialId", randomBase64Url(32));
+        credentials.put("clientDataJSON", clientDataJson("webauthn.get"));
+        credentials.put("authenticatorData", randomBase64Url(37));
+        credentials.put("signature", randomBase64Url(72));
+        credentials.put("userHandle", randomBase64Url(16));
+
+        Map<String, Object> verifyRequest = new LinkedHashMap<>();
+        verifyRequest.put("flowId", init.body().findValue("flowId").asText());
+        verifyRequest.put("authenticatorId", text(init.body(), "authenticatorId", PASSKEY_AUTHENTICATOR_ID));
+        verifyRequest.put("requestId", challengeRequestId(init.body()));
+        verifyRequest.put("credentials", credentials);
+        GatewayClient.Response verify = step(run, "native-auth/verify",
+            () -> client.post("/native-auth/verify", verifyRequest, null),
+            response -> response.isSuccess() && response.body().findValue("code") != null);
+
+        String code = verify.body().findValue("code").asText();
+        step(run, "native-auth/callback",
+            () -> client.get("/native-auth/callback?code=" + code + "&state=loadtest"), GatewayClient.Response::isSuccess);
+    }
+
+    /**
+     * Chạy một step, ghi latency tính từ thời điểm step lẽ ra bắt đầu; ném StepFailedException để dừng journey
+     */
+    private GatewayClient.Response step(JourneyRun run, String name, Callable<GatewayClient.Response> call,
+                                        Predicate<GatewayClient.Response> succeeded) {
+        GatewayClient.Response response = null;
+        boolean success;
+        try {
+            response = call.call();
+            success = succeeded.test(response);
+        } catch (Exception e) {
+            success = false;
+        }
+
+        long completed = System.nanoTime();
+        if (run.measured) {
+            stats(name).record(completed - run.nextIntendedStart, success);
+        }
+        run.nextIntendedStart = completed;
+        if (!success) {
+            throw new StepFailedException();
+        }
+        return response;
+    }
+
+    boolean report() throws IOException {
+        Path reportDir = Path.of(config.reportDir);
+        Files.createDirectories(reportDir);
+        double seconds = config.duration.toMillis() / 1000.0;
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%-32s %8s %7s %8s %9s %9s %9s %9s %9s%n",
+            "step", "count", "errors", "rate/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+        boolean passed = true;
+        long totalCount = 0;
+        long totalErrors = 0;
+        for (Map.Entry<String, StepStats> entry : new TreeMap<>(stats).entrySet()) {
+            String name = entry.getKey();
+            StepStats step = entry.getValue();
+            Histogram histogram = step.histogram;
+            summary.append(String.format("%-32s %8d %7d %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                name, histogram.getTotalCount(), step.errors.sum(), histogram.getTotalCount() / seconds,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0));
+
+            try (PrintStream out = new PrintStream(Files.newOutputStream(reportDir.resolve(name.replaceAll("[/:]", "_") + ".hgrm")),
+                false, StandardCharsets.UTF_8)) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+
+            if (!name.startsWith("journey:")) {
+                totalCount += histogram.getTotalCount();
+                totalErrors += step.errors.sum();
+                double threshold = config.p99ThresholdMillis(name);
+                if (threshold > 0 && millis(histogram, 99) > threshold) {
+                    summary.append(String.format("  FAIL: p99 %.1f ms > threshold %.1f ms%n", millis(histogram, 99), threshold));
+                    passed = false;
+                }
+            }
+        }
+
+        double errorRate = totalCount > 0 ? (double) totalErrors / totalCount : 0;
+        summary.append(String.format("%nError rate: %.4f (%d/%d)%n", errorRate, totalErrors, totalCount));
+        if (errorRate > config.maxErrorRate) {
+            summary.append(String.format("FAIL: error rate %.4f > max %.4f%n", errorRate, config.maxErrorRate));
+            passed = false;
+        }
+        summary.append(passed ? "PASSED" : "FAILED").append(System.lineSeparator());
+
+        System.out.print(summary);
+        Files.writeString(reportDir.resolve("summary.txt"), config + System.lineSeparator() + summary);
+        System.out.println("HdrHistogram percentile files written to " + reportDir.toAbsolutePath());
+        return passed;
+    }
+
+    private StepStats stats(String name) {
+        return stats.computeIfAbsent(name, key -> new StepStats());
+    }
+
+    private long interArrivalNanos() {
+        double meanNanos = TimeUnit.SECONDS.toNanos(1) / config.arrivalRate;
+        if (!config.poissonArrivals) {
+            return (long) meanNanos;
+        }
+        return (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanNanos);
+    }
+
+    private String pick(List<String> names, double totalWeight) {
+        double roll = ThreadLocalRandom.current().nextDouble(totalWeight);
+        for (String name : names) {
+            roll -= config.mix.get(name);
+            if (roll < 0) {
+                return name;
+            }
+        }
+        return names.get(names.size() - 1);
+    }
+
+    /**
+     * requestId của WebAuthn nằm trong challengeData (Base64 JSON) của response /native-auth/init
+     */
+    private String challengeRequestId(JsonNode initResponse) {
+        JsonNode challengeData = initResponse.findValue("challengeData");
+        if (challengeData != null) {
+            try {
+                JsonNode decoded = client.objectMapper().readTree(Base64.getDecoder().decode(challengeData.asText()));
+                return text(decoded, "requestId", UUID.randomUUID().toString());
+            } catch (Exception e) {
+                // Không decode được: dùng requestId ngẫu nhiên
+            }
+        }
+        return text(initResponse, "requestId", UUID.randomUUID().toString());
+    }
+
+    private String clientDataJson(String type) {
+        String json = "{\"type\":\"" + type + "\",\"challenge\":\"" + randomBase64Url(32)
+            + "\",\"origin\":\"" + config.target + "\",\"crossOrigin\":false}";
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(JsonNode node, String field, String defaultValue) {
+        JsonNode value = node.findValue(field);
+        return value != null && !value.isNull() ? value.asText() : defaultValue;
+    }
+
+    private static String randomBase64Url(int length) {
+        byte[] bytes = new byte[length];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static final class JourneyRun {
+
+        final boolean measured;
+        long nextIntendedStart;
+
+        JourneyRun(long intendedStart, boolean measured) {
+            this.nextIntendedStart = intendedStart;
+            this.measured = measured;
+        }
+    }
+
+    private static final class StepStats {
+
+        final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+
+        void record(long elapsedNanos, boolean success) {
+            histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS));
+            if (!success) {
+                errors.increment();
+            }
+        }
+    }
+
+    private static final class StepFailedException extends RuntimeException {
+
+        StepFailedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.anhngo.wso2.fido.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cấu hình load test từ system properties loadtest.* (Gradle chuyển -Dloadtest.* sang JavaExec)
+ */
+final class LoadTestConfig {
+
+    final String target;
+    final double arrivalRate;
+    final boolean poissonArrivals;
+    final Duration duration;
+    final Duration warmup;
+    final Duration requestTimeout;
+    final Map<String, Double> mix;
+    final String bearerToken;
+    final String redirectUri;
+    final double p99ThresholdMillis;
+    final double maxErrorRate;
+    final String reportDir;
+
+    private LoadTestConfig() {
+        target = string("target", "https://localhost:8080");
+        arrivalRate = number("rate", 20);
+        poissonArrivals = !"constant".equals(string("arrival", "poisson"));
+        duration = Duration.parse("PT" + string("duration", "60s").toUpperCase());
+        warmup = Duration.parse("PT" + string("warmup", "10s").toUpperCase());
+        requestTimeout = Duration.parse("PT" + string("timeout", "30s").toUpperCase());
+        mix = parseMix(string("mix", "fido-registration=1,fido-authentication=1,native-auth=1"));
+        // FIDO registration cần user token; stub chấp nhận mọi giá trị, WSO2 IS thật cần token hợp lệ
+        bearerToken = string("bearer-token", "loadtest-token");
+        redirectUri = string("redirect-uri", "https://localhost:8080/native-auth/callback");
+        p99ThresholdMillis = number("p99-threshold-ms", 0);
+        maxErrorRate = number("max-error-rate", 1.0);
+        reportDir = string("report-dir", "build/reports/loadtest");
+    }
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig();
+    }
+
+    /**
+     * Ngưỡng p99 cho một step: loadtest.p99-threshold-ms.&lt;step&gt; hoặc ngưỡng chung; 0 là không kiểm tra
+     */
+    double p99ThresholdMillis(String step) {
+        String value = System.getProperty("loadtest.p99-threshold-ms." + step);
+        return value != null ? Double.parseDouble(value) : p99ThresholdMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("target=%s rate=%.1f/s (%s) duration=%s warmup=%s mix=%s",
+            target, arrivalRate, poissonArrivals ? "poisson" : "constant", duration, warmup, mix);
+    }
+
+    private static Map<String, Double> parseMix(String value) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            weights.put(parts[0], parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0);
+        }
+        return weights;
+    }
+
+    private static String string(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static double number(String name, double defaultValue) {
+        String value = System.getProperty("loadtest." + name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+}
@@ -0,0 +1,63 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.admin-session")
+public class AdminSessionConfig {
+
+    /**
+     * Treat the admin token as expired this long before WSO2 IS does
+     */
+    private Duration expirySkew = Duration.ofSeconds(30);
+
+    /**
+     * Lifetime assumed when the token response has no expires_in
+     */
+    private Duration defaultExpiresIn = Duration.ofMinutes(5);
+
+    /**
+     * First back-off delay after a failed admin login
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Upper bound for the exponential back-off delay
+     */
+    private Duration maxBackoff = Duration.ofSeconds(60);
+
+    public Duration getExpirySkew() {
+        return expirySkew;
+    }
+
+    public void setExpirySkew(Duration expirySkew) {
+        this.expirySkew = expirySkew;
+    }
+
+    public Duration getDefaultExpiresIn() {
+        return defaultExpiresIn;
+    }
+
+    public void setDefaultExpiresIn(Duration defaultExpiresIn) {
+        this.defaultExpiresIn = defaultExpiresIn;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+}
@@ -0,0 +1,169 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "gateway.concurrency-limit")
+public class ConcurrencyLimitConfig {
+
+    /**
+     * Limit in-flight /fido and /native-auth requests with a latency-driven (gradient) concurrency limit
+     */
+    private boolean enabled = true;
+
+    /**
+     * URL patterns the limiter is applied to
+     */
+    private List<String> urlPatterns = new ArrayList<>(List.of("/fido/*", "/native-auth/*"));
+
+    /**
+     * Limit used until enough latency samples have been observed
+     */
+    private int initialLimit = 50;
+
+    /**
+     * The limit never drops below this
+     */
+    private int minLimit = 10;
+
+    /**
+     * The limit never grows above this
+     */
+    private int maxLimit = 400;
+
+    /**
+     * How much the recent latency may exceed the long-term latency before the limit shrinks (1.5 = 50% slower)
+     */
+    private double rttTolerance = 1.5;
+
+    /**
+     * Weight of each new limit estimate (0.0 - 1.0); lower values react more slowly but are steadier
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Number of sample windows the long-term latency is averaged over
+     */
+    private int longWindow = 600;
+
+    /**
+     * Minimum duration of a sample window; the limit is re-evaluated once per window
+     */
+    private Duration sampleWindow = Duration.ofSeconds(1);
+
+    /**
+     * Minimum requests in a sample window before the limit is re-evaluated
+     */
+    private int minWindowSamples = 10;
+
+    /**
+     * Multiplier applied to the limit when a window contains requests that failed with 503/504 or timed out
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * Retry-After returned with rejected requests
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getUrlPatterns() {
+        return urlPatterns;
+    }
+
+    public void setUrlPatterns(List<String> urlPatterns) {
+        this.urlPatterns = urlPatterns;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+
+    public void setRttTolerance(double rttTolerance) {
+        this.rttTolerance = rttTolerance;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public int getLongWindow() {
+        return longWindow;
+    }
+
+    public void setLongWindow(int longWindow) {
+        this.longWindow = longWindow;
+    }
+
+    public Duration getSampleWindow() {
+        return sampleWindow;
+    }
+
+    public void setSampleWindow(Duration sampleWindow) {
+        this.sampleWindow = sampleWindow;
+    }
+
+    public int getMinWindowSamples() {
+        return minWindowSamples;
+    }
+
+    public void setMinWindowSamples(int minWindowSamples) {
+        this.minWindowSamples = minWindowSamples;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,64 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "gateway.deadline")
+public class DeadlineConfig {
+
+    /**
+     * Give every inbound request a deadline; each WSO2 IS call gets the remaining budget as its timeout
+     */
+    private boolean enabled = true;
+
+    /**
+     * Total time an inbound request may spend, across all WSO2 IS calls it makes
+     */
+    private Duration budget = Duration.ofSeconds(8);
+
+    /**
+     * Optional follow-up calls (passkey challenge after native-auth init) are skipped in favour of the existing
+     * fallback when less than this is left
+     */
+    private Duration fallbackReserve = Duration.ofSeconds(1);
+
+    /**
+     * Read timeout for WSO2 IS calls made outside an inbound request (token refresh, flow pool, JWKS)
+     */
+    private Duration defaultReadTimeout = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getBudget() {
+        return budget;
+    }
+
+    public void setBudget(Duration budget) {
+        this.budget = budget;
+    }
+
+    public Duration getFallbackReserve() {
+        return fallbackReserve;
+    }
+
+    public void setFallbackReserve(Duration fallbackReserve) {
+        this.fallbackReserve = fallbackReserve;
+    }
+
+    public Duration getDefaultReadTimeout() {
+        return defaultReadTimeout;
+    }
+
+    public void setDefaultReadTimeout(Duration defaultReadTimeout) {
+        this.defaultReadTimeout = defaultReadTimeout;
+    }
+}
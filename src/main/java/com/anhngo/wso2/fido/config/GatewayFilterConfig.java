@@ -0,0 +1,51 @@
+package com.anhngo.wso2.fido.config;
+
+import com.anhngo.wso2.fido.filter.AdaptiveConcurrencyFilter;
+import com.anhngo.wso2.fido.filter.DeadlineFilter;
+import com.anhngo.wso2.fido.filter.GradientConcurrencyLimiter;
+import com.anhngo.wso2.fido.service.JsonCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+
+/**
+ * Servlet filter của gateway, chạy trước Spring Security để request bị từ chối không tốn thêm gì
+ */
+@Configuration
+public class GatewayFilterConfig {
+
+    /**
+     * Deadline bắt đầu tính từ lúc request tới, trước mọi filter khác của gateway
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.deadline", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<DeadlineFilter> deadlineFilter(DeadlineConfig config) {
+        FilterRegistrationBean<DeadlineFilter> registration = new FilterRegistrationBean<>(new DeadlineFilter(config.getBudget()));
+        registration.addUrlPatterns("/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.concurrency-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public GradientConcurrencyLimiter gradientConcurrencyLimiter(ConcurrencyLimitConfig config, MeterRegistry meterRegistry) {
+        return new GradientConcurrencyLimiter(config, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.concurrency-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<AdaptiveConcurrencyFilter> adaptiveConcurrencyFilter(GradientConcurrencyLimiter limiter,
+                                                                                       ConcurrencyLimitConfig config,
+                                                                                       JsonCodec jsonCodec) throws IOException {
+        FilterRegistrationBean<AdaptiveConcurrencyFilter> registration =
+            new FilterRegistrationBean<>(new AdaptiveConcurrencyFilter(limiter, config.getRetryAfter(), jsonCodec));
+        registration.setUrlPatterns(config.getUrlPatterns());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -0,0 +1,63 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.introspection-cache")
+public class IntrospectionCacheConfig {
+
+    /**
+     * Cache /oauth2/introspect results for opaque tokens
+     */
+    private boolean enabled = true;
+
+    /**
+     * Upper bound for caching an active result; entries never outlive the token's exp
+     */
+    private Duration maxTtl = Duration.ofSeconds(60);
+
+    /**
+     * How long an inactive (revoked, expired, unknown) result is cached
+     */
+    private Duration negativeTtl = Duration.ofSeconds(10);
+
+    /**
+     * Maximum number of cached introspection results
+     */
+    private long maximumSize = 10_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getMaxTtl() {
+        return maxTtl;
+    }
+
+    public void setMaxTtl(Duration maxTtl) {
+        this.maxTtl = maxTtl;
+    }
+
+    public Duration getNegativeTtl() {
+        return negativeTtl;
+    }
+
+    public void setNegativeTtl(Duration negativeTtl) {
+        this.negativeTtl = negativeTtl;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+}
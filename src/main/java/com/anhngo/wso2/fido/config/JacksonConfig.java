@@ -0,0 +1,25 @@
+package com.anhngo.wso2.fido.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.core.NativeDetector;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Blackbird thay reflection bằng LambdaMetafactory cho getter/setter/constructor khi (de)serialize POJO;
+     * Spring Boot tự đăng ký mọi Module bean vào ObjectMapper dùng chung (HTTP converters và JsonCodec).
+     * Native image không sinh được class lúc runtime nên giữ reflection mặc định của Jackson
+     */
+    @Bean
+    public Module blackbirdModule() {
+        if (NativeDetector.inNativeImage()) {
+            return new SimpleModule("blackbird-disabled");
+        }
+        return new BlackbirdModule();
+    }
+}
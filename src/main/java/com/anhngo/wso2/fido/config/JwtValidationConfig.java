@@ -0,0 +1,132 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.jwt")
+public class JwtValidationConfig {
+
+    /**
+     * Validate JWT access tokens locally against the WSO2 IS JWKS instead of calling /oauth2/introspect
+     */
+    private boolean enabled = true;
+
+    /**
+     * JWKS endpoint path relative to wso2.is.base-url
+     */
+    private String jwksPath = "/oauth2/jwks";
+
+    /**
+     * Expected iss claim; blank skips the issuer check
+     */
+    private String issuer;
+
+    /**
+     * Accepted aud values of JWT access tokens. Empty requires a client_id or azp claim instead.
+     * Either way tokens must have an access token typ (at+jwt or JWT) and no ID token claims
+     */
+    private List<String> audiences = new ArrayList<>();
+
+    /**
+     * Tolerance applied to exp and nbf
+     */
+    private Duration clockSkew = Duration.ofSeconds(30);
+
+    /**
+     * Minimum time between two JWKS downloads triggered by an unknown kid
+     */
+    private Duration jwksMinRefreshInterval = Duration.ofSeconds(30);
+
+    /**
+     * Maximum number of decoded tokens kept in memory
+     */
+    private long claimsCacheSize = 10_000;
+
+    /**
+     * Upper bound on how long decoded claims are cached, even if exp is later
+     */
+    private Duration claimsCacheMaxTtl = Duration.ofMinutes(5);
+
+    /**
+     * How long a revoked JWT stays denied locally: until its exp, capped at this (also used when it has no exp).
+     * Should be longer than the WSO2 IS access token lifetime
+     */
+    private Duration revokedTokenMaxTtl = Duration.ofHours(24);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getJwksPath() {
+        return jwksPath;
+    }
+
+    public void setJwksPath(String jwksPath) {
+        this.jwksPath = jwksPath;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public void setIssuer(String issuer) {
+        this.issuer = issuer;
+    }
+
+    public List<String> getAudiences() {
+        return audiences;
+    }
+
+    public void setAudiences(List<String> audiences) {
+        this.audiences = audiences;
+    }
+
+    public Duration getClockSkew() {
+        return clockSkew;
+    }
+
+    public void setClockSkew(Duration clockSkew) {
+        this.clockSkew = clockSkew;
+    }
+
+    public Duration getJwksMinRefreshInterval() {
+        return jwksMinRefreshInterval;
+    }
+
+    public void setJwksMinRefreshInterval(Duration jwksMinRefreshInterval) {
+        this.jwksMinRefreshInterval = jwksMinRefreshInterval;
+    }
+
+    public long getClaimsCacheSize() {
+        return claimsCacheSize;
+    }
+
+    public void setClaimsCacheSize(long claimsCacheSize) {
+        this.claimsCacheSize = claimsCacheSize;
+    }
+
+    public Duration getClaimsCacheMaxTtl() {
+        return claimsCacheMaxTtl;
+    }
+
+    public void setClaimsCacheMaxTtl(Duration claimsCacheMaxTtl) {
+        this.claimsCacheMaxTtl = claimsCacheMaxTtl;
+    }
+
+    public Duration getRevokedTokenMaxTtl() {
+        return revokedTokenMaxTtl;
+    }
+
+    public void setRevokedTokenMaxTtl(Duration revokedTokenMaxTtl) {
+        this.revokedTokenMaxTtl = revokedTokenMaxTtl;
+    }
+}
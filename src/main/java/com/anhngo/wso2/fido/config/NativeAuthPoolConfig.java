@@ -0,0 +1,131 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.native-auth.pool")
+public class NativeAuthPoolConfig {
+
+    /**
+     * Keep native-auth flows initialized ahead of time (with passkey challenge) for username-less login
+     */
+    private boolean enabled = false;
+
+    /**
+     * Ready flows kept per client (redirect URI, scope, response type and mode)
+     */
+    private int size = 10;
+
+    /**
+     * Pooled flows older than this are discarded; keep it well below the WSO2 IS authentication flow timeout
+     */
+    private Duration ttl = Duration.ofMinutes(2);
+
+    /**
+     * Maximum new flows initialized per second across all clients
+     */
+    private double refillRate = 5;
+
+    /**
+     * How often the pool is checked for expired flows and topped up
+     */
+    private Duration refillInterval = Duration.ofSeconds(1);
+
+    /**
+     * Redirect URIs to pool, with the default scope and response type; required when the pool is enabled.
+     * Requests for any other client are never pooled
+     */
+    private List<String> redirectUris = new ArrayList<>();
+
+    /**
+     * First back-off delay before retrying a client whose flow initialization failed
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Upper bound for the exponential back-off delay
+     */
+    private Duration maxBackoff = Duration.ofSeconds(60);
+
+    /**
+     * A client is dropped from the pool after this many consecutive failed flow initializations
+     */
+    private int maxFailures = 10;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public double getRefillRate() {
+        return refillRate;
+    }
+
+    public void setRefillRate(double refillRate) {
+        this.refillRate = refillRate;
+    }
+
+    public Duration getRefillInterval() {
+        return refillInterval;
+    }
+
+    public void setRefillInterval(Duration refillInterval) {
+        this.refillInterval = refillInterval;
+    }
+
+    public List<String> getRedirectUris() {
+        return redirectUris;
+    }
+
+    public void setRedirectUris(List<String> redirectUris) {
+        this.redirectUris = redirectUris;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public int getMaxFailures() {
+        return maxFailures;
+    }
+
+    public void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+}
@@ -1,59 +1,120 @@
 package com.anhngo.wso2.fido.config;
 
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
+import com.anhngo.wso2.fido.transport.ClassicWso2Transport;
+import com.anhngo.wso2.fido.transport.Http2Wso2Transport;
+import com.anhngo.wso2.fido.transport.Wso2Tls;
+import com.anhngo.wso2.fido.transport.Wso2Transport;
+import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
-import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
-import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.HttpsSupport;
 import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
-import org.apache.hc.core5.http.config.Registry;
-import org.apache.hc.core5.http.config.RegistryBuilder;
-import org.apache.hc.core5.ssl.SSLContextBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.ssl.SSLBufferMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
-import javax.net.ssl.SSLContext;
+import java.util.function.ToIntFunction;
 
 @Configuration
 public class RestTemplateConfig {
     
+    private static final Logger logger = LoggerFactory.getLogger(RestTemplateConfig.class);
+    
     @Bean
-    public RestTemplate restTemplate() throws Exception {
-        // Create SSL context that trusts all certificates (for development only)
-        SSLContext sslContext = new SSLContextBuilder()
-            .loadTrustMaterial(null, (x509Certificates, s) -> true)
-            .build();
-        
-        // Create SSL connection socket factory
-        SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(
-            sslContext, 
-            NoopHostnameVerifier.INSTANCE
+    @ConditionalOnProperty(prefix = "wso2.transport", name = "type", havingValue = "classic", matchIfMissing = true)
+    public PoolingHttpClientConnectionManager wso2ConnectionManager(Wso2HttpClientPoolConfig pool,
+                                                                    Wso2Config wso2Config, Wso2Tls tls) {
+        // SSLContext dùng chung (session cache) để connection mới resume TLS session thay vì full handshake
+        DefaultClientTlsStrategy tlsStrategy = new DefaultClientTlsStrategy(
+            tls.sslContext(),
+            tls.protocols(),
+            null,
+            SSLBufferMode.STATIC,
+            tls.verifyHostname() ? HttpsSupport.getDefaultHostnameVerifier() : NoopHostnameVerifier.INSTANCE
         );
         
-        // Register socket factories
-        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
-            .register("http", PlainConnectionSocketFactory.getSocketFactory())
-            .register("https", sslSocketFactory)
-            .build();
-        
         // Create connection manager
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
-        connectionManager.setMaxTotal(100);
-        connectionManager.setDefaultMaxPerRoute(20);
-        
-        // Create HTTP client
-        CloseableHttpClient httpClient = HttpClients.custom()
-            .setConnectionManager(connectionManager)
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setTlsSocketStrategy(tlsStrategy)
+            .setMaxConnTotal(pool.getMaxTotal())
+            .setMaxConnPerRoute(pool.getDefaultMaxPerRoute())
             .build();
-        
-        // Create request factory
-        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
-        requestFactory.setConnectTimeout(5000);
-        requestFactory.setConnectionRequestTimeout(5000);
-        
-        return new RestTemplate(requestFactory);
+        if (wso2Config.getBaseUrl() != null && !wso2Config.getBaseUrl().isBlank()) {
+            connectionManager.setMaxPerRoute(ClassicWso2Transport.route(wso2Config.getBaseUrl()), pool.getWso2MaxPerRoute());
+        }
+        pool.getMaxPerRoute().forEach((origin, max) -> connectionManager.setMaxPerRoute(ClassicWso2Transport.route(origin), max));
+        // Connect timeout ở connection level để vẫn áp dụng khi request dùng RequestConfig theo deadline.
+        // TTL + validate-after-inactivity tránh lease connection đã bị WSO2 IS đóng (sau restart) rồi fail ở request đầu
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.of(pool.getConnectTimeout()))
+            .setTimeToLive(TimeValue.of(pool.getTimeToLive()))
+            .setValidateAfterInactivity(TimeValue.of(pool.getValidateAfterInactivity()))
+            .build());
+        return connectionManager;
+    }
+    
+    @Bean
+    @ConditionalOnProperty(prefix = "wso2.transport", name = "type", havingValue = "classic", matchIfMissing = true)
+    public ClassicWso2Transport classicWso2Transport(PoolingHttpClientConnectionManager wso2ConnectionManager,
+                                                     Wso2HttpClientPoolConfig pool, DeadlineConfig deadlineConfig) {
+        return new ClassicWso2Transport(wso2ConnectionManager, pool, deadlineConfig.getDefaultReadTimeout(),
+            deadlineConfig.isEnabled());
+    }
+    
+    @Bean
+    @ConditionalOnProperty(prefix = "wso2.transport", name = "type", havingValue = "http2")
+    public Http2Wso2Transport http2Wso2Transport(Wso2HttpClientPoolConfig pool, DeadlineConfig deadlineConfig,
+                                                 Wso2Executors executors, Wso2Tls tls) {
+        return new Http2Wso2Transport(tls.sslContext(), tls.sslParameters(), pool.getConnectTimeout(),
+            deadlineConfig.getDefaultReadTimeout(), deadlineConfig.isEnabled(), executors.outbound());
+    }
+    
+    @Bean
+    public RestTemplate restTemplate(Wso2Transport wso2Transport) {
+        logger.info("WSO2 IS transport: {}", wso2Transport.name());
+        return new RestTemplate(wso2Transport.requestFactory());
+    }
+    
+    /**
+     * Gauges cho connection pool của RestTemplate: leased (đang dùng), pending (đang chờ lease),
+     * available (idle trong pool) và max. Pending > 0 nghĩa là latency đến từ pool chứ không phải WSO2 IS.
+     * Saturation = (leased + pending) / max, > 1 là có request đang xếp hàng chờ connection (dùng cho autoscaling)
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "wso2.transport", name = "type", havingValue = "classic", matchIfMissing = true)
+    public MeterBinder wso2ConnectionPoolMetrics(PoolingHttpClientConnectionManager wso2ConnectionManager) {
+        return registry -> {
+            poolGauge(registry, wso2ConnectionManager, "leased", PoolStats::getLeased);
+            poolGauge(registry, wso2ConnectionManager, "pending", PoolStats::getPending);
+            poolGauge(registry, wso2ConnectionManager, "available", PoolStats::getAvailable);
+            poolGauge(registry, wso2ConnectionManager, "max", PoolStats::getMax);
+            Gauge.builder("wso2.http.pool.saturation", wso2ConnectionManager, cm -> saturation(cm.getTotalStats()))
+                .description("WSO2 IS HTTP connection pool demand relative to its size")
+                .register(registry);
+        };
+    }
+    
+    private static double saturation(PoolStats stats) {
+        return stats.getMax() > 0 ? (double) (stats.getLeased() + stats.getPending()) / stats.getMax() : 0;
+    }
+    
+    private static void poolGauge(MeterRegistry registry,
+                                  PoolingHttpClientConnectionManager connectionManager,
+                                  String state, ToIntFunction<PoolStats> value) {
+        Gauge.builder("wso2.http.pool.connections", connectionManager, cm -> value.applyAsInt(cm.getTotalStats()))
+            .description("WSO2 IS HTTP connection pool")
+            .tag("state", state)
+            .register(registry);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,7 +1,11 @@
 package com.anhngo.wso2.fido.config;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.info.InfoEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -16,6 +20,8 @@ import java.util.Arrays;
 @EnableWebSecurity
 public class SecurityConfig {
     
+    public static final String ACTUATOR_ROLE = "ACTUATOR";
+    
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -35,10 +41,14 @@ public class SecurityConfig {
                 .requestMatchers("/native-auth/**").permitAll()
                 .requestMatchers("/oauth2/**").permitAll()
                 .requestMatchers("/wso2-proxy/**").permitAll()
-                .requestMatchers("/actuator/**").permitAll()
+                // health/info mở cho probe; các endpoint khác (metrics, wirelog - bật log payload WSO2 IS) cần role ACTUATOR
+                .requestMatchers(EndpointRequest.to(HealthEndpoint.class, InfoEndpoint.class)).permitAll()
+                .requestMatchers(EndpointRequest.toAnyEndpoint()).hasRole(ACTUATOR_ROLE)
                 .requestMatchers("/.well-known/**").permitAll()
                 .anyRequest().authenticated()
-            );
+            )
+            // User từ spring.security.user.* (ACTUATOR_PASSWORD), không có thì Spring Boot sinh password ngẫu nhiên
+            .httpBasic(Customizer.withDefaults());
         
         return http.build();
     }
@@ -52,6 +62,8 @@ public class SecurityConfig {
         configuration.setAllowCredentials(true);
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        // Không cho gọi actuator cross-origin (CSRF tắt nên trang web khác không được dùng credentials của browser)
+        source.registerCorsConfiguration("/actuator/**", new CorsConfiguration());
         source.registerCorsConfiguration("/**", configuration);
         return source;
     }
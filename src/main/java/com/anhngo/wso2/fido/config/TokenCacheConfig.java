@@ -0,0 +1,50 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.token-cache")
+public class TokenCacheConfig {
+
+    /**
+     * Refresh the cached token this long before it expires
+     */
+    private Duration refreshAhead = Duration.ofSeconds(60);
+
+    /**
+     * Delay before retrying a failed background refresh while the old token is still valid
+     */
+    private Duration refreshRetryDelay = Duration.ofSeconds(5);
+
+    /**
+     * Lifetime assumed when WSO2 IS omits expires_in from the token response
+     */
+    private Duration defaultExpiresIn = Duration.ofMinutes(5);
+
+    public Duration getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public void setRefreshAhead(Duration refreshAhead) {
+        this.refreshAhead = refreshAhead;
+    }
+
+    public Duration getRefreshRetryDelay() {
+        return refreshRetryDelay;
+    }
+
+    public void setRefreshRetryDelay(Duration refreshRetryDelay) {
+        this.refreshRetryDelay = refreshRetryDelay;
+    }
+
+    public Duration getDefaultExpiresIn() {
+        return defaultExpiresIn;
+    }
+
+    public void setDefaultExpiresIn(Duration defaultExpiresIn) {
+        this.defaultExpiresIn = defaultExpiresIn;
+    }
+}
@@ -0,0 +1,77 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "gateway.warmup")
+public class WarmupConfig {
+
+    /**
+     * Run the warm-up stage before readiness flips to ACCEPTING_TRAFFIC
+     */
+    private boolean enabled = true;
+
+    /**
+     * Fetch the client_credentials token and the admin session
+     */
+    private boolean tokens = true;
+
+    /**
+     * Open pooled connections to WSO2 IS (count from wso2.http-client.pool.prewarm-connections)
+     */
+    private boolean connections = true;
+
+    /**
+     * Iterations of the JSON codec and payload builders on synthetic data, enough for C2 to compile the hot path;
+     * 0 disables this stage
+     */
+    private int jitIterations = 10000;
+
+    /**
+     * Readiness flips after this even if warm-up has not finished
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isTokens() {
+        return tokens;
+    }
+
+    public void setTokens(boolean tokens) {
+        this.tokens = tokens;
+    }
+
+    public boolean isConnections() {
+        return connections;
+    }
+
+    public void setConnections(boolean connections) {
+        this.connections = connections;
+    }
+
+    public int getJitIterations() {
+        return jitIterations;
+    }
+
+    public void setJitIterations(int jitIterations) {
+        this.jitIterations = jitIterations;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
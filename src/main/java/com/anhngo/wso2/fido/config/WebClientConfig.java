@@ -0,0 +1,63 @@
+package com.anhngo.wso2.fido.config;
+
+import com.anhngo.wso2.fido.transport.Wso2Tls;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.tcp.SslProvider;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import java.time.Duration;
+
+@Configuration
+public class WebClientConfig {
+    
+    @Bean
+    public WebClient wso2WebClient(WebClient.Builder builder, Wso2Config wso2Config, Wso2ClientConfig wso2ClientConfig,
+                                   DeadlineConfig deadlineConfig, Wso2Tls tls) throws Exception {
+        // Trust store, protocols và session cache giống RestTemplate transport (wso2.http-client.tls)
+        SslContext sslContext = SslContextBuilder.forClient()
+            // Trust-all chỉ cho dev: dùng InsecureTrustManagerFactory của Netty, chỉ trong WebClient
+            .trustManager(tls.isTrustAll() ? InsecureTrustManagerFactory.INSTANCE : tls.trustManagerFactory())
+            .protocols(tls.protocols())
+            .sessionCacheSize(tls.sessionCacheSize())
+            .sessionTimeout(tls.sessionTimeoutSeconds())
+            .build();
+        
+        // Non-blocking connection pool: nhiều request đang chờ WSO2 IS không cần giữ thread
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("wso2")
+            .maxConnections(wso2ClientConfig.getReactiveMaxConnections())
+            .pendingAcquireTimeout(Duration.ofMillis(5000))
+            .build();
+        
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+            // Read timeout cố định; deadline theo request được áp trong Wso2CallExecutor.executeAsync
+            .responseTimeout(deadlineConfig.getDefaultReadTimeout())
+            .secure(ssl -> {
+                SslProvider.Builder provider = ssl.sslContext(sslContext);
+                if (!tls.verifyHostname()) {
+                    provider.handlerConfigurator(handler -> {
+                        // Tương đương NoopHostnameVerifier
+                        SSLEngine engine = handler.engine();
+                        SSLParameters parameters = engine.getSSLParameters();
+                        parameters.setEndpointIdentificationAlgorithm(null);
+                        engine.setSSLParameters(parameters);
+                    });
+                }
+            });
+        
+        return builder
+            .baseUrl(wso2Config.getBaseUrl())
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .build();
+    }
+}
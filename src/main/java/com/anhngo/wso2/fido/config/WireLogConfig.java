@@ -0,0 +1,80 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.wire-log")
+public class WireLogConfig {
+
+    /**
+     * Log WSO2 IS request/response payloads to the wso2.wire logger; can be toggled at runtime via /actuator/wirelog
+     */
+    private boolean enabled = false;
+
+    /**
+     * Fraction of inbound flows (0.0 - 1.0) whose WSO2 IS traffic is logged while enabled
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * Bodies longer than this are truncated in the wire log
+     */
+    private int maxBodyLength = 4096;
+
+    /**
+     * JSON/form fields whose values are replaced with *** before logging
+     */
+    private List<String> redactedFields = new ArrayList<>(List.of(
+        "access_token", "refresh_token", "id_token", "token", "code", "client_secret",
+        "password", "tokenResponse", "credential", "sessionDataKey"));
+
+    /**
+     * Headers whose values are replaced with *** before logging
+     */
+    private List<String> redactedHeaders = new ArrayList<>(List.of(
+        "Authorization", "Cookie", "Set-Cookie"));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getMaxBodyLength() {
+        return maxBodyLength;
+    }
+
+    public void setMaxBodyLength(int maxBodyLength) {
+        this.maxBodyLength = maxBodyLength;
+    }
+
+    public List<String> getRedactedFields() {
+        return redactedFields;
+    }
+
+    public void setRedactedFields(List<String> redactedFields) {
+        this.redactedFields = redactedFields;
+    }
+
+    public List<String> getRedactedHeaders() {
+        return redactedHeaders;
+    }
+
+    public void setRedactedHeaders(List<String> redactedHeaders) {
+        this.redactedHeaders = redactedHeaders;
+    }
+}
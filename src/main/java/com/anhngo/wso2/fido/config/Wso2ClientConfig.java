@@ -0,0 +1,63 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.client")
+public class Wso2ClientConfig {
+
+    /**
+     * Serve /fido and /native-auth through the non-blocking WebClient instead of RestTemplate.
+     * Selects the controllers at startup: Mono handlers when true, synchronous handlers without async dispatch when false
+     */
+    private boolean reactive = false;
+
+    /**
+     * Maximum connections in the reactor-netty pool used by the reactive client
+     */
+    private int reactiveMaxConnections = 500;
+
+    /**
+     * Decode and log outgoing WebAuthn payloads (passkey verify tokenResponse) before sending; debugging aid only
+     */
+    private boolean diagnostics = false;
+
+    /**
+     * Stream WSO2 IS bodies that are returned unchanged (authentication options, register, passkey challenge/verify)
+     * straight to the servlet response instead of buffering them; applies to the RestTemplate path only
+     */
+    private boolean passthrough = false;
+
+    public boolean isReactive() {
+        return reactive;
+    }
+
+    public void setReactive(boolean reactive) {
+        this.reactive = reactive;
+    }
+
+    public int getReactiveMaxConnections() {
+        return reactiveMaxConnections;
+    }
+
+    public void setReactiveMaxConnections(int reactiveMaxConnections) {
+        this.reactiveMaxConnections = reactiveMaxConnections;
+    }
+
+    public boolean isDiagnostics() {
+        return diagnostics;
+    }
+
+    public void setDiagnostics(boolean diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    public boolean isPassthrough() {
+        return passthrough;
+    }
+
+    public void setPassthrough(boolean passthrough) {
+        this.passthrough = passthrough;
+    }
+}
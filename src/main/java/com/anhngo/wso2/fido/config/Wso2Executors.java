@@ -0,0 +1,80 @@
+package com.anhngo.wso2.fido.config;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors cho outbound WSO2 calls và các background task (token refresh, ...).
+ * Khi spring.threads.virtual.enabled=true, Tomcat request handling (Spring Boot) và các executor này
+ * đều chạy trên virtual threads; ngược lại dùng platform thread pool có giới hạn.
+ * Không đăng ký như Executor bean để không thay thế applicationTaskExecutor của Spring Boot.
+ */
+@Component
+public class Wso2Executors {
+
+    private static final Logger logger = LoggerFactory.getLogger(Wso2Executors.class);
+
+    private final boolean virtualThreads;
+    private final ExecutorService outbound;
+    private final ScheduledExecutorService scheduler;
+
+    public Wso2Executors(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        if (virtualThreads) {
+            logger.info("Using virtual threads for outbound WSO2 calls and scheduled tasks");
+            this.outbound = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("wso2-call-", 0).factory());
+        } else {
+            // ThreadPoolExecutor chỉ tạo thread vượt core khi queue đầy: core = max để hedge/HTTP/2 call
+            // không xếp hàng sau vài call đang chạy; thread rảnh 60s bị thu hồi nhờ allowCoreThreadTimeOut
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                64, 64, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1000),
+                Thread.ofPlatform().name("wso2-call-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+            );
+            executor.allowCoreThreadTimeOut(true);
+            this.outbound = executor;
+        }
+
+        // Scheduler chỉ hẹn giờ; task nặng (HTTP) nên được chuyển sang outbound()
+        ThreadFactory schedulerThreads = virtualThreads
+            ? Thread.ofVirtual().name("wso2-scheduler-", 0).factory()
+            : Thread.ofPlatform().name("wso2-scheduler-", 0).daemon(true).factory();
+        this.scheduler = Executors.newScheduledThreadPool(1, schedulerThreads);
+    }
+
+    /**
+     * Executor cho các WSO2 call chạy ngoài request thread
+     */
+    public ExecutorService outbound() {
+        return outbound;
+    }
+
+    /**
+     * Scheduler cho các task định kỳ (refresh-ahead token, ...)
+     */
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        outbound.shutdownNow();
+    }
+}
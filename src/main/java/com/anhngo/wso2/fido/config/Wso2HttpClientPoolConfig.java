@@ -0,0 +1,169 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.http-client.pool")
+public class Wso2HttpClientPoolConfig {
+
+    /**
+     * Maximum connections across all routes (classic transport)
+     */
+    private int maxTotal = 100;
+
+    /**
+     * Maximum connections per route for hosts without an explicit limit
+     */
+    private int defaultMaxPerRoute = 20;
+
+    /**
+     * Maximum connections to the WSO2 IS host (wso2.is.base-url)
+     */
+    private int wso2MaxPerRoute = 50;
+
+    /**
+     * Explicit per-route limits for other hosts, keyed by origin (https://host:port)
+     */
+    private Map<String, Integer> maxPerRoute = new LinkedHashMap<>();
+
+    /**
+     * TCP/TLS connect timeout
+     */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Time to wait for a connection from the pool before failing
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Connections are closed after this age even when healthy, so DNS and load-balancer changes are picked up
+     */
+    private Duration timeToLive = Duration.ofMinutes(5);
+
+    /**
+     * Connections idle longer than this are checked for staleness before being leased
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    /**
+     * Idle connections older than this are closed by the background evictor
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Keep-alive used when WSO2 IS sends no Keep-Alive header; also caps the value it does send
+     */
+    private Duration keepAlive = Duration.ofSeconds(20);
+
+    /**
+     * Send Accept-Encoding and transparently decompress gzip/deflate responses
+     */
+    private boolean compression = true;
+
+    /**
+     * Connections (including the TLS handshake) opened to the WSO2 IS host at startup; 0 disables pre-warming
+     */
+    private int prewarmConnections = 10;
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getDefaultMaxPerRoute() {
+        return defaultMaxPerRoute;
+    }
+
+    public void setDefaultMaxPerRoute(int defaultMaxPerRoute) {
+        this.defaultMaxPerRoute = defaultMaxPerRoute;
+    }
+
+    public int getWso2MaxPerRoute() {
+        return wso2MaxPerRoute;
+    }
+
+    public void setWso2MaxPerRoute(int wso2MaxPerRoute) {
+        this.wso2MaxPerRoute = wso2MaxPerRoute;
+    }
+
+    public Map<String, Integer> getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(Map<String, Integer> maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public Duration getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public int getPrewarmConnections() {
+        return prewarmConnections;
+    }
+
+    public void setPrewarmConnections(int prewarmConnections) {
+        this.prewarmConnections = prewarmConnections;
+    }
+}
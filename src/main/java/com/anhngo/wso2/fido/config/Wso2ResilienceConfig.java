@@ -0,0 +1,186 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.resilience")
+public class Wso2ResilienceConfig {
+
+    /**
+     * Guard WSO2 IS calls with a circuit breaker and a concurrency bulkhead per operation class
+     */
+    private boolean enabled = true;
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Bulkhead bulkhead = new Bulkhead();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public void setBulkhead(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    public static class CircuitBreaker {
+
+        /**
+         * Percentage of failed calls (I/O errors and 5xx) in the sliding window that opens the breaker
+         */
+        private float failureRateThreshold = 50;
+
+        /**
+         * Calls slower than this count as slow
+         */
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(3);
+
+        /**
+         * Percentage of slow calls in the sliding window that opens the breaker
+         */
+        private float slowCallRateThreshold = 80;
+
+        /**
+         * Number of most recent calls the failure and slow-call rates are computed over
+         */
+        private int slidingWindowSize = 50;
+
+        /**
+         * Calls needed in the window before the rates are evaluated
+         */
+        private int minimumNumberOfCalls = 20;
+
+        /**
+         * How long the breaker stays open (and the Retry-After returned to clients) before probing WSO2 IS again
+         */
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+
+        /**
+         * Probe calls let through while half-open
+         */
+        private int permittedCallsInHalfOpenState = 5;
+
+        public float getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getSlowCallDurationThreshold() {
+            return slowCallDurationThreshold;
+        }
+
+        public void setSlowCallDurationThreshold(Duration slowCallDurationThreshold) {
+            this.slowCallDurationThreshold = slowCallDurationThreshold;
+        }
+
+        public float getSlowCallRateThreshold() {
+            return slowCallRateThreshold;
+        }
+
+        public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+        }
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumNumberOfCalls() {
+            return minimumNumberOfCalls;
+        }
+
+        public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+        }
+
+        public Duration getWaitDurationInOpenState() {
+            return waitDurationInOpenState;
+        }
+
+        public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+            this.waitDurationInOpenState = waitDurationInOpenState;
+        }
+
+        public int getPermittedCallsInHalfOpenState() {
+            return permittedCallsInHalfOpenState;
+        }
+
+        public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+            this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        }
+    }
+
+    public static class Bulkhead {
+
+        /**
+         * Concurrent WSO2 IS calls allowed per operation class unless overridden below
+         */
+        private int maxConcurrentCalls = 50;
+
+        /**
+         * Per-class limits keyed by class (token, fido-registration, fido-authentication, native-auth, admin)
+         */
+        private Map<String, Integer> maxConcurrentCallsPerClass = new HashMap<>();
+
+        /**
+         * How long a call waits for a free slot before being rejected; 0 rejects immediately
+         */
+        private Duration maxWaitDuration = Duration.ZERO;
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public Map<String, Integer> getMaxConcurrentCallsPerClass() {
+            return maxConcurrentCallsPerClass;
+        }
+
+        public void setMaxConcurrentCallsPerClass(Map<String, Integer> maxConcurrentCallsPerClass) {
+            this.maxConcurrentCallsPerClass = maxConcurrentCallsPerClass;
+        }
+
+        public Duration getMaxWaitDuration() {
+            return maxWaitDuration;
+        }
+
+        public void setMaxWaitDuration(Duration maxWaitDuration) {
+            this.maxWaitDuration = maxWaitDuration;
+        }
+
+        public int maxConcurrentCalls(String operationClass) {
+            return maxConcurrentCallsPerClass.getOrDefault(operationClass, maxConcurrentCalls);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.retry")
+public class Wso2RetryConfig {
+
+    /**
+     * Retry idempotent WSO2 IS calls that failed with an I/O error or 502/503/504
+     */
+    private boolean enabled = true;
+
+    /**
+     * Operations (metric tag values) that are safe to retry
+     */
+    private List<String> operations = new ArrayList<>(List.of(
+        "token.introspect", "jwks", "token.admin-login", "token.client-credentials"));
+
+    /**
+     * Total attempts per call, including the first one
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Lower bound of the decorrelated-jitter backoff
+     */
+    private Duration baseDelay = Duration.ofMillis(50);
+
+    /**
+     * Upper bound of the decorrelated-jitter backoff
+     */
+    private Duration maxDelay = Duration.ofSeconds(1);
+
+    /**
+     * Retries and hedges allowed per original call, per operation class (0.1 = at most 10% extra load)
+     */
+    private double budgetRatio = 0.1;
+
+    /**
+     * Retries each operation class starts with, before budget-ratio has earned any; 0 starts with an empty budget
+     */
+    private int budgetReserve = 10;
+
+    /**
+     * Most retries an operation class can accumulate from budget-ratio, bounding the retry burst after a quiet period
+     */
+    private int budgetMax = 10;
+
+    private Hedge hedge = new Hedge();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<String> operations) {
+        this.operations = operations;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getBaseDelay() {
+        return baseDelay;
+    }
+
+    public void setBaseDelay(Duration baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getBudgetReserve() {
+        return budgetReserve;
+    }
+
+    public void setBudgetReserve(int budgetReserve) {
+        this.budgetReserve = budgetReserve;
+    }
+
+    public int getBudgetMax() {
+        return budgetMax;
+    }
+
+    public void setBudgetMax(int budgetMax) {
+        this.budgetMax = budgetMax;
+    }
+
+    public Hedge getHedge() {
+        return hedge;
+    }
+
+    public void setHedge(Hedge hedge) {
+        this.hedge = hedge;
+    }
+
+    public static class Hedge {
+
+        /**
+         * Send a second request when the first has not answered within the observed latency percentile
+         */
+        private boolean enabled = false;
+
+        /**
+         * Operations (metric tag values) that may be hedged
+         */
+        private List<String> operations = new ArrayList<>(List.of("fido.authentication-options"));
+
+        /**
+         * Latency percentile the hedge delay is derived from
+         */
+        private double percentile = 0.95;
+
+        /**
+         * Hedge delay used until enough latency samples exist
+         */
+        private Duration initialDelay = Duration.ofMillis(300);
+
+        /**
+         * The hedge delay never drops below this
+         */
+        private Duration minDelay = Duration.ofMillis(50);
+
+        /**
+         * Samples needed before the percentile replaces the initial delay
+         */
+        private int minSamples = 50;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getOperations() {
+            return operations;
+        }
+
+        public void setOperations(List<String> operations) {
+            this.operations = operations;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+    }
+}
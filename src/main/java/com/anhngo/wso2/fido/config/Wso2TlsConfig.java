@@ -0,0 +1,112 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.http-client.tls")
+public class Wso2TlsConfig {
+
+    /**
+     * Trust every server certificate and skip hostname verification (development only)
+     */
+    private boolean trustAll = false;
+
+    /**
+     * Trust store with the WSO2 IS CA (e.g. classpath:ssl/wso2-truststore.p12); empty uses the JDK default cacerts
+     */
+    private Resource trustStore;
+
+    private String trustStorePassword;
+
+    private String trustStoreType = "PKCS12";
+
+    /**
+     * Verify that the server certificate matches the WSO2 IS host name
+     */
+    private boolean verifyHostname = true;
+
+    /**
+     * Enabled protocols, in order of preference
+     */
+    private List<String> protocols = new ArrayList<>(List.of("TLSv1.3", "TLSv1.2"));
+
+    /**
+     * Client TLS sessions kept for resumption (abbreviated handshake on reconnect)
+     */
+    private int sessionCacheSize = 200;
+
+    /**
+     * How long a cached TLS session may be resumed
+     */
+    private Duration sessionTimeout = Duration.ofHours(1);
+
+    public boolean isTrustAll() {
+        return trustAll;
+    }
+
+    public void setTrustAll(boolean trustAll) {
+        this.trustAll = trustAll;
+    }
+
+    public Resource getTrustStore() {
+        return trustStore;
+    }
+
+    public void setTrustStore(Resource trustStore) {
+        this.trustStore = trustStore;
+    }
+
+    public String getTrustStorePassword() {
+        return trustStorePassword;
+    }
+
+    public void setTrustStorePassword(String trustStorePassword) {
+        this.trustStorePassword = trustStorePassword;
+    }
+
+    public String getTrustStoreType() {
+        return trustStoreType;
+    }
+
+    public void setTrustStoreType(String trustStoreType) {
+        this.trustStoreType = trustStoreType;
+    }
+
+    public boolean isVerifyHostname() {
+        return verifyHostname;
+    }
+
+    public void setVerifyHostname(boolean verifyHostname) {
+        this.verifyHostname = verifyHostname;
+    }
+
+    public List<String> getProtocols() {
+        return protocols;
+    }
+
+    public void setProtocols(List<String> protocols) {
+        this.protocols = protocols;
+    }
+
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public void setSessionCacheSize(int sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    public Duration getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(Duration sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+}
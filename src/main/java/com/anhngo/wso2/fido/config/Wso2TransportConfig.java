@@ -0,0 +1,22 @@
+package com.anhngo.wso2.fido.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "wso2.transport")
+public class Wso2TransportConfig {
+
+    /**
+     * HTTP transport to WSO2 IS: classic (HttpClient5 HTTP/1.1 connection pool) or http2 (JDK HttpClient, multiplexed)
+     */
+    private String type = "classic";
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
@@ -0,0 +1,68 @@
+package com.anhngo.wso2.fido.controller;
+
+import com.anhngo.wso2.fido.dto.ApiResponse;
+import com.anhngo.wso2.fido.service.Wso2Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Health và OAuth2 callback của /fido, dùng chung cho FidoController và ReactiveFidoController
+ */
+@RestController
+@RequestMapping("/fido")
+@CrossOrigin(origins = "*")
+public class FidoCallbackController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FidoCallbackController.class);
+    
+    private final Wso2Service wso2Service;
+    
+    public FidoCallbackController(Wso2Service wso2Service) {
+        this.wso2Service = wso2Service;
+    }
+    
+    @GetMapping("/health")
+    public ResponseEntity<ApiResponse<String>> health() {
+        return ResponseEntity.ok(ApiResponse.success("FIDO service is running"));
+    }
+    
+    @GetMapping("/oauth2/code/wso2")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> oauth2Callback(
+            @RequestParam("code") String code,
+            @RequestParam("state") String state,
+            @RequestParam(value = "error", required = false) String error) {
+        
+        logger.info("Received OAuth2 callback (code present: {}, state: {}, error: {})", code != null, state, error);
+        
+        if (error != null) {
+            logger.error("OAuth2 error: {}", error);
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error("OAuth2 authentication failed: " + error));
+        }
+        
+        try {
+            // Exchange authorization code for access token
+            Map<String, Object> tokenData = wso2Service.exchangeCodeForToken(code);
+            
+            logger.info("Successfully exchanged code for token");
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "OAuth2 authentication successful");
+            response.put("token_data", tokenData);
+            response.put("state", state);
+            
+            return ResponseEntity.ok(ApiResponse.success("OAuth2 authentication successful", response));
+            
+        } catch (Exception e) {
+            logger.error("Error exchanging code for token", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error("Failed to complete OAuth2 authentication: " + e.getMessage()));
+        }
+    }
+}
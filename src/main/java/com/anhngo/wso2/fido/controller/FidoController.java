@@ -1,20 +1,24 @@
 package com.anhngo.wso2.fido.controller;
 
 import com.anhngo.wso2.fido.dto.*;
+import com.anhngo.wso2.fido.exception.Wso2UnavailableException;
 import com.anhngo.wso2.fido.service.FidoService;
-import com.anhngo.wso2.fido.service.Wso2Service;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.anhngo.wso2.fido.service.Wso2Passthrough;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Các endpoint /fido ở mode mặc định (wso2.client.reactive=false): handler gọi RestTemplate path trên request thread
+ * và trả kết quả trực tiếp, không qua servlet async dispatch. Mode reactive dùng ReactiveFidoController
+ */
 @RestController
+@ConditionalOnProperty(prefix = "wso2.client", name = "reactive", havingValue = "false", matchIfMissing = true)
 @RequestMapping("/fido")
 @CrossOrigin(origins = "*")
 public class FidoController {
@@ -22,15 +26,13 @@ public class FidoController {
     private static final Logger logger = LoggerFactory.getLogger(FidoController.class);
     
     private final FidoService fidoService;
-    private final Wso2Service wso2Service;
     
-    public FidoController(FidoService fidoService, Wso2Service wso2Service) {
+    public FidoController(FidoService fidoService) {
         this.fidoService = fidoService;
-        this.wso2Service = wso2Service;
     }
     
     @PostMapping("/registration-options")
-    public ResponseEntity<JsonNode> getRegistrationOptions(
+    public ResponseEntity<RawJson> getRegistrationOptions(
             @Valid @RequestBody FidoRegistrationOptionsRequest request,
             @RequestHeader(value = "Authorization", required = false) String authorization,
             @RequestHeader(value = "Content-Type", required = false) String contentType) {
@@ -39,42 +41,52 @@ public class FidoController {
         logger.info("Request headers - Authorization: {}", authorization != null ? "Present" : "Not present");
         logger.info("Request headers - Content-Type: {}", contentType);
         
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO registration options");
+        }
+        
         try {
-            // Extract user access token from Authorization header
-            String userAccessToken = null;
-            if (authorization != null && authorization.startsWith("Bearer ")) {
-                userAccessToken = authorization.substring(7);
-                logger.info("Using user access token for FIDO registration options");
+            return ResponseEntity.ok(fidoService.getRegistrationOptions(request, userAccessToken));
+        } catch (RuntimeException error) {
+            if (Wso2UnavailableException.isCause(error)) {
+                throw error;
             }
-            
-            JsonNode options = fidoService.getRegistrationOptions(request, userAccessToken);
-            return ResponseEntity.ok(options);
-        } catch (Exception error) {
             logger.error("Error getting registration options", error);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
     
     @PostMapping("/register")
-    public ResponseEntity<ApiResponse<JsonNode>> registerFidoCredential(
+    public ResponseEntity<ApiResponse<RawJson>> registerFidoCredential(
             @Valid @RequestBody FidoRegistrationRequest request,
-            @RequestHeader(value = "Authorization", required = false) String authorization) {
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            HttpServletResponse servletResponse) {
         
         logger.info("Received FIDO registration request for user: {}", request.getUsername());
         
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO credential registration");
+        }
+        
         try {
-            // Extract user access token from Authorization header
-            String userAccessToken = null;
-            if (authorization != null && authorization.startsWith("Bearer ")) {
-                userAccessToken = authorization.substring(7);
-                logger.info("Using user access token for FIDO credential registration");
+            if (fidoService.isPassthrough()) {
+                // Body WSO2 IS được ghi thẳng vào servletResponse, trả null để Spring không ghi gì thêm
+                fidoService.registerFidoCredentialPassthrough(request, userAccessToken,
+                    Wso2Passthrough.enveloped(servletResponse, "FIDO credential registered successfully"));
+                return null;
+            }
+            RawJson result = fidoService.registerFidoCredential(request, userAccessToken);
+            return ResponseEntity.ok(ApiResponse.success("FIDO credential registered successfully", result));
+        } catch (RuntimeException error) {
+            if (Wso2UnavailableException.isCause(error)) {
+                throw error;
             }
-            
-            JsonNode result = fidoService.registerFidoCredential(request, userAccessToken);
-            return ResponseEntity.ok(
-                ApiResponse.success("FIDO credential registered successfully", result)
-            );
-        } catch (Exception error) {
             logger.error("Error registering FIDO credential", error);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Failed to register FIDO credential: " + error.getMessage()));
@@ -82,25 +94,32 @@ public class FidoController {
     }
     
     @PostMapping("/authentication-options")
-    public ResponseEntity<ApiResponse<JsonNode>> getAuthenticationOptions(
+    public ResponseEntity<ApiResponse<RawJson>> getAuthenticationOptions(
             @Valid @RequestBody FidoAuthenticationOptionsRequest request,
-            @RequestHeader(value = "Authorization", required = false) String authorization) {
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            HttpServletResponse servletResponse) {
         
         logger.info("Received authentication options request for user: {}", request.getUsername());
         
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO authentication options");
+        }
+        
         try {
-            // Extract user access token from Authorization header
-            String userAccessToken = null;
-            if (authorization != null && authorization.startsWith("Bearer ")) {
-                userAccessToken = authorization.substring(7);
-                logger.info("Using user access token for FIDO authentication options");
+            if (fidoService.isPassthrough()) {
+                fidoService.getAuthenticationOptionsPassthrough(request, userAccessToken,
+                    Wso2Passthrough.enveloped(servletResponse, "Authentication options retrieved successfully"));
+                return null;
+            }
+            RawJson options = fidoService.getAuthenticationOptions(request, userAccessToken);
+            return ResponseEntity.ok(ApiResponse.success("Authentication options retrieved successfully", options));
+        } catch (RuntimeException error) {
+            if (Wso2UnavailableException.isCause(error)) {
+                throw error;
             }
-            
-            JsonNode options = fidoService.getAuthenticationOptions(request, userAccessToken);
-            return ResponseEntity.ok(
-                ApiResponse.success("Authentication options retrieved successfully", options)
-            );
-        } catch (Exception error) {
             logger.error("Error getting authentication options", error);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Failed to get authentication options: " + error.getMessage()));
@@ -108,25 +127,26 @@ public class FidoController {
     }
     
     @PostMapping("/authenticate")
-    public ResponseEntity<ApiResponse<JsonNode>> authenticateFido(
+    public ResponseEntity<ApiResponse<RawJson>> authenticateFido(
             @Valid @RequestBody FidoAuthenticationRequest request,
             @RequestHeader(value = "Authorization", required = false) String authorization) {
         
         logger.info("Received FIDO authentication request for user: {}", request.getUsername());
         
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO authentication");
+        }
+        
         try {
-            // Extract user access token from Authorization header
-            String userAccessToken = null;
-            if (authorization != null && authorization.startsWith("Bearer ")) {
-                userAccessToken = authorization.substring(7);
-                logger.info("Using user access token for FIDO authentication");
+            RawJson result = fidoService.authenticateFido(request, userAccessToken);
+            return ResponseEntity.ok(ApiResponse.success("FIDO authentication successful", result));
+        } catch (RuntimeException error) {
+            if (Wso2UnavailableException.isCause(error)) {
+                throw error;
             }
-            
-            JsonNode result = fidoService.authenticateFido(request, userAccessToken);
-            return ResponseEntity.ok(
-                ApiResponse.success("FIDO authentication successful", result)
-            );
-        } catch (Exception error) {
             logger.error("Error authenticating with FIDO", error);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Failed to authenticate with FIDO: " + error.getMessage()));
@@ -140,63 +160,23 @@ public class FidoController {
         
         logger.info("Received FIDO deregistration request for credential: {}", credentialId);
         
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO credential deregistration");
+        }
+        
         try {
-            // Extract user access token from Authorization header
-            String userAccessToken = null;
-            if (authorization != null && authorization.startsWith("Bearer ")) {
-                userAccessToken = authorization.substring(7);
-                logger.info("Using user access token for FIDO credential deregistration");
-            }
-            
             fidoService.deregisterFidoCredential(credentialId, userAccessToken);
-            return ResponseEntity.ok(
-                ApiResponse.success("FIDO credential deregistered successfully")
-            );
-        } catch (Exception error) {
+            return ResponseEntity.ok(ApiResponse.success("FIDO credential deregistered successfully"));
+        } catch (RuntimeException error) {
+            if (Wso2UnavailableException.isCause(error)) {
+                throw error;
+            }
             logger.error("Error deregistering FIDO credential", error);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Failed to deregister FIDO credential: " + error.getMessage()));
         }
     }
-    
-    @GetMapping("/health")
-    public ResponseEntity<ApiResponse<String>> health() {
-        return ResponseEntity.ok(ApiResponse.success("FIDO service is running"));
-    }
-    
-    @GetMapping("/oauth2/code/wso2")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> oauth2Callback(
-            @RequestParam("code") String code,
-            @RequestParam("state") String state,
-            @RequestParam(value = "error", required = false) String error) {
-        
-        logger.info("Received OAuth2 callback - code: {}, state: {}, error: {}", code, state, error);
-        
-        if (error != null) {
-            logger.error("OAuth2 error: {}", error);
-            return ResponseEntity.badRequest()
-                .body(ApiResponse.error("OAuth2 authentication failed: " + error));
-        }
-        
-        try {
-            // Exchange authorization code for access token
-            Map<String, Object> tokenData = wso2Service.exchangeCodeForToken(code);
-            
-            logger.info("Successfully exchanged code for token");
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "OAuth2 authentication successful");
-            response.put("token_data", tokenData);
-            response.put("state", state);
-            
-            return ResponseEntity.ok(ApiResponse.success("OAuth2 authentication successful", response));
-            
-        } catch (Exception e) {
-            logger.error("Error exchanging code for token", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error("Failed to complete OAuth2 authentication: " + e.getMessage()));
-        }
-    }
-    
-
-} 
\ No newline at end of file
+}
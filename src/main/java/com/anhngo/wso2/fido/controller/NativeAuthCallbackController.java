@@ -2,7 +2,6 @@ package com.anhngo.wso2.fido.controller;
 
 import com.anhngo.wso2.fido.dto.ApiResponse;
 import com.anhngo.wso2.fido.service.Wso2Service;
-import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -35,7 +34,7 @@ public class NativeAuthCallbackController {
             @RequestParam(value = "error_description", required = false) String errorDescription,
             @RequestParam(value = "state", required = false) String state) {
         
-        logger.info("Received native auth callback - code: {}, error: {}, state: {}", code, error, state);
+        logger.info("Received native auth callback (code present: {}, error: {}, state: {})", code != null, error, state);
         
         if (error != null) {
             logger.error("Native auth error: {} - {}", error, errorDescription);
@@ -76,4 +75,12 @@ public class NativeAuthCallbackController {
     public ResponseEntity<ApiResponse<String>> health() {
         return ResponseEntity.ok(ApiResponse.success("Native authentication callback service is running"));
     }
+    
+    /**
+     * Health check của /native-auth, dùng chung cho NativeAuthController và ReactiveNativeAuthController
+     */
+    @GetMapping("/health")
+    public ResponseEntity<ApiResponse<String>> serviceHealth() {
+        return ResponseEntity.ok(ApiResponse.success("Native authentication service is running"));
+    }
 }
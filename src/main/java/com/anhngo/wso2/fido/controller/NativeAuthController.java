@@ -4,16 +4,25 @@ import com.anhngo.wso2.fido.dto.ApiResponse;
 import com.anhngo.wso2.fido.dto.NativeAuthChallengeRequest;
 import com.anhngo.wso2.fido.dto.NativeAuthInitRequest;
 import com.anhngo.wso2.fido.dto.NativeAuthVerifyRequest;
+import com.anhngo.wso2.fido.dto.RawJson;
+import com.anhngo.wso2.fido.exception.Wso2UnavailableException;
 import com.anhngo.wso2.fido.service.NativeAuthService;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.anhngo.wso2.fido.service.Wso2Passthrough;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+/**
+ * Các endpoint /native-auth ở mode mặc định (wso2.client.reactive=false): handler gọi RestTemplate path trên request thread
+ * và trả kết quả trực tiếp, không qua servlet async dispatch. Mode reactive dùng ReactiveNativeAuthController
+ */
 @RestController
+@ConditionalOnProperty(prefix = "wso2.client", name = "reactive", havingValue = "false", matchIfMissing = true)
 @RequestMapping("/native-auth")
 @CrossOrigin(origins = "*")
 public class NativeAuthController {
@@ -30,15 +39,23 @@ public class NativeAuthController {
      * Initialize native authentication flow
      */
     @PostMapping("/init")
-    public ResponseEntity<JsonNode> initNativeAuth(
-            @Valid @RequestBody NativeAuthInitRequest request) {
+    public ResponseEntity<RawJson> initNativeAuth(
+            @Valid @RequestBody NativeAuthInitRequest request,
+            HttpServletResponse servletResponse) {
         
         logger.info("Received native auth init request for client: {}", request.getClientId());
         
         try {
-            JsonNode result = nativeAuthService.initNativeAuth(request);
-            return ResponseEntity.ok(result);
-        } catch (Exception error) {
+            if (nativeAuthService.isPassthrough()) {
+                // Challenge response được ghi thẳng vào servletResponse, trả null để Spring không ghi gì thêm
+                nativeAuthService.initNativeAuthPassthrough(request, Wso2Passthrough.raw(servletResponse));
+                return null;
+            }
+            return ResponseEntity.ok(nativeAuthService.initNativeAuth(request));
+        } catch (RuntimeException error) {
+            if (Wso2UnavailableException.isCause(error)) {
+                throw error;
+            }
             logger.error("Error initializing native authentication flow", error);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -51,17 +68,18 @@ public class NativeAuthController {
      */
     @Deprecated
     @PostMapping("/challenge")
-    public ResponseEntity<ApiResponse<JsonNode>> getPasskeyChallenge(
+    public ResponseEntity<ApiResponse<RawJson>> getPasskeyChallenge(
             @Valid @RequestBody NativeAuthChallengeRequest request) {
         
         logger.info("Received passkey challenge request for flow: {}", request.getFlowId());
         
         try {
-            JsonNode result = nativeAuthService.getPasskeyChallenge(request);
-            return ResponseEntity.ok(
-                ApiResponse.success("Passkey challenge retrieved successfully", result)
-            );
-        } catch (Exception error) {
+            RawJson result = nativeAuthService.getPasskeyChallenge(request);
+            return ResponseEntity.ok(ApiResponse.success("Passkey challenge retrieved successfully", result));
+        } catch (RuntimeException error) {
+            if (Wso2UnavailableException.isCause(error)) {
+                throw error;
+            }
             logger.error("Error getting passkey challenge", error);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Failed to get passkey challenge: " + error.getMessage()));
@@ -72,25 +90,24 @@ public class NativeAuthController {
      * Verify passkey authentication credentials
      */
     @PostMapping("/verify")
-    public ResponseEntity<JsonNode> verifyPasskeyAuth(
-            @Valid @RequestBody NativeAuthVerifyRequest request) {
+    public ResponseEntity<RawJson> verifyPasskeyAuth(
+            @Valid @RequestBody NativeAuthVerifyRequest request,
+            HttpServletResponse servletResponse) {
         
         logger.info("Received passkey verify request for flow: {}", request.getFlowId());
         
         try {
-            JsonNode result = nativeAuthService.verifyPasskeyAuth(request);
-            return ResponseEntity.ok(result);
-        } catch (Exception error) {
+            if (nativeAuthService.isPassthrough()) {
+                nativeAuthService.verifyPasskeyAuthPassthrough(request, Wso2Passthrough.raw(servletResponse));
+                return null;
+            }
+            return ResponseEntity.ok(nativeAuthService.verifyPasskeyAuth(request));
+        } catch (RuntimeException error) {
+            if (Wso2UnavailableException.isCause(error)) {
+                throw error;
+            }
             logger.error("Error verifying passkey authentication", error);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-    
-    /**
-     * Health check endpoint
-     */
-    @GetMapping("/health")
-    public ResponseEntity<ApiResponse<String>> health() {
-        return ResponseEntity.ok(ApiResponse.success("Native authentication service is running"));
-    }
 }
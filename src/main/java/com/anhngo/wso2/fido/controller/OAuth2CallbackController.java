@@ -29,11 +29,7 @@ public class OAuth2CallbackController {
             @RequestParam(required = false) String error,
             @RequestParam(required = false) String error_description) {
         
-        logger.info("=== OAuth2 Callback Received ===");
-        logger.info("Code: {}", code);
-        logger.info("State: {}", state);
-        logger.info("Error: {}", error);
-        logger.info("Error Description: {}", error_description);
+        logger.info("OAuth2 callback received (code present: {}, error: {})", code != null, error);
 
         try {
             if (error != null) {
@@ -51,7 +47,7 @@ public class OAuth2CallbackController {
             // Exchange authorization code for tokens
             Map<String, Object> tokenResponse = oauth2Service.exchangeCodeForTokens(code);
             
-            logger.info("Token exchange successful: {}", tokenResponse);
+            logger.info("Token exchange successful");
             
             return ResponseEntity.ok(ApiResponse.success("Authentication successful", tokenResponse));
 
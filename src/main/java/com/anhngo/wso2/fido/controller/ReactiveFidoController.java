@@ -0,0 +1,157 @@
+package com.anhngo.wso2.fido.controller;
+
+import com.anhngo.wso2.fido.dto.*;
+import com.anhngo.wso2.fido.exception.Wso2UnavailableException;
+import com.anhngo.wso2.fido.service.FidoService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Các endpoint /fido khi wso2.client.reactive=true: handler trả Mono từ ReactiveWso2Client (servlet async dispatch).
+ * Mode mặc định dùng FidoController, không qua async dispatch
+ */
+@RestController
+@ConditionalOnProperty(prefix = "wso2.client", name = "reactive", havingValue = "true")
+@RequestMapping("/fido")
+@CrossOrigin(origins = "*")
+public class ReactiveFidoController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveFidoController.class);
+    
+    private final FidoService fidoService;
+    
+    public ReactiveFidoController(FidoService fidoService) {
+        this.fidoService = fidoService;
+    }
+    
+    @PostMapping("/registration-options")
+    public Mono<ResponseEntity<RawJson>> getRegistrationOptions(
+            @Valid @RequestBody FidoRegistrationOptionsRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestHeader(value = "Content-Type", required = false) String contentType) {
+        
+        logger.info("Received registration options request for user: {}", request.getUsername());
+        logger.info("Request headers - Authorization: {}", authorization != null ? "Present" : "Not present");
+        logger.info("Request headers - Content-Type: {}", contentType);
+        
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO registration options");
+        }
+        
+        return fidoService.getRegistrationOptionsAsync(request, userAccessToken)
+            .map(ResponseEntity::ok)
+            .onErrorResume(error -> !Wso2UnavailableException.isCause(error), error -> {
+                logger.error("Error getting registration options", error);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            });
+    }
+    
+    @PostMapping("/register")
+    public Mono<ResponseEntity<ApiResponse<RawJson>>> registerFidoCredential(
+            @Valid @RequestBody FidoRegistrationRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authorization) {
+        
+        logger.info("Received FIDO registration request for user: {}", request.getUsername());
+        
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO credential registration");
+        }
+        
+        return fidoService.registerFidoCredentialAsync(request, userAccessToken)
+            .map(result -> ResponseEntity.ok(
+                ApiResponse.success("FIDO credential registered successfully", result)
+            ))
+            .onErrorResume(error -> !Wso2UnavailableException.isCause(error), error -> {
+                logger.error("Error registering FIDO credential", error);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to register FIDO credential: " + error.getMessage())));
+            });
+    }
+    
+    @PostMapping("/authentication-options")
+    public Mono<ResponseEntity<ApiResponse<RawJson>>> getAuthenticationOptions(
+            @Valid @RequestBody FidoAuthenticationOptionsRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authorization) {
+        
+        logger.info("Received authentication options request for user: {}", request.getUsername());
+        
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO authentication options");
+        }
+        
+        return fidoService.getAuthenticationOptionsAsync(request, userAccessToken)
+            .map(options -> ResponseEntity.ok(
+                ApiResponse.success("Authentication options retrieved successfully", options)
+            ))
+            .onErrorResume(error -> !Wso2UnavailableException.isCause(error), error -> {
+                logger.error("Error getting authentication options", error);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to get authentication options: " + error.getMessage())));
+            });
+    }
+    
+    @PostMapping("/authenticate")
+    public Mono<ResponseEntity<ApiResponse<RawJson>>> authenticateFido(
+            @Valid @RequestBody FidoAuthenticationRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authorization) {
+        
+        logger.info("Received FIDO authentication request for user: {}", request.getUsername());
+        
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO authentication");
+        }
+        
+        return fidoService.authenticateFidoAsync(request, userAccessToken)
+            .map(result -> ResponseEntity.ok(
+                ApiResponse.success("FIDO authentication successful", result)
+            ))
+            .onErrorResume(error -> !Wso2UnavailableException.isCause(error), error -> {
+                logger.error("Error authenticating with FIDO", error);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to authenticate with FIDO: " + error.getMessage())));
+            });
+    }
+    
+    @DeleteMapping("/deregister/{credentialId}")
+    public Mono<ResponseEntity<ApiResponse<String>>> deregisterFidoCredential(
+            @PathVariable String credentialId,
+            @RequestHeader(value = "Authorization", required = false) String authorization) {
+        
+        logger.info("Received FIDO deregistration request for credential: {}", credentialId);
+        
+        // Extract user access token from Authorization header
+        String userAccessToken = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userAccessToken = authorization.substring(7);
+            logger.info("Using user access token for FIDO credential deregistration");
+        }
+        
+        return fidoService.deregisterFidoCredentialAsync(credentialId, userAccessToken)
+            .then(Mono.fromSupplier(() -> ResponseEntity.ok(
+                ApiResponse.<String>success("FIDO credential deregistered successfully")
+            )))
+            .onErrorResume(error -> !Wso2UnavailableException.isCause(error), error -> {
+                logger.error("Error deregistering FIDO credential", error);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to deregister FIDO credential: " + error.getMessage())));
+            });
+    }
+}
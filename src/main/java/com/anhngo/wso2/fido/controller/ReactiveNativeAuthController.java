@@ -0,0 +1,93 @@
+package com.anhngo.wso2.fido.controller;
+
+import com.anhngo.wso2.fido.dto.ApiResponse;
+import com.anhngo.wso2.fido.dto.NativeAuthChallengeRequest;
+import com.anhngo.wso2.fido.dto.NativeAuthInitRequest;
+import com.anhngo.wso2.fido.dto.NativeAuthVerifyRequest;
+import com.anhngo.wso2.fido.dto.RawJson;
+import com.anhngo.wso2.fido.exception.Wso2UnavailableException;
+import com.anhngo.wso2.fido.service.NativeAuthService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Các endpoint /native-auth khi wso2.client.reactive=true: handler trả Mono từ ReactiveWso2Client (servlet async dispatch).
+ * Mode mặc định dùng NativeAuthController, không qua async dispatch
+ */
+@RestController
+@ConditionalOnProperty(prefix = "wso2.client", name = "reactive", havingValue = "true")
+@RequestMapping("/native-auth")
+@CrossOrigin(origins = "*")
+public class ReactiveNativeAuthController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveNativeAuthController.class);
+    
+    private final NativeAuthService nativeAuthService;
+    
+    public ReactiveNativeAuthController(NativeAuthService nativeAuthService) {
+        this.nativeAuthService = nativeAuthService;
+    }
+    
+    /**
+     * Initialize native authentication flow
+     */
+    @PostMapping("/init")
+    public Mono<ResponseEntity<RawJson>> initNativeAuth(
+            @Valid @RequestBody NativeAuthInitRequest request) {
+        
+        logger.info("Received native auth init request for client: {}", request.getClientId());
+        
+        return nativeAuthService.initNativeAuthAsync(request)
+            .map(ResponseEntity::ok)
+            .onErrorResume(error -> !Wso2UnavailableException.isCause(error), error -> {
+                logger.error("Error initializing native authentication flow", error);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            });
+    }
+    
+    /**
+     * Get challenge for passkey authentication
+     * @deprecated This endpoint is deprecated. Challenge is now included in /init response.
+     * Use /init endpoint instead which automatically includes challenge data.
+     */
+    @Deprecated
+    @PostMapping("/challenge")
+    public Mono<ResponseEntity<ApiResponse<RawJson>>> getPasskeyChallenge(
+            @Valid @RequestBody NativeAuthChallengeRequest request) {
+        
+        logger.info("Received passkey challenge request for flow: {}", request.getFlowId());
+        
+        return nativeAuthService.getPasskeyChallengeAsync(request)
+            .map(result -> ResponseEntity.ok(
+                ApiResponse.success("Passkey challenge retrieved successfully", result)
+            ))
+            .onErrorResume(error -> !Wso2UnavailableException.isCause(error), error -> {
+                logger.error("Error getting passkey challenge", error);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to get passkey challenge: " + error.getMessage())));
+            });
+    }
+    
+    /**
+     * Verify passkey authentication credentials
+     */
+    @PostMapping("/verify")
+    public Mono<ResponseEntity<RawJson>> verifyPasskeyAuth(
+            @Valid @RequestBody NativeAuthVerifyRequest request) {
+        
+        logger.info("Received passkey verify request for flow: {}", request.getFlowId());
+        
+        return nativeAuthService.verifyPasskeyAuthAsync(request)
+            .map(ResponseEntity::ok)
+            .onErrorResume(error -> !Wso2UnavailableException.isCause(error), error -> {
+                logger.error("Error verifying passkey authentication", error);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            });
+    }
+}
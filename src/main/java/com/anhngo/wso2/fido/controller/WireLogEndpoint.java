@@ -0,0 +1,49 @@
+package com.anhngo.wso2.fido.controller;
+
+import com.anhngo.wso2.fido.service.Wso2WireLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Bật/tắt wire log WSO2 IS lúc runtime:
+ * GET /actuator/wirelog, POST /actuator/wirelog {"enabled": true, "sampleRate": 0.05}
+ */
+@Component
+@Endpoint(id = "wirelog")
+public class WireLogEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireLogEndpoint.class);
+
+    private final Wso2WireLogger wireLogger;
+
+    public WireLogEndpoint(Wso2WireLogger wireLogger) {
+        this.wireLogger = wireLogger;
+    }
+
+    @ReadOperation
+    public Map<String, Object> wireLog() {
+        return Map.of(
+            "enabled", wireLogger.isEnabled(),
+            "sampleRate", wireLogger.getSampleRate()
+        );
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Boolean enabled, @Nullable Double sampleRate) {
+        if (sampleRate != null) {
+            wireLogger.setSampleRate(sampleRate);
+        }
+        if (enabled != null) {
+            wireLogger.setEnabled(enabled);
+        }
+        logger.info("WSO2 wire log updated: enabled={}, sampleRate={}", wireLogger.isEnabled(), wireLogger.getSampleRate());
+        return wireLog();
+    }
+}
@@ -2,6 +2,9 @@ package com.anhngo.wso2.fido.controller;
 
 import com.anhngo.wso2.fido.config.Wso2Config;
 import com.anhngo.wso2.fido.dto.ApiResponse;
+import com.anhngo.wso2.fido.service.JsonCodec;
+import com.anhngo.wso2.fido.service.Wso2CallExecutor;
+import com.anhngo.wso2.fido.service.Wso2Operation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
@@ -22,10 +25,15 @@ public class Wso2ProxyController {
 
     private final RestTemplate restTemplate;
     private final Wso2Config wso2Config;
+    private final Wso2CallExecutor wso2Calls;
+    private final JsonCodec jsonCodec;
 
-    public Wso2ProxyController(RestTemplate restTemplate, Wso2Config wso2Config) {
+    public Wso2ProxyController(RestTemplate restTemplate, Wso2Config wso2Config, Wso2CallExecutor wso2Calls,
+                               JsonCodec jsonCodec) {
         this.restTemplate = restTemplate;
         this.wso2Config = wso2Config;
+        this.wso2Calls = wso2Calls;
+        this.jsonCodec = jsonCodec;
     }
 
     /**
@@ -58,16 +66,12 @@ public class Wso2ProxyController {
 
             logger.info("Making request to WSO2 IS token endpoint: {}", tokenUrl);
 
-            ResponseEntity<String> response = restTemplate.postForEntity(tokenUrl, request, String.class);
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.USER_LOGIN, tokenUrl, request,
+                () -> restTemplate.postForEntity(tokenUrl, request, String.class));
 
             if (response.getStatusCode() == HttpStatus.OK) {
                 // Parse JSON response
-                org.springframework.http.converter.json.Jackson2ObjectMapperBuilder builder = 
-                    new org.springframework.http.converter.json.Jackson2ObjectMapperBuilder();
-                com.fasterxml.jackson.databind.ObjectMapper objectMapper = builder.build();
-                
-                @SuppressWarnings("unchecked")
-                Map<String, Object> tokenData = objectMapper.readValue(response.getBody(), Map.class);
+                Map<String, Object> tokenData = jsonCodec.readMap(response.getBody());
 
                 logger.info("Successfully obtained access token for user: {}", username);
 
@@ -0,0 +1,18 @@
+package com.anhngo.wso2.fido.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Response của start-usernameless-registration, chỉ bind requestId và challenge (dùng cho debug log)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record FidoRegistrationOptionsResponse(String requestId, CreationOptions publicKeyCredentialCreationOptions) {
+
+    public String challenge() {
+        return publicKeyCredentialCreationOptions != null ? publicKeyCredentialCreationOptions.challenge() : null;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record CreationOptions(String challenge) {
+    }
+}
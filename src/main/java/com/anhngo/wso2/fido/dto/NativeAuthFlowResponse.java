@@ -0,0 +1,25 @@
+package com.anhngo.wso2.fido.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Phần response của /oauth2/authorize/ (native auth) mà gateway cần để quyết định có lấy challenge passkey hay không.
+ * Metadata, params, links... không được bind; client vẫn nhận body gốc qua RawJson.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record NativeAuthFlowResponse(String flowId, String flowStatus, NextStep nextStep) {
+
+    public List<Authenticator> authenticators() {
+        return nextStep != null && nextStep.authenticators() != null ? nextStep.authenticators() : List.of();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record NextStep(String stepType, List<Authenticator> authenticators) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Authenticator(String authenticatorId, String authenticator) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.anhngo.wso2.fido.dto;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Body JSON của WSO2 IS được chuyển nguyên văn cho client: không dựng JsonNode tree,
+ * khi serialize thì ghi thẳng chuỗi gốc (writeRawValue), kể cả các field gateway không biết tới.
+ */
+@JsonSerialize(using = RawJson.Serializer.class)
+@JsonDeserialize(using = RawJson.Deserializer.class)
+public record RawJson(String json) {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    public static RawJson of(String json) {
+        return new RawJson(json == null || json.isBlank() ? "null" : json);
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+
+    public static class Serializer extends StdSerializer<RawJson> {
+
+        public Serializer() {
+            super(RawJson.class);
+        }
+
+        @Override
+        public void serialize(RawJson value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeRawValue(value.json());
+        }
+    }
+
+    /**
+     * Copy nguyên subtree hiện tại của parser ra chuỗi, không qua JsonNode
+     */
+    public static class Deserializer extends StdDeserializer<RawJson> {
+
+        public Deserializer() {
+            super(RawJson.class);
+        }
+
+        @Override
+        public RawJson deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            StringWriter out = new StringWriter();
+            try (JsonGenerator gen = FACTORY.createGenerator(out)) {
+                gen.copyCurrentStructure(p);
+            }
+            return new RawJson(out.toString());
+        }
+    }
+}
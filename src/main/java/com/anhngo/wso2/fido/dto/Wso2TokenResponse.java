@@ -0,0 +1,17 @@
+package com.anhngo.wso2.fido.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Response của /oauth2/token. Chỉ bind các field gateway dùng, field khác được parser bỏ qua (skipChildren)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record Wso2TokenResponse(
+    @JsonProperty("access_token") String accessToken,
+    @JsonProperty("refresh_token") String refreshToken,
+    @JsonProperty("id_token") String idToken,
+    @JsonProperty("token_type") String tokenType,
+    @JsonProperty("expires_in") Long expiresIn,
+    @JsonProperty("scope") String scope) {
+}
@@ -0,0 +1,12 @@
+package com.anhngo.wso2.fido.exception;
+
+/**
+ * Request inbound đã hết deadline trước hoặc trong khi gọi WSO2 IS.
+ * Là một dạng Wso2UnavailableException nên controller không bọc thành 500; GlobalExceptionHandler trả 504
+ */
+public class DeadlineExceededException extends Wso2UnavailableException {
+
+    public DeadlineExceededException(String message, String operationClass, Throwable cause) {
+        super(message, operationClass, null, cause);
+    }
+}
@@ -3,6 +3,7 @@ package com.anhngo.wso2.fido.exception;
 import com.anhngo.wso2.fido.dto.ApiResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -49,8 +50,30 @@ public class GlobalExceptionHandler {
             .body(ApiResponse.error("Unsupported media type. Please use application/json"));
     }
     
+    @ExceptionHandler(Wso2UnavailableException.class)
+    public ResponseEntity<ApiResponse<String>> handleWso2UnavailableException(Wso2UnavailableException ex) {
+        logger.warn("WSO2 IS call rejected ({}): {}", ex.getOperationClass(), ex.getMessage());
+        
+        if (ex instanceof DeadlineExceededException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(ApiResponse.error("Request deadline exceeded: " + ex.getMessage()));
+        }
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE);
+        if (ex.getRetryAfter() != null) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())));
+        }
+        return response.body(ApiResponse.error("WSO2 IS is temporarily unavailable: " + ex.getMessage()));
+    }
+    
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ApiResponse<String>> handleRuntimeException(RuntimeException ex) {
+        // Service bọc lỗi trong RuntimeException("Failed to ..."), call bị breaker/bulkhead từ chối vẫn trả 503 (504 nếu hết deadline)
+        Wso2UnavailableException unavailable = Wso2UnavailableException.find(ex);
+        if (unavailable != null) {
+            return handleWso2UnavailableException(unavailable);
+        }
+        
         logger.error("Runtime exception occurred", ex);
         
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,15 @@
+package com.anhngo.wso2.fido.exception;
+
+/**
+ * JWT bị từ chối khi validate cục bộ (sai chữ ký, hết hạn, issuer không khớp, ...)
+ */
+public class JwtValidationException extends RuntimeException {
+
+    public JwtValidationException(String message) {
+        super(message);
+    }
+
+    public JwtValidationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
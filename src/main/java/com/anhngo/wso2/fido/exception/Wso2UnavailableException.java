@@ -0,0 +1,48 @@
+package com.anhngo.wso2.fido.exception;
+
+import java.time.Duration;
+
+/**
+ * Call tới WSO2 IS bị từ chối ngay tại gateway: circuit breaker của nhóm operation đang mở hoặc bulkhead đã đầy.
+ * GlobalExceptionHandler trả 503 kèm Retry-After
+ */
+public class Wso2UnavailableException extends RuntimeException {
+
+    private final String operationClass;
+    private final Duration retryAfter;
+
+    public Wso2UnavailableException(String message, String operationClass, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.operationClass = operationClass;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getOperationClass() {
+        return operationClass;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Tìm Wso2UnavailableException trong chuỗi cause (service bọc lỗi trong RuntimeException("Failed to ..."))
+     */
+    public static Wso2UnavailableException find(Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof Wso2UnavailableException unavailable) {
+                return unavailable;
+            }
+            if (current.getCause() == current) {
+                return null;
+            }
+            current = current.getCause();
+        }
+        return null;
+    }
+
+    public static boolean isCause(Throwable error) {
+        return find(error) != null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.anhngo.wso2.fido.filter;
+
+import com.anhngo.wso2.fido.dto.ApiResponse;
+import com.anhngo.wso2.fido.service.JsonCodec;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Áp GradientConcurrencyLimiter cho /fido và /native-auth: request vượt limit nhận 503 + Retry-After ngay.
+ * Ở mode reactive (wso2.client.reactive=true) controller trả Mono nên request kết thúc ở async dispatch;
+ * khi đó slot được trả qua AsyncListener, còn mode mặc định trả slot ngay khi filter chain kết thúc.
+ */
+public class AdaptiveConcurrencyFilter extends OncePerRequestFilter {
+
+    private final GradientConcurrencyLimiter limiter;
+    private final Duration retryAfter;
+    private final byte[] rejectedBody;
+
+    public AdaptiveConcurrencyFilter(GradientConcurrencyLimiter limiter, Duration retryAfter, JsonCodec jsonCodec)
+            throws IOException {
+        this.limiter = limiter;
+        this.retryAfter = retryAfter;
+        this.rejectedBody = jsonCodec.writeBytes(ApiResponse.error("Server is busy, please retry later"));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        GradientConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            reject(response);
+            return;
+        }
+
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new PermitListener(permit, response));
+                async = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            permit.dropped();
+            throw e;
+        } finally {
+            if (!async) {
+                complete(permit, response);
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(rejectedBody.length);
+        response.getOutputStream().write(rejectedBody);
+    }
+
+    private static void complete(GradientConcurrencyLimiter.Permit permit, HttpServletResponse response) {
+        int status = response.getStatus();
+        if (status == HttpServletResponse.SC_SERVICE_UNAVAILABLE || status == HttpServletResponse.SC_GATEWAY_TIMEOUT) {
+            permit.dropped();
+        } else {
+            permit.release();
+        }
+    }
+
+    private record PermitListener(GradientConcurrencyLimiter.Permit permit, HttpServletResponse response)
+            implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete(permit, response);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.dropped();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.dropped();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.anhngo.wso2.fido.filter;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Thời hạn (deadline) của request inbound hiện tại, do DeadlineFilter đặt vào ThreadLocal.
+ * Mỗi call WSO2 IS lấy thời gian còn lại làm timeout; call phụ (ví dụ lấy challenge sau init) bị bỏ qua khi sắp hết.
+ * Ngoài request inbound (background refresh, pool) không có deadline và client dùng timeout mặc định.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /**
+     * Deadline của request đang xử lý trên thread này, null nếu không có
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Mang deadline của thread hiện tại sang task chạy trên thread khác (hedged call trên outbound executor)
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        Deadline deadline = current();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            Deadline previous = current();
+            set(deadline);
+            try {
+                return task.get();
+            } finally {
+                if (previous != null) {
+                    set(previous);
+                } else {
+                    clear();
+                }
+            }
+        };
+    }
+
+    static void set(Deadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(deadlineNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Còn ít nhất reserve để bắt đầu thêm một call
+     */
+    public boolean hasAtLeast(Duration reserve) {
+        return deadlineNanos - System.nanoTime() >= reserve.toNanos();
+    }
+}
@@ -0,0 +1,35 @@
+package com.anhngo.wso2.fido.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Gán deadline (gateway.deadline.budget) cho mỗi request inbound lúc request tới.
+ * Mode mặc định gọi RestTemplate đồng bộ trên request thread nên ThreadLocal là đủ; mode reactive
+ * (wso2.client.reactive=true) chuyển deadline vào Reactor context qua Wso2CallExecutor.withDeadline.
+ */
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    private final Duration budget;
+
+    public DeadlineFilter(Duration budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Deadline.set(Deadline.after(budget));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Deadline.clear();
+        }
+    }
+}
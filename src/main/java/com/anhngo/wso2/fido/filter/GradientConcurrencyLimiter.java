@@ -0,0 +1,171 @@
+package com.anhngo.wso2.fido.filter;
+
+import com.anhngo.wso2.fido.config.ConcurrencyLimitConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit tự điều chỉnh theo latency (thuật toán gradient, tương tự Netflix Gradient2).
+ * Mỗi sample window so sánh latency trung bình của window (short RTT) với latency dài hạn (long RTT):
+ * khi short RTT vượt long RTT * rtt-tolerance thì limit giảm theo tỉ lệ, ngược lại limit tăng thêm sqrt(limit).
+ * Request vượt limit bị từ chối ngay thay vì xếp hàng chờ WSO2 IS.
+ */
+public class GradientConcurrencyLimiter {
+
+    private final ConcurrencyLimitConfig config;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double estimatedLimit;
+
+    // Window state; ReentrantLock thay vì synchronized để không pin virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private long windowStart;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+    private double longRtt;
+    private int longSamples;
+
+    private final Counter rejected;
+
+    public GradientConcurrencyLimiter(ConcurrencyLimitConfig config, MeterRegistry meterRegistry) {
+        this(config, meterRegistry, System::nanoTime);
+    }
+
+    public GradientConcurrencyLimiter(ConcurrencyLimitConfig config, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.estimatedLimit = config.getInitialLimit();
+        this.windowStart = nanoClock.getAsLong();
+
+        Gauge.builder("gateway.concurrency.limit", this, GradientConcurrencyLimiter::getLimit)
+            .description("Current adaptive concurrency limit for /fido and /native-auth")
+            .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.inflight", inFlight, AtomicInteger::get)
+            .description("Requests currently in flight under the concurrency limit")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("gateway.concurrency.rejected")
+            .description("Requests rejected because the concurrency limit was reached")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Lấy một slot; null nếu đã đạt limit (request phải bị từ chối)
+     */
+    public Permit tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(nanoClock.getAsLong(), current + 1);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        lock.lock();
+        try {
+            windowRttSum += rttNanos;
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+            windowDropped |= dropped;
+
+            long now = nanoClock.getAsLong();
+            if (now - windowStart < config.getSampleWindow().toNanos() || windowSamples < config.getMinWindowSamples()) {
+                return;
+            }
+            updateLimit((double) windowRttSum / windowSamples, windowMaxInFlight, windowDropped);
+
+            windowStart = now;
+            windowRttSum = 0;
+            windowSamples = 0;
+            windowMaxInFlight = 0;
+            windowDropped = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateLimit(double shortRtt, int maxInFlight, boolean dropped) {
+        if (longSamples < config.getLongWindow()) {
+            // Warm-up: trung bình cộng cho tới khi đủ long-window
+            longSamples++;
+            longRtt += (shortRtt - longRtt) / longSamples;
+        } else {
+            double factor = 2.0 / (config.getLongWindow() + 1);
+            longRtt = longRtt * (1 - factor) + shortRtt * factor;
+        }
+        // Latency đã giảm hẳn (WSO2 IS hồi phục): kéo long RTT xuống nhanh hơn để limit tăng lại
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double limit = estimatedLimit;
+        double newLimit;
+        if (dropped) {
+            newLimit = limit * config.getBackoffRatio();
+        } else if (maxInFlight < limit / 2) {
+            // Tải thấp: latency không nói gì về capacity, giữ nguyên limit
+            return;
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, config.getRttTolerance() * longRtt / shortRtt));
+            newLimit = limit * gradient + Math.sqrt(limit);
+            newLimit = limit * (1 - config.getSmoothing()) + newLimit * config.getSmoothing();
+        }
+        estimatedLimit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), newLimit));
+    }
+
+    /**
+     * Slot của một request; release đúng một lần khi request kết thúc (kể cả async)
+     */
+    public final class Permit {
+
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void release() {
+            complete(false);
+        }
+
+        /**
+         * Request bị timeout hoặc upstream quá tải (503/504): giảm limit theo backoff-ratio
+         */
+        public void dropped() {
+            complete(true);
+        }
+
+        private void complete(boolean dropped) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            inFlight.decrementAndGet();
+            onSample(nanoClock.getAsLong() - startNanos, inFlightAtStart, dropped);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.AdminSessionConfig;
+import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.dto.Wso2TokenResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Quản lý admin session (password grant) với WSO2 IS.
+ * Chỉ một request login được gửi tại một thời điểm, token hết hạn theo expires_in,
+ * và khi WSO2 IS lỗi thì back-off theo hàm mũ thay vì login liên tục.
+ */
+@Service
+public class AdminSessionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminSessionManager.class);
+
+    private final RestTemplate restTemplate;
+    private final Wso2Config wso2Config;
+    private final JsonCodec jsonCodec;
+    private final AdminSessionConfig adminSessionConfig;
+    private final Wso2CallExecutor wso2Calls;
+    private final LongSupplier clock;
+
+    private final AtomicReference<AdminSession> current = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<AdminSession>> inFlight = new AtomicReference<>();
+
+    private volatile int consecutiveFailures;
+    private volatile long backoffUntil;
+
+    @Autowired
+    public AdminSessionManager(RestTemplate restTemplate, Wso2Config wso2Config, JsonCodec jsonCodec,
+                               AdminSessionConfig adminSessionConfig, Wso2CallExecutor wso2Calls) {
+        this(restTemplate, wso2Config, jsonCodec, adminSessionConfig, wso2Calls, System::currentTimeMillis);
+    }
+
+    public AdminSessionManager(RestTemplate restTemplate, Wso2Config wso2Config, JsonCodec jsonCodec,
+                               AdminSessionConfig adminSessionConfig, Wso2CallExecutor wso2Calls, LongSupplier clock) {
+        this.restTemplate = restTemplate;
+        this.wso2Config = wso2Config;
+        this.jsonCodec = jsonCodec;
+        this.adminSessionConfig = adminSessionConfig;
+        this.wso2Calls = wso2Calls;
+        this.clock = clock;
+    }
+
+    /**
+     * Lấy admin access token còn hạn, login lại nếu cần
+     */
+    public String getSession() {
+        AdminSession session = current.get();
+        if (session != null && !session.isExpired(clock.getAsLong())) {
+            return session.accessToken();
+        }
+        return login().accessToken();
+    }
+
+    /**
+     * Huỷ session nếu nó vẫn là token hiện tại (tránh huỷ nhầm token vừa được tạo lại bởi thread khác)
+     */
+    public void invalidate(String accessToken) {
+        AdminSession session = current.get();
+        if (session != null && session.accessToken().equals(accessToken)) {
+            current.compareAndSet(session, null);
+        }
+    }
+
+    public void invalidate() {
+        current.set(null);
+    }
+
+    /**
+     * Gọi WSO2 IS với admin token; nếu nhận 401 thì login lại và thử thêm một lần
+     */
+    public <T> T execute(Function<String, T> call) {
+        String accessToken = getSession();
+        try {
+            return call.apply(accessToken);
+        } catch (HttpClientErrorException.Unauthorized e) {
+            logger.info("Admin session rejected by WSO2 IS, logging in again");
+            invalidate(accessToken);
+            return call.apply(getSession());
+        }
+    }
+
+    private AdminSession login() {
+        CompletableFuture<AdminSession> future = new CompletableFuture<>();
+        CompletableFuture<AdminSession> existing = inFlight.compareAndExchange(null, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            AdminSession session = current.get();
+            if (session != null && !session.isExpired(clock.getAsLong())) {
+                future.complete(session);
+                return session;
+            }
+
+            long remainingBackoff = backoffUntil - clock.getAsLong();
+            if (remainingBackoff > 0) {
+                throw new RuntimeException("WSO2 IS admin login is backing off after " + consecutiveFailures
+                    + " failures, retry in " + remainingBackoff + " ms");
+            }
+
+            session = createAdminSession();
+            current.set(session);
+            consecutiveFailures = 0;
+            backoffUntil = 0;
+            future.complete(session);
+            return session;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.compareAndSet(future, null);
+        }
+    }
+
+    /**
+     * Tạo admin session mới
+     */
+    private AdminSession createAdminSession() {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+            // Sử dụng OAuth client credentials để authenticate admin
+            String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
+            String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
+            headers.setBasicAuth(encodedCredentials);
+
+            MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+            formData.add("grant_type", "password");
+            formData.add("username", wso2Config.getAdminUsername());
+            formData.add("password", wso2Config.getAdminPassword());
+            formData.add("scope", "openid");
+
+            HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
+            String url = wso2Config.getBaseUrl() + "/oauth2/token";
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.ADMIN_LOGIN, url, request,
+                () -> restTemplate.postForEntity(url, request, String.class));
+
+            Wso2TokenResponse tokenResponse = jsonCodec.read(response.getBody(), Wso2TokenResponse.class);
+            if (tokenResponse.accessToken() == null) {
+                logger.error("No access_token found in admin session response. Status: {}", response.getStatusCode());
+                throw new RuntimeException("No access_token found in admin session response");
+            }
+
+            long lifetimeMillis = tokenResponse.expiresIn() != null
+                ? tokenResponse.expiresIn() * 1000
+                : adminSessionConfig.getDefaultExpiresIn().toMillis();
+            long usableMillis = Math.max(lifetimeMillis - adminSessionConfig.getExpirySkew().toMillis(), lifetimeMillis / 2);
+
+            logger.info("Created admin session, valid for {} ms", usableMillis);
+            return new AdminSession(tokenResponse.accessToken(), clock.getAsLong() + usableMillis);
+
+        } catch (Exception e) {
+            recordFailure();
+            logger.error("Error creating admin session", e);
+            throw new RuntimeException("Failed to create admin session", e);
+        }
+    }
+
+    private void recordFailure() {
+        int failures = ++consecutiveFailures;
+        long initial = adminSessionConfig.getInitialBackoff().toMillis();
+        long max = adminSessionConfig.getMaxBackoff().toMillis();
+        long delay = initial << Math.min(failures - 1, 20);
+        backoffUntil = clock.getAsLong() + Math.min(delay, max);
+    }
+
+    private static AdminSession await(CompletableFuture<AdminSession> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to create admin session", e.getCause());
+        }
+    }
+
+    private record AdminSession(String accessToken, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.TokenCacheConfig;
+import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.dto.Wso2TokenResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache client_credentials access tokens theo client/scope.
+ * Token được refresh ngầm trước khi hết hạn, các lần miss đồng thời chỉ tạo một request tới WSO2 IS.
+ */
+@Service
+public class ClientCredentialsTokenManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientCredentialsTokenManager.class);
+
+    private final RestTemplate restTemplate;
+    private final Wso2Config wso2Config;
+    private final JsonCodec jsonCodec;
+    private final TokenCacheConfig tokenCacheConfig;
+    private final Wso2Executors executors;
+    private final Wso2CallExecutor wso2Calls;
+
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<CachedToken>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> refreshTasks = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter refreshes;
+    private final Counter refreshFailures;
+
+    public ClientCredentialsTokenManager(RestTemplate restTemplate, Wso2Config wso2Config, JsonCodec jsonCodec,
+                                         TokenCacheConfig tokenCacheConfig, Wso2Executors executors,
+                                         Wso2CallExecutor wso2Calls, MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.wso2Config = wso2Config;
+        this.jsonCodec = jsonCodec;
+        this.tokenCacheConfig = tokenCacheConfig;
+        this.executors = executors;
+        this.wso2Calls = wso2Calls;
+
+        this.hits = Counter.builder("wso2.token.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("wso2.token.cache").tag("result", "miss").register(meterRegistry);
+        this.refreshes = Counter.builder("wso2.token.refresh").tag("outcome", "success").register(meterRegistry);
+        this.refreshFailures = Counter.builder("wso2.token.refresh").tag("outcome", "failure").register(meterRegistry);
+        Gauge.builder("wso2.token.cache.size", tokens, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Lấy access token cho client đã cấu hình, dùng cache nếu token còn hạn
+     */
+    public String getToken(String scope) {
+        String clientKey = wso2Config.getOauth().getClientKey();
+        String clientSecret = wso2Config.getOauth().getClientSecret();
+        if (clientKey == null || clientSecret == null) {
+            throw new RuntimeException("OAuth credentials are null. Client Key: " + clientKey + ", Client Secret: " + (clientSecret != null ? "not null" : "null"));
+        }
+
+        String key = cacheKey(clientKey, scope);
+        long now = System.currentTimeMillis();
+        CachedToken cached = tokens.get(key);
+        if (cached != null && !cached.isExpired(now)) {
+            hits.increment();
+            if (cached.needsRefresh(now) && !inFlight.containsKey(key)) {
+                executors.outbound().execute(() -> refresh(key, scope));
+            }
+            return cached.accessToken();
+        }
+
+        misses.increment();
+        return await(fetch(key, scope)).accessToken();
+    }
+
+    /**
+     * Xoá token khỏi cache, lần gọi tiếp theo sẽ lấy token mới
+     */
+    public void invalidate(String scope) {
+        String key = cacheKey(wso2Config.getOauth().getClientKey(), scope);
+        tokens.remove(key);
+        ScheduledFuture<?> task = refreshTasks.remove(key);
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    public long getHitCount() {
+        return (long) hits.count();
+    }
+
+    public long getMissCount() {
+        return (long) misses.count();
+    }
+
+    public long getRefreshCount() {
+        return (long) refreshes.count();
+    }
+
+    /**
+     * Single-flight: chỉ một thread gọi token endpoint cho mỗi key, các thread khác chờ cùng future
+     */
+    private CompletableFuture<CachedToken> fetch(String key, String scope) {
+        CompletableFuture<CachedToken> future = new CompletableFuture<>();
+        CompletableFuture<CachedToken> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            // Token có thể vừa được thread khác lưu trước khi future của nó bị xoá khỏi inFlight
+            CachedToken current = tokens.get(key);
+            if (current != null && !current.needsRefresh(System.currentTimeMillis())) {
+                future.complete(current);
+                return future;
+            }
+
+            CachedToken token = requestToken(scope);
+            tokens.put(key, token);
+            scheduleRefresh(key, scope, token);
+            future.complete(token);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, future);
+        }
+        return future;
+    }
+
+    private void refresh(String key, String scope) {
+        try {
+            await(fetch(key, scope));
+            refreshes.increment();
+            logger.debug("Refreshed client credentials token for scope: {}", scope);
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            CachedToken current = tokens.get(key);
+            if (current != null && !current.isExpired(System.currentTimeMillis())) {
+                logger.warn("Background token refresh failed, retrying in {}: {}", tokenCacheConfig.getRefreshRetryDelay(), e.getMessage());
+                schedule(key, scope, tokenCacheConfig.getRefreshRetryDelay().toMillis());
+            } else {
+                logger.warn("Background token refresh failed and cached token expired: {}", e.getMessage());
+                tokens.remove(key, current);
+            }
+        }
+    }
+
+    private void scheduleRefresh(String key, String scope, CachedToken token) {
+        long delay = Math.max(token.refreshAt() - System.currentTimeMillis(), tokenCacheConfig.getRefreshRetryDelay().toMillis());
+        schedule(key, scope, delay);
+    }
+
+    private void schedule(String key, String scope, long delayMillis) {
+        if (executors.scheduler().isShutdown()) {
+            return;
+        }
+        ScheduledFuture<?> task = executors.scheduler().schedule(
+            () -> executors.outbound().execute(() -> refresh(key, scope)), delayMillis, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = refreshTasks.put(key, task);
+        if (previous != null && previous != task) {
+            previous.cancel(false);
+        }
+    }
+
+    private CachedToken requestToken(String scope) {
+        try {
+            String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
+            String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+            headers.setBasicAuth(encodedCredentials);
+
+            MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+            formData.add("grant_type", "client_credentials");
+            formData.add("scope", scope);
+
+            HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
+
+            String url = wso2Config.getBaseUrl() + "/oauth2/token";
+            logger.debug("Requesting client credentials token from {} for scope: {}", url, scope);
+
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.CLIENT_CREDENTIALS, url, request,
+                () -> restTemplate.postForEntity(url, request, String.class));
+
+            Wso2TokenResponse tokenResponse = jsonCodec.read(response.getBody(), Wso2TokenResponse.class);
+            if (tokenResponse.accessToken() == null) {
+                logger.error("No access_token found in client credentials response. Status: {}", response.getStatusCode());
+                throw new RuntimeException("No access_token found in OAuth response");
+            }
+
+            long lifetimeMillis = tokenResponse.expiresIn() != null
+                ? tokenResponse.expiresIn() * 1000
+                : tokenCacheConfig.getDefaultExpiresIn().toMillis();
+            // Token sống ngắn: refresh ở nửa vòng đời thay vì refreshAhead
+            long refreshAheadMillis = Math.min(tokenCacheConfig.getRefreshAhead().toMillis(), lifetimeMillis / 2);
+
+            long now = System.currentTimeMillis();
+            return new CachedToken(tokenResponse.accessToken(), now + lifetimeMillis - refreshAheadMillis, now + lifetimeMillis);
+
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to get access token", e);
+        }
+    }
+
+    private static CachedToken await(CompletableFuture<CachedToken> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to get access token", e.getCause());
+        }
+    }
+
+    private static String cacheKey(String clientKey, String scope) {
+        return clientKey + " " + scope;
+    }
+
+    private record CachedToken(String accessToken, long refreshAt, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        boolean needsRefresh(long now) {
+            return now >= refreshAt;
+        }
+    }
+}
@@ -1,13 +1,15 @@
 package com.anhngo.wso2.fido.service;
 
+import com.anhngo.wso2.fido.config.Wso2ClientConfig;
 import com.anhngo.wso2.fido.dto.FidoAuthenticationOptionsRequest;
 import com.anhngo.wso2.fido.dto.FidoAuthenticationRequest;
 import com.anhngo.wso2.fido.dto.FidoRegistrationOptionsRequest;
 import com.anhngo.wso2.fido.dto.FidoRegistrationRequest;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.anhngo.wso2.fido.dto.RawJson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 @Service
 public class FidoService {
@@ -15,20 +17,24 @@ public class FidoService {
     private static final Logger logger = LoggerFactory.getLogger(FidoService.class);
     
     private final Wso2Service wso2Service;
+    private final ReactiveWso2Client reactiveWso2Client;
+    private final Wso2ClientConfig wso2ClientConfig;
     
-    public FidoService(Wso2Service wso2Service) {
+    public FidoService(Wso2Service wso2Service, ReactiveWso2Client reactiveWso2Client, Wso2ClientConfig wso2ClientConfig) {
         this.wso2Service = wso2Service;
+        this.reactiveWso2Client = reactiveWso2Client;
+        this.wso2ClientConfig = wso2ClientConfig;
     }
     
-    public JsonNode getRegistrationOptions(FidoRegistrationOptionsRequest request) {
+    public RawJson getRegistrationOptions(FidoRegistrationOptionsRequest request) {
         return getRegistrationOptions(request, null);
     }
     
-    public JsonNode getRegistrationOptions(FidoRegistrationOptionsRequest request, String userAccessToken) {
+    public RawJson getRegistrationOptions(FidoRegistrationOptionsRequest request, String userAccessToken) {
         logger.info("Getting FIDO registration options for user: {}", request.getUsername());
         
         try {
-            JsonNode result = wso2Service.getFidoRegistrationOptions(request.getUsername(), request.getDisplayName(), userAccessToken);
+            RawJson result = wso2Service.getFidoRegistrationOptions(request.getUsername(), request.getDisplayName(), userAccessToken);
             logger.info("Successfully retrieved registration options from WSO2 for user: {}", request.getUsername());
             return result;
         } catch (Exception error) {
@@ -37,15 +43,15 @@ public class FidoService {
         }
     }
     
-    public JsonNode registerFidoCredential(FidoRegistrationRequest request) {
+    public RawJson registerFidoCredential(FidoRegistrationRequest request) {
         return registerFidoCredential(request, null);
     }
     
-    public JsonNode registerFidoCredential(FidoRegistrationRequest request, String userAccessToken) {
+    public RawJson registerFidoCredential(FidoRegistrationRequest request, String userAccessToken) {
         logger.info("Registering FIDO credential for user: {}", request.getUsername());
         
         try {
-            JsonNode result = wso2Service.registerFidoCredential(
+            RawJson result = wso2Service.registerFidoCredential(
                 request.getUsername(),
                 request.getDisplayName(),
                 request.getRequestId(),
@@ -62,15 +68,15 @@ public class FidoService {
         }
     }
     
-    public JsonNode getAuthenticationOptions(FidoAuthenticationOptionsRequest request) {
+    public RawJson getAuthenticationOptions(FidoAuthenticationOptionsRequest request) {
         return getAuthenticationOptions(request, null);
     }
     
-    public JsonNode getAuthenticationOptions(FidoAuthenticationOptionsRequest request, String userAccessToken) {
+    public RawJson getAuthenticationOptions(FidoAuthenticationOptionsRequest request, String userAccessToken) {
         logger.info("Getting FIDO authentication options for user: {}", request.getUsername());
         
         try {
-            JsonNode result = wso2Service.getFidoAuthenticationOptions(request.getUsername(), userAccessToken);
+            RawJson result = wso2Service.getFidoAuthenticationOptions(request.getUsername(), userAccessToken);
             logger.info("Successfully retrieved authentication options from WSO2 for user: {}", request.getUsername());
             return result;
         } catch (Exception error) {
@@ -79,15 +85,15 @@ public class FidoService {
         }
     }
     
-    public JsonNode authenticateFido(FidoAuthenticationRequest request) {
+    public RawJson authenticateFido(FidoAuthenticationRequest request) {
         return authenticateFido(request, null);
     }
     
-    public JsonNode authenticateFido(FidoAuthenticationRequest request, String userAccessToken) {
+    public RawJson authenticateFido(FidoAuthenticationRequest request, String userAccessToken) {
         logger.info("Authenticating FIDO for user: {}", request.getUsername());
         
         try {
-            JsonNode result = wso2Service.authenticateFido(
+            RawJson result = wso2Service.authenticateFido(
                 request.getUsername(),
                 request.getAssertionObject(),
                 request.getClientDataJSON(),
@@ -113,4 +119,88 @@ public class FidoService {
             throw error;
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Async variants qua ReactiveWso2Client, dùng bởi ReactiveFidoController khi wso2.client.reactive=true
+     */
+    public Mono<RawJson> getRegistrationOptionsAsync(FidoRegistrationOptionsRequest request, String userAccessToken) {
+        return reactiveWso2Client.getFidoRegistrationOptions(request.getUsername(), request.getDisplayName(), userAccessToken)
+            .doOnSuccess(result -> logger.info("Successfully retrieved registration options from WSO2 for user: {}", request.getUsername()))
+            .doOnError(error -> logger.error("Error getting registration options for user: {}", request.getUsername(), error));
+    }
+    
+    public Mono<RawJson> registerFidoCredentialAsync(FidoRegistrationRequest request, String userAccessToken) {
+        return reactiveWso2Client.registerFidoCredential(
+                request.getUsername(),
+                request.getDisplayName(),
+                request.getRequestId(),
+                request.getAttestationObject(),
+                request.getClientDataJSON(),
+                request.getRawId(),
+                userAccessToken
+            )
+            .doOnSuccess(result -> logger.info("Successfully registered FIDO credential with WSO2 for user: {}", request.getUsername()))
+            .doOnError(error -> logger.error("Error registering FIDO credential for user: {}", request.getUsername(), error));
+    }
+    
+    public Mono<RawJson> getAuthenticationOptionsAsync(FidoAuthenticationOptionsRequest request, String userAccessToken) {
+        return reactiveWso2Client.getFidoAuthenticationOptions(request.getUsername(), userAccessToken)
+            .doOnSuccess(result -> logger.info("Successfully retrieved authentication options from WSO2 for user: {}", request.getUsername()))
+            .doOnError(error -> logger.error("Error getting authentication options for user: {}", request.getUsername(), error));
+    }
+    
+    public Mono<RawJson> authenticateFidoAsync(FidoAuthenticationRequest request, String userAccessToken) {
+        return reactiveWso2Client.authenticateFido(
+                request.getUsername(),
+                request.getAssertionObject(),
+                request.getClientDataJSON(),
+                request.getRawId(),
+                userAccessToken
+            )
+            .doOnSuccess(result -> logger.info("Successfully authenticated FIDO with WSO2 for user: {}", request.getUsername()))
+            .doOnError(error -> logger.error("Error authenticating FIDO for user: {}", request.getUsername(), error));
+    }
+    
+    /**
+     * Pass-through (wso2.client.passthrough): body WSO2 IS được stream thẳng sang response thay vì trả về RawJson.
+     * Chỉ áp dụng cho RestTemplate path
+     */
+    public boolean isPassthrough() {
+        return wso2ClientConfig.isPassthrough() && !wso2ClientConfig.isReactive();
+    }
+    
+    public void registerFidoCredentialPassthrough(FidoRegistrationRequest request, String userAccessToken,
+                                                  Wso2Passthrough target) {
+        try {
+            target.run(() -> wso2Service.streamFidoCredentialRegistration(
+                request.getRequestId(),
+                request.getAttestationObject(),
+                request.getClientDataJSON(),
+                request.getRawId(),
+                userAccessToken,
+                target
+            ));
+            logger.info("Successfully registered FIDO credential with WSO2 for user: {}", request.getUsername());
+        } catch (Exception error) {
+            logger.error("Error registering FIDO credential for user: {}", request.getUsername(), error);
+            throw error;
+        }
+    }
+    
+    public void getAuthenticationOptionsPassthrough(FidoAuthenticationOptionsRequest request, String userAccessToken,
+                                                    Wso2Passthrough target) {
+        try {
+            target.run(() -> wso2Service.streamFidoAuthenticationOptions(userAccessToken, target));
+            logger.info("Successfully retrieved authentication options from WSO2 for user: {}", request.getUsername());
+        } catch (Exception error) {
+            logger.error("Error getting authentication options for user: {}", request.getUsername(), error);
+            throw error;
+        }
+    }
+    
+    public Mono<Void> deregisterFidoCredentialAsync(String credentialId, String userAccessToken) {
+        return reactiveWso2Client.deregisterFidoCredential(credentialId, userAccessToken)
+            .doOnSuccess(result -> logger.info("Successfully deregistered FIDO credential: {}", credentialId))
+            .doOnError(error -> logger.error("Error deregistering FIDO credential: {}", credentialId, error));
+    }
+}
@@ -0,0 +1,131 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.IntrospectionCacheConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache kết quả /oauth2/introspect cho token opaque.
+ * Kết quả active không sống quá exp của token, kết quả inactive được cache ngắn (negative caching),
+ * và các lookup đồng thời cho cùng token chỉ tạo một request tới WSO2 IS.
+ */
+@Service
+public class IntrospectionCache {
+
+    private final IntrospectionCacheConfig cacheConfig;
+
+    private final Cache<String, CachedIntrospection> cache;
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter coalesced;
+
+    public IntrospectionCache(IntrospectionCacheConfig cacheConfig, MeterRegistry meterRegistry) {
+        this.cacheConfig = cacheConfig;
+
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(cacheConfig.getMaximumSize())
+            .expireAfter(Expiry.creating((String key, CachedIntrospection entry) ->
+                Duration.ofMillis(Math.max(entry.expiresAt() - System.currentTimeMillis(), 0))))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "wso2.introspection");
+
+        this.coalesced = Counter.builder("wso2.introspection.coalesced").register(meterRegistry);
+    }
+
+    /**
+     * Kết quả introspection từ cache, hoặc gọi loader (blocking) trên thread hiện tại nếu chưa có
+     */
+    public Map<String, Object> get(String token, Function<String, Map<String, Object>> loader) {
+        try {
+            return getAsync(token, t -> CompletableFuture.completedFuture(loader.apply(t))).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to introspect token", e.getCause());
+        }
+    }
+
+    /**
+     * Như get() nhưng loader trả về future (dùng cho WebClient)
+     */
+    public CompletableFuture<Map<String, Object>> getAsync(String token,
+                                                           Function<String, CompletableFuture<Map<String, Object>>> loader) {
+        if (!cacheConfig.isEnabled()) {
+            return loader.apply(token);
+        }
+
+        String key = JwtValidator.tokenHash(token);
+        CachedIntrospection cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(new HashMap<>(cached.result()));
+        }
+
+        CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.thenApply(HashMap::new);
+        }
+
+        CompletableFuture<Map<String, Object>> upstream;
+        try {
+            upstream = loader.apply(token);
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+
+        upstream.whenComplete((result, error) -> {
+            // Không cache nếu token đã bị evict (revoke) trong lúc đang introspect
+            boolean current = inFlight.remove(key, future);
+            if (error != null) {
+                future.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                return;
+            }
+            if (current && result != null) {
+                cache.put(key, new CachedIntrospection(Collections.unmodifiableMap(new HashMap<>(result)), expiresAt(result)));
+            }
+            future.complete(result);
+        });
+        return future;
+    }
+
+    /**
+     * Xoá kết quả đã cache cho token (gọi khi revoke)
+     */
+    public void evict(String token) {
+        String key = JwtValidator.tokenHash(token);
+        inFlight.remove(key);
+        cache.invalidate(key);
+    }
+
+    private long expiresAt(Map<String, Object> result) {
+        long now = System.currentTimeMillis();
+        if (!Boolean.TRUE.equals(result.get("active"))) {
+            return now + cacheConfig.getNegativeTtl().toMillis();
+        }
+        long maxExpiresAt = now + cacheConfig.getMaxTtl().toMillis();
+        if (result.get("exp") instanceof Number exp) {
+            return Math.min(exp.longValue() * 1000, maxExpiresAt);
+        }
+        return maxExpiresAt;
+    }
+
+    private record CachedIntrospection(Map<String, Object> result, long expiresAt) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.anhngo.wso2.fido.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Điểm đọc/ghi JSON dùng chung cho mọi request/response WSO2 IS.
+ * ObjectReader/ObjectWriter là immutable và thread-safe nên được dựng sẵn một lần cho mỗi kiểu payload
+ * thay vì để ObjectMapper tra cứu lại config và root (de)serializer ở mỗi call.
+ * ObjectMapper là bean của Spring Boot (đã có BlackbirdModule, xem JacksonConfig).
+ */
+@Component
+public class JsonCodec {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader treeReader;
+    private final ObjectReader mapReader;
+    private final ObjectWriter writer;
+    private final ClassValue<ObjectReader> readers;
+    private final ClassValue<ObjectWriter> writers;
+
+    public JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.treeReader = objectMapper.readerFor(JsonNode.class);
+        this.mapReader = objectMapper.readerFor(MAP_TYPE);
+        this.writer = objectMapper.writer();
+        this.readers = new ClassValue<>() {
+            @Override
+            protected ObjectReader computeValue(Class<?> type) {
+                return objectMapper.readerFor(type);
+            }
+        };
+        this.writers = new ClassValue<>() {
+            @Override
+            protected ObjectWriter computeValue(Class<?> type) {
+                return objectMapper.writerFor(type);
+            }
+        };
+    }
+
+    /**
+     * Codec ngoài Spring context (test, benchmark) với cùng cấu hình chính như ObjectMapper của Spring Boot
+     */
+    public static JsonCodec standalone() {
+        return new JsonCodec(JsonMapper.builder()
+            .addModule(new BlackbirdModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build());
+    }
+
+    public JsonNode readTree(String json) throws JsonProcessingException {
+        return treeReader.readTree(json);
+    }
+
+    public JsonNode readTree(byte[] json) throws IOException {
+        return treeReader.readTree(json);
+    }
+
+    public Map<String, Object> readMap(String json) throws JsonProcessingException {
+        return mapReader.readValue(json);
+    }
+
+    public <T> T read(String json, Class<T> type) throws JsonProcessingException {
+        return readers.get(type).readValue(json);
+    }
+
+    public <T> T read(byte[] json, Class<T> type) throws IOException {
+        return readers.get(type).readValue(json);
+    }
+
+    public String write(Object value) throws JsonProcessingException {
+        if (value == null) {
+            return writer.writeValueAsString(null);
+        }
+        return writers.get(value.getClass()).writeValueAsString(value);
+    }
+
+    public byte[] writeBytes(Object value) throws JsonProcessingException {
+        if (value == null) {
+            return writer.writeValueAsBytes(null);
+        }
+        return writers.get(value.getClass()).writeValueAsBytes(value);
+    }
+
+    public ObjectReader readerFor(Class<?> type) {
+        return readers.get(type);
+    }
+
+    public ObjectWriter writerFor(Class<?> type) {
+        return writers.get(type);
+    }
+
+    public ObjectNode createObjectNode() {
+        return objectMapper.getNodeFactory().objectNode();
+    }
+
+    public JsonFactory factory() {
+        return objectMapper.getFactory();
+    }
+}
@@ -0,0 +1,382 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.JwtValidationConfig;
+import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.exception.JwtValidationException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.AsymmetricJWK;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Validate JWT access token cục bộ bằng JWKS của WSO2 IS thay vì gọi /oauth2/introspect.
+ * JWKS được cache và chỉ tải lại (single-flight, có giới hạn tần suất) khi gặp kid chưa biết;
+ * claims đã verify được cache theo SHA-256 của token cho tới khi token hết hạn.
+ * Chỉ access token được coi là active: token không có exp, ID token (cùng key, cùng iss) hoặc JWT không có dấu hiệu
+ * access token (typ at+jwt/JWT kèm client_id/azp, hoặc aud nằm trong wso2.jwt.audiences) đều inactive như /oauth2/introspect.
+ * Token đã revoke qua gateway nằm trong denylist (theo SHA-256) cho tới exp nên không còn active cục bộ.
+ * Denylist chỉ có trên instance nhận request revoke.
+ */
+@Service
+public class JwtValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtValidator.class);
+
+    // Chỉ chấp nhận chữ ký bất đối xứng, không chấp nhận "none" hay HMAC
+    private static final Set<JWSAlgorithm> ACCEPTED_ALGORITHMS = new HashSet<>();
+
+    static {
+        ACCEPTED_ALGORITHMS.addAll(JWSAlgorithm.Family.RSA);
+        ACCEPTED_ALGORITHMS.addAll(JWSAlgorithm.Family.EC);
+    }
+
+    // typ của JWT access token: at+jwt (RFC 9068) hoặc JWT (WSO2 IS cũ)
+    private static final Set<String> ACCESS_TOKEN_TYPES = Set.of("at+jwt", "application/at+jwt", "jwt");
+    // Claim chỉ có trong ID token (OIDC Core 3.1.3.6, 3.3.2.11), access token của WSO2 IS không có
+    private static final List<String> ID_TOKEN_CLAIMS = List.of("at_hash", "c_hash", "nonce");
+
+    private final RestTemplate restTemplate;
+    private final Wso2Config wso2Config;
+    private final JwtValidationConfig jwtConfig;
+    private final Wso2CallExecutor wso2Calls;
+    private final DefaultJWSVerifierFactory verifierFactory = new DefaultJWSVerifierFactory();
+
+    private final AtomicReference<JWKSet> jwks = new AtomicReference<>(new JWKSet());
+    private final AtomicReference<CompletableFuture<JWKSet>> jwksInFlight = new AtomicReference<>();
+    private final AtomicLong lastJwksRefresh = new AtomicLong();
+
+    private final Cache<String, VerifiedClaims> claimsCache;
+    private final Cache<String, Long> revokedTokens;
+
+    private final Counter valid;
+    private final Counter invalid;
+    private final Counter jwksRefreshes;
+
+    public JwtValidator(RestTemplate restTemplate, Wso2Config wso2Config, JwtValidationConfig jwtConfig,
+                        Wso2CallExecutor wso2Calls, MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.wso2Config = wso2Config;
+        this.jwtConfig = jwtConfig;
+        this.wso2Calls = wso2Calls;
+
+        this.claimsCache = Caffeine.newBuilder()
+            .maximumSize(jwtConfig.getClaimsCacheSize())
+            .expireAfter(Expiry.creating((String key, VerifiedClaims claims) ->
+                Duration.ofMillis(Math.max(claims.expiresAt() - System.currentTimeMillis(), 0))))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, claimsCache, "wso2.jwt.claims");
+
+        // Không giới hạn size: evict theo size sẽ làm token đã revoke active trở lại
+        this.revokedTokens = Caffeine.newBuilder()
+            .expireAfter(Expiry.creating((String key, Long deniedUntil) ->
+                Duration.ofMillis(Math.max(deniedUntil - System.currentTimeMillis(), 0))))
+            .build();
+        Gauge.builder("wso2.jwt.revoked.size", revokedTokens, Cache::estimatedSize).register(meterRegistry);
+
+        this.valid = Counter.builder("wso2.jwt.validation").tag("result", "valid").register(meterRegistry);
+        this.invalid = Counter.builder("wso2.jwt.validation").tag("result", "invalid").register(meterRegistry);
+        this.jwksRefreshes = Counter.builder("wso2.jwt.jwks.refresh").register(meterRegistry);
+    }
+
+    /**
+     * Token có dạng JWS compact (header.payload.signature) hay không; token opaque của WSO2 IS thì không
+     */
+    public static boolean looksLikeJwt(String token) {
+        if (token == null || !token.startsWith("eyJ")) {
+            return false;
+        }
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        return first > 0 && second > first + 1 && second < token.length() - 1 && token.indexOf('.', second + 1) < 0;
+    }
+
+    /**
+     * Claims đã verify của token. Trả về null nếu token không phải JWT;
+     * ném JwtValidationException nếu token bị từ chối
+     */
+    public Map<String, Object> validate(String token) {
+        if (!looksLikeJwt(token)) {
+            return null;
+        }
+
+        String key = tokenHash(token);
+        if (revokedTokens.getIfPresent(key) != null) {
+            invalid.increment();
+            throw new JwtValidationException("JWT revoked");
+        }
+        VerifiedClaims cached = claimsCache.getIfPresent(key);
+        if (cached != null) {
+            return cached.claims();
+        }
+
+        try {
+            VerifiedClaims verified = verify(token);
+            claimsCache.put(key, verified);
+            valid.increment();
+            return verified.claims();
+        } catch (JwtValidationException e) {
+            invalid.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Đánh dấu token đã revoke: xoá claims đã cache và từ chối token cho tới exp (tối đa revoked-token-max-ttl).
+     * Token không phải JWT (opaque, refresh token) thì bỏ qua vì luôn được introspect ở WSO2 IS
+     */
+    public void revoke(String token) {
+        if (!looksLikeJwt(token)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long deniedUntil = now + jwtConfig.getRevokedTokenMaxTtl().toMillis();
+        try {
+            // Chưa verify chữ ký: exp chỉ dùng để biết giữ trong denylist bao lâu
+            Date exp = SignedJWT.parse(token).getJWTClaimsSet().getExpirationTime();
+            if (exp != null) {
+                deniedUntil = Math.min(deniedUntil, exp.getTime() + jwtConfig.getClockSkew().toMillis());
+            }
+        } catch (ParseException e) {
+            logger.debug("Could not read exp of revoked JWT: {}", e.getMessage());
+        }
+        String key = tokenHash(token);
+        claimsCache.invalidate(key);
+        if (deniedUntil > now) {
+            revokedTokens.put(key, deniedUntil);
+        }
+    }
+
+    /**
+     * Kết quả theo format của /oauth2/introspect (RFC 7662) cho JWT.
+     * Trả về null khi không thể quyết định cục bộ (token opaque, JWKS không tải được) để caller gọi WSO2 IS
+     */
+    public Map<String, Object> introspect(String token) {
+        if (!jwtConfig.isEnabled()) {
+            return null;
+        }
+        try {
+            Map<String, Object> claims = validate(token);
+            if (claims == null) {
+                return null;
+            }
+            Map<String, Object> result = new HashMap<>(claims);
+            result.put("active", true);
+            return result;
+        } catch (JwtValidationException e) {
+            logger.debug("JWT rejected locally: {}", e.getMessage());
+            Map<String, Object> result = new HashMap<>();
+            result.put("active", false);
+            return result;
+        } catch (RuntimeException e) {
+            logger.warn("Local JWT validation unavailable, falling back to introspection: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private VerifiedClaims verify(String token) {
+        SignedJWT jwt;
+        JWTClaimsSet claimsSet;
+        try {
+            jwt = SignedJWT.parse(token);
+            claimsSet = jwt.getJWTClaimsSet();
+        } catch (ParseException e) {
+            throw new JwtValidationException("Malformed JWT", e);
+        }
+
+        JWSHeader header = jwt.getHeader();
+        if (!ACCEPTED_ALGORITHMS.contains(header.getAlgorithm())) {
+            throw new JwtValidationException("Unsupported JWT algorithm: " + header.getAlgorithm());
+        }
+
+        JWK jwk = findKey(header.getKeyID());
+        try {
+            if (!(jwk instanceof AsymmetricJWK asymmetricJwk)) {
+                throw new JwtValidationException("JWKS key is not a public key: " + jwk.getKeyID());
+            }
+            JWSVerifier verifier = verifierFactory.createJWSVerifier(header, asymmetricJwk.toPublicKey());
+            if (!jwt.verify(verifier)) {
+                throw new JwtValidationException("Invalid JWT signature");
+            }
+        } catch (JOSEException e) {
+            throw new JwtValidationException("Could not verify JWT signature", e);
+        }
+
+        long now = System.currentTimeMillis();
+        long skew = jwtConfig.getClockSkew().toMillis();
+        Date exp = claimsSet.getExpirationTime();
+        if (exp == null) {
+            throw new JwtValidationException("JWT has no exp");
+        }
+        if (exp.getTime() + skew <= now) {
+            throw new JwtValidationException("JWT expired");
+        }
+        Date nbf = claimsSet.getNotBeforeTime();
+        if (nbf != null && nbf.getTime() - skew > now) {
+            throw new JwtValidationException("JWT not yet valid");
+        }
+        String issuer = jwtConfig.getIssuer();
+        if (issuer != null && !issuer.isBlank() && !issuer.equals(claimsSet.getIssuer())) {
+            throw new JwtValidationException("Unexpected JWT issuer: " + claimsSet.getIssuer());
+        }
+        requireAccessToken(header, claimsSet);
+
+        long expiresAt = Math.min(exp.getTime() + skew, now + jwtConfig.getClaimsCacheMaxTtl().toMillis());
+        // toJSONObject() trả exp/iat/nbf dạng epoch seconds như /oauth2/introspect
+        return new VerifiedClaims(Collections.unmodifiableMap(claimsSet.toJSONObject()), expiresAt);
+    }
+
+    /**
+     * ID token do WSO2 IS ký bằng cùng key và cùng iss với access token, nên chữ ký và iss hợp lệ chưa đủ:
+     * token phải có typ của access token, không có claim của ID token, và aud nằm trong wso2.jwt.audiences
+     * (nếu có cấu hình) hoặc có client_id/azp
+     */
+    private void requireAccessToken(JWSHeader header, JWTClaimsSet claimsSet) {
+        String type = header.getType() != null ? header.getType().toString().toLowerCase(Locale.ROOT) : null;
+        if (type == null || !ACCESS_TOKEN_TYPES.contains(type)) {
+            throw new JwtValidationException("JWT is not an access token, typ: " + header.getType());
+        }
+        for (String claim : ID_TOKEN_CLAIMS) {
+            if (claimsSet.getClaim(claim) != null) {
+                throw new JwtValidationException("JWT is an ID token, not an access token");
+            }
+        }
+        List<String> audiences = jwtConfig.getAudiences();
+        if (!audiences.isEmpty()) {
+            List<String> aud = claimsSet.getAudience();
+            if (aud == null || aud.stream().noneMatch(audiences::contains)) {
+                throw new JwtValidationException("Unexpected JWT audience: " + aud);
+            }
+        } else if (claimsSet.getClaim("client_id") == null && claimsSet.getClaim("azp") == null) {
+            throw new JwtValidationException("JWT has no client_id or azp claim");
+        }
+    }
+
+    private JWK findKey(String kid) {
+        JWK key = selectKey(jwks.get(), kid);
+        if (key != null) {
+            return key;
+        }
+
+        // Key rotation: tải lại JWKS, nhưng không quá một lần mỗi jwksMinRefreshInterval, kể cả khi lần tải trước lỗi
+        // (WSO2 IS down không bị gọi JWKS theo mỗi request). Trong khoảng đó không quyết định được cục bộ
+        // (có thể là key mới rotate) nên ném RuntimeException để introspect() fallback sang /oauth2/introspect
+        long now = System.currentTimeMillis();
+        long last = lastJwksRefresh.get();
+        if (now - last < jwtConfig.getJwksMinRefreshInterval().toMillis() || !lastJwksRefresh.compareAndSet(last, now)) {
+            // Thread khác vừa bắt đầu tải: dùng kết quả của lần tải đó nếu còn đang chạy
+            CompletableFuture<JWKSet> inFlight = jwksInFlight.get();
+            key = selectKey(inFlight != null ? await(inFlight) : jwks.get(), kid);
+            if (key != null) {
+                return key;
+            }
+            throw new RuntimeException("JWT signing key " + kid + " not in cached JWKS and JWKS refresh is rate-limited");
+        }
+
+        key = selectKey(refreshJwks(), kid);
+        if (key == null) {
+            throw new JwtValidationException("Unknown JWT signing key: " + kid);
+        }
+        return key;
+    }
+
+    private static JWK selectKey(JWKSet jwkSet, String kid) {
+        if (kid == null) {
+            List<JWK> keys = jwkSet.getKeys();
+            return keys.size() == 1 ? keys.get(0) : null;
+        }
+        return jwkSet.getKeyByKeyId(kid);
+    }
+
+    /**
+     * Single-flight: chỉ một thread tải JWKS, các thread khác chờ cùng future
+     */
+    private JWKSet refreshJwks() {
+        CompletableFuture<JWKSet> future = new CompletableFuture<>();
+        CompletableFuture<JWKSet> existing = jwksInFlight.compareAndExchange(null, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            String url = wso2Config.getBaseUrl() + jwtConfig.getJwksPath();
+            logger.debug("Loading JWKS from {}", url);
+
+            JWKSet jwkSet = JWKSet.parse(wso2Calls.execute(Wso2Operation.JWKS, url, null,
+                () -> restTemplate.getForEntity(url, String.class)).getBody());
+            jwks.set(jwkSet);
+            jwksRefreshes.increment();
+            logger.info("Loaded {} signing keys from WSO2 IS JWKS", jwkSet.getKeys().size());
+            future.complete(jwkSet);
+            return jwkSet;
+        } catch (Exception e) {
+            RuntimeException failure = new RuntimeException("Failed to load JWKS from WSO2 IS", e);
+            future.completeExceptionally(failure);
+            throw failure;
+        } finally {
+            jwksInFlight.compareAndSet(future, null);
+        }
+    }
+
+    private static JWKSet await(CompletableFuture<JWKSet> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to load JWKS from WSO2 IS", e.getCause());
+        }
+    }
+
+    /**
+     * Cache key là hash của token để không giữ bearer token thô trong bộ nhớ
+     */
+    static String tokenHash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record VerifiedClaims(Map<String, Object> claims, long expiresAt) {
+    }
+}
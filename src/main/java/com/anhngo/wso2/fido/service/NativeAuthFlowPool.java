@@ -0,0 +1,238 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.NativeAuthPoolConfig;
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.dto.NativeAuthInitRequest;
+import com.anhngo.wso2.fido.dto.RawJson;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Pool các native-auth flow đã init sẵn (đã gọi /oauth2/authorize/ và lấy challenge passkey) cho login username-less.
+ * /native-auth/init lấy một flow từ pool thay vì gọi hai request tuần tự tới WSO2 IS; mỗi flow chỉ dùng một lần.
+ * Pool được nạp lại ngầm theo refill-rate, flow quá ttl bị bỏ trước khi WSO2 IS hết hạn flow.
+ * Chỉ các redirect-uris trong config được pool, request từ client không có trong danh sách không bao giờ tạo pool mới.
+ * Client init lỗi liên tiếp bị back-off theo cấp số nhân và bị bỏ khỏi pool sau max-failures lần.
+ */
+@Service
+public class NativeAuthFlowPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(NativeAuthFlowPool.class);
+
+    private final Wso2Service wso2Service;
+    private final NativeAuthPoolConfig config;
+    private final Wso2Executors executors;
+    private final Executor initExecutor;
+    private final LongSupplier clock;
+
+    private final Map<FlowKey, ClientPool> pools = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter refills;
+    private final Counter refillFailures;
+
+    private volatile ScheduledFuture<?> refillTask;
+    // Token bucket cho refill-rate, chỉ được đọc/ghi trên scheduler thread
+    private double permits;
+
+    @Autowired
+    public NativeAuthFlowPool(Wso2Service wso2Service, NativeAuthPoolConfig config, Wso2Executors executors,
+                              MeterRegistry meterRegistry) {
+        // Init flow là 2 call HTTP, chạy trên outbound executor thay vì scheduler thread
+        this(wso2Service, config, executors, meterRegistry, executors.outbound(), System::currentTimeMillis);
+    }
+
+    public NativeAuthFlowPool(Wso2Service wso2Service, NativeAuthPoolConfig config, Wso2Executors executors,
+                              MeterRegistry meterRegistry, Executor initExecutor, LongSupplier clock) {
+        this.wso2Service = wso2Service;
+        this.config = config;
+        this.executors = executors;
+        this.initExecutor = initExecutor;
+        this.clock = clock;
+
+        this.hits = Counter.builder("wso2.native-auth.pool.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("wso2.native-auth.pool.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("wso2.native-auth.pool.evictions").register(meterRegistry);
+        this.refills = Counter.builder("wso2.native-auth.pool.refills").tag("outcome", "success").register(meterRegistry);
+        this.refillFailures = Counter.builder("wso2.native-auth.pool.refills").tag("outcome", "failure").register(meterRegistry);
+        Gauge.builder("wso2.native-auth.pool.size", pools,
+                p -> p.values().stream().mapToInt(pool -> pool.flows.size()).sum())
+            .register(meterRegistry);
+
+        if (config.isEnabled()) {
+            if (config.getRedirectUris().isEmpty()) {
+                throw new IllegalStateException(
+                    "wso2.native-auth.pool.redirect-uris must list the clients to pool when wso2.native-auth.pool.enabled=true");
+            }
+            NativeAuthInitRequest defaults = new NativeAuthInitRequest();
+            for (String redirectUri : config.getRedirectUris()) {
+                pools.put(new FlowKey(redirectUri, defaults.getScope(), defaults.getResponseType(), defaults.getResponseMode()),
+                    new ClientPool());
+            }
+        }
+    }
+
+    /**
+     * Bắt đầu nạp pool sau khi app đã sẵn sàng, không gọi WSO2 IS trong lúc khởi động context
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long intervalMillis = config.getRefillInterval().toMillis();
+        refillTask = executors.scheduler().scheduleAtFixedRate(this::refill, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Native auth flow pool started for {}: size {} per client, ttl {}, refill rate {}/s",
+            config.getRedirectUris(), config.getSize(), config.getTtl(), config.getRefillRate());
+    }
+
+    @PreDestroy
+    public void stop() {
+        ScheduledFuture<?> task = refillTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Lấy challenge response của một flow đã init sẵn; null nếu pool tắt, client không được pool hoặc pool đang rỗng
+     */
+    public RawJson take(String redirectUri, String scope, String responseType, String responseMode) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        ClientPool pool = pools.get(new FlowKey(redirectUri, scope, responseType, responseMode));
+        if (pool == null) {
+            misses.increment();
+            return null;
+        }
+
+        long minCreatedAt = clock.getAsLong() - config.getTtl().toMillis();
+        PooledFlow flow;
+        // Lấy flow mới nhất (còn nhiều thời gian nhất), flow cũ ở đầu deque do refill() dọn
+        while ((flow = pool.flows.pollLast()) != null) {
+            if (flow.createdAt() >= minCreatedAt) {
+                hits.increment();
+                return flow.challenge();
+            }
+            evictions.increment();
+        }
+        misses.increment();
+        return null;
+    }
+
+    public int size() {
+        return pools.values().stream().mapToInt(pool -> pool.flows.size()).sum();
+    }
+
+    /**
+     * Số client đang được pool (giảm khi client bị bỏ do không có passkey authenticator hoặc lỗi liên tiếp)
+     */
+    public int clientCount() {
+        return pools.size();
+    }
+
+    /**
+     * Chạy trên scheduler: bỏ flow quá ttl rồi init thêm flow mới trong giới hạn refill-rate
+     */
+    public void refill() {
+        try {
+            double intervalSeconds = config.getRefillInterval().toMillis() / 1000.0;
+            double maxPermits = Math.max(1, config.getRefillRate() * intervalSeconds);
+            permits = Math.min(maxPermits, permits + config.getRefillRate() * intervalSeconds);
+
+            long now = clock.getAsLong();
+            long minCreatedAt = now - config.getTtl().toMillis();
+            for (Map.Entry<FlowKey, ClientPool> entry : pools.entrySet()) {
+                ClientPool pool = entry.getValue();
+                PooledFlow oldest;
+                while ((oldest = pool.flows.peekFirst()) != null && oldest.createdAt() < minCreatedAt) {
+                    if (pool.flows.remove(oldest)) {
+                        evictions.increment();
+                    }
+                }
+
+                if (now < pool.backoffUntil) {
+                    continue;
+                }
+                int missing = config.getSize() - pool.flows.size() - pool.pending.get();
+                while (missing-- > 0 && permits >= 1) {
+                    permits--;
+                    pool.pending.incrementAndGet();
+                    initExecutor.execute(() -> initFlow(entry.getKey(), pool));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Native auth flow pool refill failed: {}", e.getMessage());
+        }
+    }
+
+    private void initFlow(FlowKey key, ClientPool pool) {
+        try {
+            RawJson challenge = wso2Service.initPasskeyFlow(key.redirectUri(), key.scope(), key.responseType(), key.responseMode());
+            if (challenge == null) {
+                // WSO2 IS không trả về passkey authenticator cho client này: pool không có ích, bỏ client khỏi pool
+                pools.remove(key, pool);
+                logger.warn("No passkey authenticator offered for {}, removed from native auth flow pool", key);
+                return;
+            }
+            pool.consecutiveFailures.set(0);
+            pool.flows.offerLast(new PooledFlow(challenge, clock.getAsLong()));
+            refills.increment();
+        } catch (Exception e) {
+            refillFailures.increment();
+            recordFailure(key, pool, e);
+        } finally {
+            pool.pending.decrementAndGet();
+        }
+    }
+
+    private void recordFailure(FlowKey key, ClientPool pool, Exception e) {
+        int failures = pool.consecutiveFailures.incrementAndGet();
+        if (failures >= config.getMaxFailures()) {
+            pools.remove(key, pool);
+            logger.warn("Native auth flow initialization failed {} times in a row for {}, removed from native auth flow pool: {}",
+                failures, key, e.getMessage());
+            return;
+        }
+        long initial = config.getInitialBackoff().toMillis();
+        long max = config.getMaxBackoff().toMillis();
+        long delay = Math.min(initial << Math.min(failures - 1, 20), max);
+        pool.backoffUntil = clock.getAsLong() + delay;
+        logger.warn("Failed to pre-initialize native auth flow for {} ({} consecutive failures), retry in {} ms: {}",
+            key, failures, delay, e.getMessage());
+    }
+
+    private record FlowKey(String redirectUri, String scope, String responseType, String responseMode) {
+    }
+
+    private record PooledFlow(RawJson challenge, long createdAt) {
+    }
+
+    private static final class ClientPool {
+        private final Deque<PooledFlow> flows = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long backoffUntil;
+    }
+}
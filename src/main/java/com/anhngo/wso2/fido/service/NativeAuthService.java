@@ -1,16 +1,17 @@
 package com.anhngo.wso2.fido.service;
 
+import com.anhngo.wso2.fido.config.Wso2ClientConfig;
 import com.anhngo.wso2.fido.dto.NativeAuthChallengeRequest;
 import com.anhngo.wso2.fido.dto.NativeAuthCredentials;
 import com.anhngo.wso2.fido.dto.NativeAuthInitRequest;
 import com.anhngo.wso2.fido.dto.NativeAuthVerifyRequest;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.anhngo.wso2.fido.dto.RawJson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import java.io.IOException;
 import java.util.Base64;
 
 @Service
@@ -19,22 +20,32 @@ public class NativeAuthService {
     private static final Logger logger = LoggerFactory.getLogger(NativeAuthService.class);
     
     private final Wso2Service wso2Service;
-    private final ObjectMapper objectMapper;
+    private final ReactiveWso2Client reactiveWso2Client;
+    private final Wso2ClientConfig wso2ClientConfig;
+    private final NativeAuthFlowPool flowPool;
     
     
-    public NativeAuthService(Wso2Service wso2Service) {
+    public NativeAuthService(Wso2Service wso2Service, ReactiveWso2Client reactiveWso2Client, Wso2ClientConfig wso2ClientConfig,
+                             NativeAuthFlowPool flowPool) {
         this.wso2Service = wso2Service;
-        this.objectMapper = new ObjectMapper();
+        this.reactiveWso2Client = reactiveWso2Client;
+        this.wso2ClientConfig = wso2ClientConfig;
+        this.flowPool = flowPool;
     }
     
     /**
      * Initialize native authentication flow
      */
-    public JsonNode initNativeAuth(NativeAuthInitRequest request) {
+    public RawJson initNativeAuth(NativeAuthInitRequest request) {
         logger.info("Initializing native authentication flow for client: {}", request.getClientId());
         
+        RawJson pooled = takePooledFlow(request);
+        if (pooled != null) {
+            return pooled;
+        }
+        
         try {
-            JsonNode result = wso2Service.initNativeAuth(
+            RawJson result = wso2Service.initNativeAuth(
                 request.getClientId(),
                 request.getRedirectUri(),
                 request.getScope(),
@@ -55,11 +66,11 @@ public class NativeAuthService {
     /**
      * Get challenge for passkey authentication
      */
-    public JsonNode getPasskeyChallenge(NativeAuthChallengeRequest request) {
+    public RawJson getPasskeyChallenge(NativeAuthChallengeRequest request) {
         logger.info("Getting passkey challenge for flow: {}", request.getFlowId());
         
         try {
-            JsonNode result = wso2Service.getPasskeyChallenge(
+            RawJson result = wso2Service.getPasskeyChallenge(
                 request.getFlowId(),
                 request.getAuthenticatorId()
             );
@@ -75,12 +86,12 @@ public class NativeAuthService {
     /**
      * Verify passkey authentication credentials
      */
-    public JsonNode verifyPasskeyAuth(NativeAuthVerifyRequest request) {
+    public RawJson verifyPasskeyAuth(NativeAuthVerifyRequest request) {
         logger.info("Verifying passkey authentication for flow: {}", request.getFlowId());
         
         try {
             NativeAuthCredentials credentials = request.getCredentials();
-            JsonNode result = wso2Service.verifyPasskeyAuth(
+            RawJson result = wso2Service.verifyPasskeyAuth(
                 request.getFlowId(),
                 request.getAuthenticatorId(),
                 credentials.getClientDataJSON(),
@@ -98,4 +109,119 @@ public class NativeAuthService {
             throw error;
         }
     }
+    
+    /**
+     * Async variants qua ReactiveWso2Client, dùng bởi ReactiveNativeAuthController khi wso2.client.reactive=true
+     */
+    public Mono<RawJson> initNativeAuthAsync(NativeAuthInitRequest request) {
+        RawJson pooled = takePooledFlow(request);
+        if (pooled != null) {
+            return Mono.just(pooled);
+        }
+        logger.info("Initializing native authentication flow for client: {}", request.getClientId());
+        return reactiveWso2Client.initNativeAuth(
+                request.getRedirectUri(),
+                request.getScope(),
+                request.getResponseType(),
+                request.getResponseMode()
+            )
+            .doOnSuccess(result -> logger.info("Successfully initialized native authentication flow"))
+            .doOnError(error -> logger.error("Error initializing native authentication flow", error));
+    }
+    
+    public Mono<RawJson> getPasskeyChallengeAsync(NativeAuthChallengeRequest request) {
+        return reactiveWso2Client.getPasskeyChallenge(request.getFlowId(), request.getAuthenticatorId())
+            .doOnSuccess(result -> logger.info("Successfully retrieved passkey challenge"))
+            .doOnError(error -> logger.error("Error getting passkey challenge", error));
+    }
+    
+    public Mono<RawJson> verifyPasskeyAuthAsync(NativeAuthVerifyRequest request) {
+        logger.info("Verifying passkey authentication for flow: {}", request.getFlowId());
+        NativeAuthCredentials credentials = request.getCredentials();
+        return reactiveWso2Client.verifyPasskeyAuth(
+                request.getFlowId(),
+                request.getAuthenticatorId(),
+                credentials.getClientDataJSON(),
+                credentials.getAuthenticatorData(),
+                credentials.getSignature(),
+                credentials.getUserHandle(),
+                request.getRequestId(),
+                credentials.getCredentialId()
+            )
+            .doOnSuccess(result -> logger.info("Successfully verified passkey authentication"))
+            .doOnError(error -> logger.error("Error verifying passkey authentication", error));
+    }
+    
+    /**
+     * Pass-through (wso2.client.passthrough): challenge/verify response được stream thẳng sang response.
+     * Chỉ áp dụng cho RestTemplate path
+     */
+    public boolean isPassthrough() {
+        return wso2ClientConfig.isPassthrough() && !wso2ClientConfig.isReactive();
+    }
+    
+    public void initNativeAuthPassthrough(NativeAuthInitRequest request, Wso2Passthrough target) {
+        logger.info("Initializing native authentication flow for client: {}", request.getClientId());
+        RawJson pooled = takePooledFlow(request);
+        if (pooled != null) {
+            target.run(() -> {
+                try {
+                    target.writeBody(pooled.json());
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to write pooled native auth flow", e);
+                }
+            });
+            return;
+        }
+        try {
+            target.run(() -> wso2Service.streamNativeAuthInit(
+                request.getRedirectUri(),
+                request.getScope(),
+                request.getResponseType(),
+                request.getResponseMode(),
+                target
+            ));
+            logger.info("Successfully initialized native authentication flow");
+        } catch (Exception error) {
+            logger.error("Error initializing native authentication flow", error);
+            throw error;
+        }
+    }
+    
+    public void verifyPasskeyAuthPassthrough(NativeAuthVerifyRequest request, Wso2Passthrough target) {
+        NativeAuthCredentials credentials = request.getCredentials();
+        try {
+            target.run(() -> wso2Service.streamPasskeyVerify(
+                request.getFlowId(),
+                request.getAuthenticatorId(),
+                credentials.getClientDataJSON(),
+                credentials.getAuthenticatorData(),
+                credentials.getSignature(),
+                credentials.getUserHandle(),
+                request.getRequestId(),
+                credentials.getCredentialId(),
+                target
+            ));
+            logger.info("Successfully verified passkey authentication");
+        } catch (Exception error) {
+            logger.error("Error verifying passkey authentication", error);
+            throw error;
+        }
+    }
+    
+    /**
+     * Flow đã init sẵn (kèm challenge passkey) từ NativeAuthFlowPool, null nếu pool tắt hoặc rỗng
+     */
+    private RawJson takePooledFlow(NativeAuthInitRequest request) {
+        RawJson pooled = flowPool.take(
+            request.getRedirectUri(),
+            request.getScope(),
+            request.getResponseType(),
+            request.getResponseMode()
+        );
+        if (pooled != null) {
+            logger.info("Served native authentication flow from pre-initialized pool");
+        }
+        return pooled;
+    }
 }
@@ -1,8 +1,6 @@
 package com.anhngo.wso2.fido.service;
 
 import com.anhngo.wso2.fido.config.Wso2Config;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
@@ -13,7 +11,6 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.Base64;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
@@ -24,12 +21,20 @@ public class OAuth2Service {
 
     private final RestTemplate restTemplate;
     private final Wso2Config wso2Config;
-    private final ObjectMapper objectMapper;
-
-    public OAuth2Service(RestTemplate restTemplate, Wso2Config wso2Config, ObjectMapper objectMapper) {
+    private final JsonCodec jsonCodec;
+    private final JwtValidator jwtValidator;
+    private final IntrospectionCache introspectionCache;
+    private final Wso2CallExecutor wso2Calls;
+
+    public OAuth2Service(RestTemplate restTemplate, Wso2Config wso2Config, JsonCodec jsonCodec,
+                         JwtValidator jwtValidator, IntrospectionCache introspectionCache,
+                         Wso2CallExecutor wso2Calls) {
         this.restTemplate = restTemplate;
         this.wso2Config = wso2Config;
-        this.objectMapper = objectMapper;
+        this.jsonCodec = jsonCodec;
+        this.jwtValidator = jwtValidator;
+        this.introspectionCache = introspectionCache;
+        this.wso2Calls = wso2Calls;
     }
 
     /**
@@ -64,26 +69,11 @@ public class OAuth2Service {
 
             HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
 
-            logger.info("=== WSO2 IS OAuth2 Token Exchange Request ===");
-            logger.info("URL: {}", tokenUrl);
-            logger.info("Headers: {}", headers);
-            logger.info("Payload: {}", formData);
-
-            ResponseEntity<String> response = restTemplate.postForEntity(tokenUrl, request, String.class);
-
-            logger.info("=== WSO2 IS OAuth2 Token Exchange Response ===");
-            logger.info("Status: {}", response.getStatusCode());
-            logger.info("Response Headers: {}", response.getHeaders());
-            logger.info("Response Body: {}", response.getBody());
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.CODE_EXCHANGE, tokenUrl, request,
+                () -> restTemplate.postForEntity(tokenUrl, request, String.class));
 
             if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode responseJson = objectMapper.readTree(response.getBody());
-                Map<String, Object> result = new HashMap<>();
-                
-                // Convert JsonNode to Map
-                responseJson.fields().forEachRemaining(entry -> 
-                    result.put(entry.getKey(), entry.getValue().asText())
-                );
+                Map<String, Object> result = Wso2Payloads.textFields(jsonCodec.readMap(response.getBody()));
 
                 logger.info("Successfully exchanged authorization code for tokens");
                 return result;
@@ -148,16 +138,11 @@ public class OAuth2Service {
 
             logger.info("Refreshing access token at: {}", tokenUrl);
 
-            ResponseEntity<String> response = restTemplate.postForEntity(tokenUrl, request, String.class);
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.TOKEN_REFRESH, tokenUrl, request,
+                () -> restTemplate.postForEntity(tokenUrl, request, String.class));
 
             if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode responseJson = objectMapper.readTree(response.getBody());
-                Map<String, Object> result = new HashMap<>();
-                
-                // Convert JsonNode to Map
-                responseJson.fields().forEachRemaining(entry -> 
-                    result.put(entry.getKey(), entry.getValue().asText())
-                );
+                Map<String, Object> result = Wso2Payloads.textFields(jsonCodec.readMap(response.getBody()));
 
                 logger.info("Successfully refreshed access token");
                 return result;
@@ -176,6 +161,9 @@ public class OAuth2Service {
      * Revoke token
      */
     public void revokeToken(String token, String tokenTypeHint) {
+        introspectionCache.evict(token);
+        // JWT được validate cục bộ nên phải chặn ở JwtValidator, không chỉ xoá introspection cache
+        jwtValidator.revoke(token);
         try {
             String revokeUrl = wso2Config.getBaseUrl() + "/oauth2/revoke";
 
@@ -197,7 +185,8 @@ public class OAuth2Service {
 
             logger.info("Revoking token at: {}", revokeUrl);
 
-            ResponseEntity<String> response = restTemplate.postForEntity(revokeUrl, request, String.class);
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.TOKEN_REVOKE, revokeUrl, request,
+                () -> restTemplate.postForEntity(revokeUrl, request, String.class));
 
             if (response.getStatusCode() == HttpStatus.OK) {
                 logger.info("Successfully revoked token");
@@ -213,9 +202,17 @@ public class OAuth2Service {
     }
 
     /**
-     * Introspect token
+     * Introspect token. JWT được validate cục bộ bằng JWKS, chỉ token opaque mới gọi WSO2 IS
      */
     public Map<String, Object> introspectToken(String token) {
+        Map<String, Object> localResult = jwtValidator.introspect(token);
+        if (localResult != null) {
+            return localResult;
+        }
+        return introspectionCache.get(token, this::introspectRemote);
+    }
+
+    private Map<String, Object> introspectRemote(String token) {
         try {
             String introspectUrl = wso2Config.getBaseUrl() + "/oauth2/introspect";
 
@@ -236,22 +233,11 @@ public class OAuth2Service {
 
             logger.info("Introspecting token at: {}", introspectUrl);
 
-            ResponseEntity<String> response = restTemplate.postForEntity(introspectUrl, request, String.class);
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.TOKEN_INTROSPECT, introspectUrl, request,
+                () -> restTemplate.postForEntity(introspectUrl, request, String.class));
 
             if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode responseJson = objectMapper.readTree(response.getBody());
-                Map<String, Object> result = new HashMap<>();
-                
-                // Convert JsonNode to Map
-                responseJson.fields().forEachRemaining(entry -> {
-                    if (entry.getValue().isBoolean()) {
-                        result.put(entry.getKey(), entry.getValue().asBoolean());
-                    } else if (entry.getValue().isNumber()) {
-                        result.put(entry.getKey(), entry.getValue().asLong());
-                    } else {
-                        result.put(entry.getKey(), entry.getValue().asText());
-                    }
-                });
+                Map<String, Object> result = Wso2Payloads.introspectionFields(jsonCodec.readMap(response.getBody()));
 
                 logger.info("Successfully introspected token");
                 return result;
@@ -0,0 +1,309 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.dto.NativeAuthFlowResponse;
+import com.anhngo.wso2.fido.dto.RawJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking WSO2 IS client (WebClient/reactor-netty) với cùng các operation như Wso2Service và OAuth2Service.
+ * Không giữ thread trong lúc chờ WSO2 IS trả lời. Mọi call đi qua Wso2CallExecutor.executeAsync như RestTemplate path
+ * (timer, wire log, circuit breaker/bulkhead, retry); deadline của request được ghi vào Reactor context lúc assembly.
+ */
+@Service
+public class ReactiveWso2Client {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveWso2Client.class);
+
+    private static final String CLIENT_TOKEN_SCOPE = "openid";
+
+    private final WebClient wso2WebClient;
+    private final Wso2Config wso2Config;
+    private final JsonCodec jsonCodec;
+    private final ClientCredentialsTokenManager tokenManager;
+    private final JwtValidator jwtValidator;
+    private final IntrospectionCache introspectionCache;
+    private final Wso2CallExecutor wso2Calls;
+    private final Scheduler blockingScheduler;
+
+    public ReactiveWso2Client(WebClient wso2WebClient, Wso2Config wso2Config, JsonCodec jsonCodec,
+                              ClientCredentialsTokenManager tokenManager, JwtValidator jwtValidator,
+                              IntrospectionCache introspectionCache, Wso2CallExecutor wso2Calls, Wso2Executors executors) {
+        this.wso2WebClient = wso2WebClient;
+        this.wso2Config = wso2Config;
+        this.jsonCodec = jsonCodec;
+        this.tokenManager = tokenManager;
+        this.jwtValidator = jwtValidator;
+        this.introspectionCache = introspectionCache;
+        this.wso2Calls = wso2Calls;
+        this.blockingScheduler = Schedulers.fromExecutorService(executors.outbound(), "wso2-call");
+    }
+
+    public Mono<RawJson> getFidoRegistrationOptions(String username, String displayName, String userAccessToken) {
+        if (userAccessToken == null || userAccessToken.trim().isEmpty()) {
+            return Mono.error(new RuntimeException("User access token is required for FIDO registration"));
+        }
+
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("appId", Wso2Payloads.FIDO_APP_ID);
+
+        String path = Wso2Payloads.webauthnPath(wso2Config, "start-usernameless-registration");
+        return Wso2CallExecutor.withDeadline(send(Wso2Operation.FIDO_REGISTRATION_OPTIONS, path, formData, wso2WebClient.post()
+                .uri(path)
+                .headers(headers -> headers.setBearerAuth(userAccessToken))
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData(formData)))
+            .map(RawJson::of)
+            .onErrorMap(e -> new RuntimeException("Failed to get registration options", e)));
+    }
+
+    public Mono<RawJson> registerFidoCredential(String username, String displayName, String requestId,
+                                                String attestationObject, String clientDataJSON, String rawId,
+                                                String userAccessToken) {
+        if (userAccessToken == null || userAccessToken.trim().isEmpty()) {
+            return Mono.error(new RuntimeException("User access token is required for FIDO registration"));
+        }
+
+        return Wso2CallExecutor.withDeadline(Mono.fromCallable(() -> Wso2Payloads.registrationFinishBody(jsonCodec, requestId, rawId, attestationObject, clientDataJSON))
+            .flatMap(jsonBody -> send(Wso2Operation.FIDO_REGISTRATION_FINISH, Wso2Payloads.FINISH_REGISTRATION_PATH, jsonBody,
+                wso2WebClient.post()
+                    .uri(Wso2Payloads.FINISH_REGISTRATION_PATH)
+                    .headers(headers -> headers.setBearerAuth(userAccessToken))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(jsonBody)))
+            .map(RawJson::of)
+            .onErrorMap(e -> new RuntimeException("Failed to register FIDO credential", e)));
+    }
+
+    public Mono<RawJson> getFidoAuthenticationOptions(String username, String userAccessToken) {
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("appId", Wso2Payloads.FIDO_APP_ID);
+
+        String path = Wso2Payloads.webauthnPath(wso2Config, "start-authentication");
+        return Wso2CallExecutor.withDeadline(bearerToken(userAccessToken)
+            .flatMap(token -> send(Wso2Operation.FIDO_AUTHENTICATION_OPTIONS, path, formData, wso2WebClient.post()
+                .uri(path)
+                .headers(headers -> headers.setBearerAuth(token))
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData(formData))))
+            .map(RawJson::of)
+            .onErrorMap(e -> new RuntimeException("Failed to get authentication options", e)));
+    }
+
+    public Mono<RawJson> authenticateFido(String username, String assertionObject, String clientDataJSON,
+                                          String rawId, String userAccessToken) {
+        if (userAccessToken == null || userAccessToken.trim().isEmpty()) {
+            return Mono.error(new RuntimeException("User access token is required for FIDO authentication"));
+        }
+
+        String path = Wso2Payloads.webauthnPath(wso2Config, "finish-authentication");
+        String jsonBody = Wso2Payloads.authenticationFinishBody(rawId, assertionObject, clientDataJSON);
+        return Wso2CallExecutor.withDeadline(send(Wso2Operation.FIDO_AUTHENTICATION_FINISH, path, jsonBody, wso2WebClient.post()
+                .uri(path)
+                .headers(headers -> headers.setBearerAuth(userAccessToken))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(jsonBody))
+            .map(RawJson::of)
+            .onErrorMap(e -> new RuntimeException("Failed to authenticate FIDO", e)));
+    }
+
+    public Mono<Void> deregisterFidoCredential(String credentialId, String userAccessToken) {
+        String path = Wso2Payloads.webauthnPath(wso2Config, credentialId);
+        Mono<ResponseEntity<Void>> call = wso2WebClient.delete()
+            .uri(path)
+            .headers(headers -> {
+                headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+                if (userAccessToken != null && !userAccessToken.trim().isEmpty()) {
+                    headers.setBearerAuth(userAccessToken);
+                } else {
+                    headers.setBasicAuth(Wso2Payloads.encodedClientCredentials(wso2Config));
+                }
+            })
+            .retrieve()
+            .toBodilessEntity();
+        return Wso2CallExecutor.withDeadline(wso2Calls.executeAsync(Wso2Operation.FIDO_DEREGISTER, url(path), null, call)
+            .then()
+            .onErrorMap(e -> new RuntimeException("Failed to deregister FIDO credential from WSO2 IS", e)));
+    }
+
+    /**
+     * Native authentication: /oauth2/authorize/ rồi tự lấy challenge nếu có passkey authenticator
+     */
+    public Mono<RawJson> initNativeAuth(String redirectUri, String scope, String responseType, String responseMode) {
+        String form = Wso2Payloads.nativeAuthInitForm(wso2Config, redirectUri, scope, responseType, responseMode);
+        return Wso2CallExecutor.withDeadline(send(Wso2Operation.NATIVE_AUTH_INIT, Wso2Payloads.AUTHORIZE_PATH, form, wso2WebClient.post()
+                .uri(Wso2Payloads.AUTHORIZE_PATH)
+                .headers(this::clientAuthJson)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .bodyValue(form))
+            .flatMap(body -> Mono.deferContextual(context -> {
+                // Chỉ bind flowId và authenticators, client nhận nguyên body gốc
+                RawJson initResponse = RawJson.of(body);
+                NativeAuthFlowResponse flow = read(body, NativeAuthFlowResponse.class);
+                String authenticatorId = Wso2Payloads.findPasskeyAuthenticatorId(flow);
+                // Sắp hết deadline thì trả init response luôn (client tự gọi /native-auth/challenge)
+                if (authenticatorId == null || flow.flowId() == null
+                        || !wso2Calls.hasBudgetFor(Wso2Operation.NATIVE_AUTH_CHALLENGE, Wso2CallExecutor.deadline(context))) {
+                    return Mono.just(initResponse);
+                }
+                return getPasskeyChallenge(flow.flowId(), authenticatorId)
+                    .onErrorResume(challengeError -> {
+                        logger.warn("Failed to get challenge automatically, returning init response only: {}", challengeError.getMessage());
+                        return Mono.just(initResponse);
+                    });
+            }))
+            .onErrorMap(e -> new RuntimeException("Failed to call WSO2 IS native auth init", e)));
+    }
+
+    public Mono<RawJson> getPasskeyChallenge(String flowId, String authenticatorId) {
+        return Wso2CallExecutor.withDeadline(Mono.fromCallable(() -> Wso2Payloads.passkeyChallengeBody(jsonCodec, flowId, authenticatorId))
+            .flatMap(jsonBody -> postAuthn(Wso2Operation.NATIVE_AUTH_CHALLENGE, jsonBody))
+            .onErrorMap(e -> new RuntimeException("Failed to call WSO2 IS passkey challenge", e)));
+    }
+
+    public Mono<RawJson> verifyPasskeyAuth(String flowId, String authenticatorId, String clientDataJSON,
+                                           String authenticatorData, String signature, String userHandle,
+                                           String requestId, String credentialId) {
+        return Wso2CallExecutor.withDeadline(Mono.fromCallable(() -> Wso2Payloads.passkeyVerifyBodyBytes(jsonCodec, flowId,
+                authenticatorId, requestId, credentialId, authenticatorData, clientDataJSON, signature, userHandle))
+            .flatMap(jsonBody -> postAuthn(Wso2Operation.NATIVE_AUTH_VERIFY, jsonBody))
+            .onErrorMap(e -> new RuntimeException("Failed to call WSO2 IS passkey verify", e)));
+    }
+
+    public Mono<Map<String, Object>> exchangeAuthorizationCode(String authorizationCode) {
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("grant_type", "authorization_code");
+        formData.add("code", authorizationCode);
+        formData.add("redirect_uri", wso2Config.getOauth().getRedirectUri());
+        formData.add("scope", "openid");
+        return Wso2CallExecutor.withDeadline(postClientForm(Wso2Operation.CODE_EXCHANGE, Wso2Payloads.TOKEN_PATH, formData)
+            .map(Wso2Payloads::textFields)
+            .onErrorMap(e -> new RuntimeException("Failed to exchange authorization code", e)));
+    }
+
+    public Mono<Map<String, Object>> refreshAccessToken(String refreshToken) {
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("grant_type", "refresh_token");
+        formData.add("refresh_token", refreshToken);
+        formData.add("scope", "openid");
+        return Wso2CallExecutor.withDeadline(postClientForm(Wso2Operation.TOKEN_REFRESH, Wso2Payloads.TOKEN_PATH, formData)
+            .map(Wso2Payloads::textFields)
+            .onErrorMap(e -> new RuntimeException("Failed to refresh access token", e)));
+    }
+
+    public Mono<Map<String, Object>> introspectToken(String token) {
+        // JWT validate cục bộ (có thể phải tải JWKS nên chạy trên blockingScheduler), token opaque mới gọi WSO2 IS
+        return Wso2CallExecutor.withDeadline(Mono.fromCallable(() -> jwtValidator.introspect(token))
+            .subscribeOn(blockingScheduler)
+            // suppressCancel: future được chia sẻ với các request đang chờ cùng token
+            .switchIfEmpty(Mono.defer(() -> Mono.fromFuture(
+                introspectionCache.getAsync(token, t -> introspectRemote(t).toFuture()), true))));
+    }
+
+    private Mono<Map<String, Object>> introspectRemote(String token) {
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("token", token);
+        return postClientForm(Wso2Operation.TOKEN_INTROSPECT, Wso2Payloads.INTROSPECT_PATH, formData)
+            .map(Wso2Payloads::introspectionFields)
+            .onErrorMap(e -> new RuntimeException("Failed to introspect token", e));
+    }
+
+    public Mono<Void> revokeToken(String token, String tokenTypeHint) {
+        introspectionCache.evict(token);
+        // JWT được validate cục bộ nên phải chặn ở JwtValidator, không chỉ xoá introspection cache
+        jwtValidator.revoke(token);
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("token", token);
+        formData.add("token_type_hint", tokenTypeHint);
+        Mono<ResponseEntity<Void>> call = wso2WebClient.post()
+            .uri(Wso2Payloads.REVOKE_PATH)
+            .headers(headers -> headers.setBasicAuth(Wso2Payloads.encodedClientCredentials(wso2Config)))
+            .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+            .body(BodyInserters.fromFormData(formData))
+            .retrieve()
+            .toBodilessEntity();
+        return Wso2CallExecutor.withDeadline(wso2Calls.executeAsync(Wso2Operation.TOKEN_REVOKE, url(Wso2Payloads.REVOKE_PATH),
+                new HttpEntity<>(formData), call)
+            .then()
+            .onErrorMap(e -> new RuntimeException("Failed to revoke token", e)));
+    }
+
+    private Mono<RawJson> postAuthn(Wso2Operation operation, Object jsonBody) {
+        return send(operation, Wso2Payloads.AUTHN_PATH, jsonBody, wso2WebClient.post()
+                .uri(Wso2Payloads.AUTHN_PATH)
+                .headers(this::clientAuthJson)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(jsonBody))
+            .map(RawJson::of);
+    }
+
+    private Mono<Map<String, Object>> postClientForm(Wso2Operation operation, String path, MultiValueMap<String, String> formData) {
+        return send(operation, path, formData, wso2WebClient.post()
+                .uri(path)
+                .headers(headers -> headers.setBasicAuth(Wso2Payloads.encodedClientCredentials(wso2Config)))
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData(formData)))
+            .map(this::readMap);
+    }
+
+    /**
+     * Gửi request qua Wso2CallExecutor; body chỉ dùng cho wire log. Request được gửi lại khi retry subscribe lại
+     */
+    private Mono<String> send(Wso2Operation operation, String path, Object body, WebClient.RequestHeadersSpec<?> request) {
+        return wso2Calls.executeAsync(operation, url(path), new HttpEntity<>(body), request.retrieve().toEntity(String.class))
+            .mapNotNull(HttpEntity::getBody);
+    }
+
+    private String url(String path) {
+        return wso2Config.getBaseUrl() + path;
+    }
+
+    private void clientAuthJson(HttpHeaders headers) {
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.setBasicAuth(Wso2Payloads.encodedClientCredentials(wso2Config));
+    }
+
+    /**
+     * User token nếu có, nếu không thì client_credentials token (cache hit không block)
+     */
+    private Mono<String> bearerToken(String userAccessToken) {
+        if (userAccessToken != null && !userAccessToken.trim().isEmpty()) {
+            return Mono.just(userAccessToken);
+        }
+        return Mono.fromCallable(() -> tokenManager.getToken(CLIENT_TOKEN_SCOPE))
+            .subscribeOn(blockingScheduler);
+    }
+
+    private Map<String, Object> readMap(String body) {
+        try {
+            return jsonCodec.readMap(body);
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid JSON response from WSO2 IS", e);
+        }
+    }
+
+    private <T> T read(String body, Class<T> type) {
+        try {
+            return jsonCodec.read(body, type);
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid JSON response from WSO2 IS", e);
+        }
+    }
+}
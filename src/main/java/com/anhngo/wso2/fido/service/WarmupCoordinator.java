@@ -0,0 +1,202 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.WarmupConfig;
+import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.config.Wso2HttpClientPoolConfig;
+import com.anhngo.wso2.fido.dto.ApiResponse;
+import com.anhngo.wso2.fido.dto.NativeAuthFlowResponse;
+import com.anhngo.wso2.fido.dto.RawJson;
+import com.anhngo.wso2.fido.dto.Wso2TokenResponse;
+import com.anhngo.wso2.fido.transport.Wso2Transport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NativeDetector;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Warm-up sau khi context khởi động xong: lấy client token + admin session, mở sẵn connection tới WSO2 IS
+ * và chạy JSON codec/payload builders trên dữ liệu giả đến khi JIT compile xong hot path.
+ * Listener ApplicationReadyEvent chạy đồng bộ và Spring Boot chỉ publish ReadinessState.ACCEPTING_TRAFFIC
+ * sau khi các listener trả về, nên pod chỉ nhận traffic (readiness probe) khi warm-up xong hoặc hết timeout.
+ * Lỗi của từng stage chỉ được log, không chặn khởi động. Metric: gateway.warmup (tag stage, outcome).
+ */
+@Component
+public class WarmupCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmupCoordinator.class);
+
+    private static final String CLIENT_TOKEN_SCOPE = "openid";
+
+    private final WarmupConfig config;
+    private final ClientCredentialsTokenManager tokenManager;
+    private final AdminSessionManager adminSessionManager;
+    private final Wso2Transport transport;
+    private final Wso2Config wso2Config;
+    private final Wso2HttpClientPoolConfig poolConfig;
+    private final JsonCodec jsonCodec;
+    private final Wso2Executors executors;
+    private final MeterRegistry meterRegistry;
+
+    public WarmupCoordinator(WarmupConfig config, ClientCredentialsTokenManager tokenManager,
+                             AdminSessionManager adminSessionManager, Wso2Transport transport, Wso2Config wso2Config,
+                             Wso2HttpClientPoolConfig poolConfig, JsonCodec jsonCodec, Wso2Executors executors,
+                             MeterRegistry meterRegistry) {
+        this.config = config;
+        this.tokenManager = tokenManager;
+        this.adminSessionManager = adminSessionManager;
+        this.transport = transport;
+        this.wso2Config = wso2Config;
+        this.poolConfig = poolConfig;
+        this.jsonCodec = jsonCodec;
+        this.executors = executors;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + config.getTimeout().toNanos();
+
+        // Các stage chạy song song: token/connection chờ network, JIT chiếm CPU
+        CompletableFuture<Void> stages = CompletableFuture.allOf(
+            stage("tokens", config.isTokens(), this::fetchTokens),
+            stage("connections", config.isConnections() && poolConfig.getPrewarmConnections() > 0, this::openConnections),
+            // Native image đã compile AOT, không có JIT để warm-up
+            stage("jit", config.getJitIterations() > 0 && !NativeDetector.inNativeImage(), () -> exerciseCodec(deadline)));
+        try {
+            stages.get(config.getTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            logger.info("Warm-up finished in {}ms, accepting traffic", (System.nanoTime() - start) / 1_000_000);
+        } catch (TimeoutException e) {
+            logger.warn("Warm-up did not finish within {}, accepting traffic anyway", config.getTimeout());
+        } catch (ExecutionException e) {
+            logger.warn("Warm-up failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> stage(String name, boolean enabled, Callable<Integer> task) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            String outcome = "success";
+            try {
+                int result = task.call();
+                logger.info("Warm-up stage {} done ({}) in {}ms", name, result, (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                outcome = "failure";
+                logger.warn("Warm-up stage {} failed: {}", name, e.getMessage());
+            }
+            Timer.builder("gateway.warmup")
+                .description("Startup warm-up stages run before readiness")
+                .tag("stage", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }, executors.outbound());
+    }
+
+    private int fetchTokens() {
+        tokenManager.getToken(CLIENT_TOKEN_SCOPE);
+        adminSessionManager.getSession();
+        return 2;
+    }
+
+    /**
+     * Mở sẵn prewarm-connections connection (kèm TLS handshake) tới WSO2 IS qua transport đang dùng
+     */
+    private int openConnections() {
+        if (wso2Config.getBaseUrl() == null || wso2Config.getBaseUrl().isBlank()) {
+            return 0;
+        }
+        return transport.prewarm(URI.create(wso2Config.getBaseUrl()), poolConfig.getPrewarmConnections());
+    }
+
+    /**
+     * Chạy các hot path CPU của một login (dựng payload gửi WSO2 IS, đọc response, serialize ApiResponse)
+     * trên dữ liệu giả, dùng đúng JsonCodec/ObjectMapper của ứng dụng để các serializer được tạo và cache sẵn
+     */
+    private int exerciseCodec(long deadline) throws Exception {
+        String requestId = "5b2f0c1e-9d6a-4a61-8f0e-0c1f3d1f8a42";
+        String flowId = "b7c2a9f4-1e0d-4c4b-9a57-3a2d8e6f0c11";
+        String rawId = base64Url(randomBytes(32));
+        String attestationObject = base64Url(randomBytes(700));
+        String clientDataJSON = base64Url(("{\"type\":\"webauthn.get\",\"challenge\":\"" + base64Url(randomBytes(32))
+            + "\",\"origin\":\"https://anhngo.site\",\"crossOrigin\":false}").getBytes(StandardCharsets.UTF_8));
+        String authenticatorData = base64Url(randomBytes(37));
+        String signature = base64Url(randomBytes(72));
+        String userHandle = base64Url(randomBytes(16));
+        String authenticatorId = "RklET0F1dGhlbnRpY2F0b3I6TE9DQUw";
+
+        Map<String, String> loginForm = new LinkedHashMap<>();
+        loginForm.put("grant_type", "password");
+        loginForm.put("username", "warmup@anhngo.site");
+        loginForm.put("password", "p@ss w0rd&more");
+        loginForm.put("scope", "openid profile");
+
+        String tokenJson = "{\"access_token\":\"" + base64Url(randomBytes(64)) + "\",\"refresh_token\":\""
+            + base64Url(randomBytes(32)) + "\",\"token_type\":\"Bearer\",\"expires_in\":3600,\"scope\":\"openid profile\"}";
+        String introspectionJson = "{\"active\":true,\"sub\":\"warmup\",\"client_id\":\"warmup\","
+            + "\"scope\":\"openid profile\",\"exp\":1760003600,\"iat\":1760000000}";
+        String flowJson = "{\"flowId\":\"" + flowId + "\",\"flowStatus\":\"INCOMPLETE\",\"nextStep\":{\"stepType\":"
+            + "\"MULTI_OPTIONS_PROMPT\",\"authenticators\":[{\"authenticatorId\":\"QmFzaWNBdXRoZW50aWNhdG9yOkxPQ0FM\","
+            + "\"authenticator\":\"Username & Password\"},{\"authenticatorId\":\"" + authenticatorId
+            + "\",\"authenticator\":\"Passkey\"}]}}";
+        String optionsJson = "{\"requestId\":\"" + requestId + "\",\"publicKeyCredentialCreationOptions\":"
+            + "{\"rp\":{\"name\":\"FIDO Demo Application\",\"id\":\"anhngo.site\"},\"challenge\":\"" + base64Url(randomBytes(32))
+            + "\",\"pubKeyCredParams\":[{\"type\":\"public-key\",\"alg\":-7},{\"type\":\"public-key\",\"alg\":-257}],"
+            + "\"timeout\":60000,\"attestation\":\"none\"}}";
+
+        long checksum = 0;
+        int iterations = 0;
+        while (iterations < config.getJitIterations() && System.nanoTime() < deadline) {
+            checksum += Wso2Payloads.registrationFinishBody(jsonCodec, requestId, rawId, attestationObject, clientDataJSON).length();
+            checksum += Wso2Payloads.authenticationFinishBody(rawId, attestationObject, clientDataJSON).length();
+            checksum += Wso2Payloads.passkeyChallengeBody(jsonCodec, flowId, authenticatorId).length();
+            checksum += Wso2Payloads.passkeyVerifyBodyBytes(jsonCodec, flowId, authenticatorId, requestId, rawId,
+                authenticatorData, clientDataJSON, signature, userHandle).length;
+            checksum += Wso2Payloads.formData(loginForm).length();
+
+            checksum += jsonCodec.read(tokenJson, Wso2TokenResponse.class).expiresIn();
+            checksum += Wso2Payloads.introspectionFields(jsonCodec.readMap(introspectionJson)).size();
+            String passkeyId = Wso2Payloads.findPasskeyAuthenticatorId(jsonCodec.read(flowJson, NativeAuthFlowResponse.class));
+            checksum += passkeyId != null ? passkeyId.length() : 0;
+            checksum += jsonCodec.writeBytes(ApiResponse.success("Registration options retrieved", RawJson.of(optionsJson))).length;
+            iterations++;
+        }
+        logger.debug("JIT warm-up checksum {}", checksum);
+        return iterations;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,274 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.DeadlineConfig;
+import com.anhngo.wso2.fido.exception.DeadlineExceededException;
+import com.anhngo.wso2.fido.exception.Wso2UnavailableException;
+import com.anhngo.wso2.fido.filter.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Điểm chung cho mọi call RestTemplate tới WSO2 IS.
+ * Mỗi call được đo bằng timer wso2.client.requests (percentile histogram) với tag operation, status và outcome,
+ * để phân biệt thời gian chờ WSO2 IS với thời gian chờ connection pool (xem wso2.http.pool.*).
+ * Flow được sample bởi Wso2WireLogger thì request/response cũng được ghi vào wire log (đã redact).
+ * Call đi qua circuit breaker/bulkhead của Wso2Resilience; call bị từ chối có status REJECTED.
+ * Trong request inbound, call không được bắt đầu khi đã hết deadline (timeout theo thời gian còn lại do
+ * RestTemplateConfig đặt); hết deadline được đếm bằng gateway.deadline.exceeded và trả DeadlineExceededException.
+ * Operation idempotent được retry qua Wso2Retries; mỗi attempt có timer và wire log riêng.
+ * Call WebClient (wso2.client.reactive=true) đi qua executeAsync với cùng timer, wire log, breaker/bulkhead và retry;
+ * deadline được lấy từ Reactor context (withDeadline) vì call chạy trên event loop, không có ThreadLocal.
+ */
+@Component
+public class Wso2CallExecutor {
+
+    static final String TIMER_NAME = "wso2.client.requests";
+
+    private final MeterRegistry meterRegistry;
+    private final Wso2WireLogger wireLogger;
+    private final Wso2Resilience resilience;
+    private final DeadlineConfig deadlineConfig;
+    private final Wso2Retries retries;
+
+    public Wso2CallExecutor(MeterRegistry meterRegistry, Wso2WireLogger wireLogger, Wso2Resilience resilience,
+                            DeadlineConfig deadlineConfig, Wso2Retries retries) {
+        this.meterRegistry = meterRegistry;
+        this.wireLogger = wireLogger;
+        this.resilience = resilience;
+        this.deadlineConfig = deadlineConfig;
+        this.retries = retries;
+    }
+
+    /**
+     * Còn đủ thời gian (gateway.deadline.fallback-reserve) cho một call phụ không; nếu không thì caller dùng fallback
+     */
+    public boolean hasBudgetFor(Wso2Operation operation) {
+        return hasBudgetFor(operation, Deadline.current());
+    }
+
+    public boolean hasBudgetFor(Wso2Operation operation, Deadline deadline) {
+        if (deadline == null || deadline.hasAtLeast(deadlineConfig.getFallbackReserve())) {
+            return true;
+        }
+        Counter.builder("gateway.deadline.fallbacks")
+            .description("Optional WSO2 IS calls skipped because the request deadline was close")
+            .tag("operation", operation.tagValue())
+            .register(meterRegistry)
+            .increment();
+        return false;
+    }
+
+    public <T> ResponseEntity<T> execute(Wso2Operation operation, Supplier<ResponseEntity<T>> call) {
+        return execute(operation, null, null, call);
+    }
+
+    public <T> ResponseEntity<T> execute(Wso2Operation operation, String url, HttpEntity<?> request,
+                                         Supplier<ResponseEntity<T>> call) {
+        if (retries.isRetryable(operation)) {
+            return retries.retry(operation, () -> attempt(operation, url, request, call));
+        }
+        return attempt(operation, url, request, call);
+    }
+
+    /**
+     * Như execute nhưng với operation bật wso2.retry.hedge, call thứ hai được gửi nếu call đầu chậm hơn hedge delay.
+     * Chỉ dùng cho call mà response có thể bỏ đi (không stream sang servlet response)
+     */
+    public <T> ResponseEntity<T> executeHedged(Wso2Operation operation, String url, HttpEntity<?> request,
+                                               Supplier<ResponseEntity<T>> call) {
+        if (retries.isHedged(operation)) {
+            return retries.hedge(operation, () -> execute(operation, url, request, call));
+        }
+        return execute(operation, url, request, call);
+    }
+
+    /**
+     * Như execute cho call WebClient. call phải lazy (request gửi lúc subscribe) để retry subscribe lại được.
+     * Hedge không áp dụng cho call reactive
+     */
+    public <T> Mono<ResponseEntity<T>> executeAsync(Wso2Operation operation, String url, HttpEntity<?> request,
+                                                    Mono<ResponseEntity<T>> call) {
+        return Mono.deferContextual(context -> {
+            Deadline deadline = deadline(context);
+            Mono<ResponseEntity<T>> attempt = attemptAsync(operation, url, request, call, deadline);
+            if (retries.isRetryable(operation)) {
+                return retries.retryAsync(operation, attempt, deadline);
+            }
+            return attempt;
+        });
+    }
+
+    /**
+     * Ghi deadline của request thread hiện tại vào Reactor context, để mọi call WSO2 IS bên trong mono
+     * (kể cả call lồng trong flatMap chạy trên event loop) dùng chung deadline của request
+     */
+    public static <T> Mono<T> withDeadline(Mono<T> mono) {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return mono;
+        }
+        return mono.contextWrite(context -> context.hasKey(Deadline.class) ? context : context.put(Deadline.class, deadline));
+    }
+
+    /**
+     * Deadline trong Reactor context, nếu không có thì deadline của thread hiện tại
+     */
+    public static Deadline deadline(ContextView context) {
+        return context.getOrDefault(Deadline.class, Deadline.current());
+    }
+
+    private <T> Mono<ResponseEntity<T>> attemptAsync(Wso2Operation operation, String url, HttpEntity<?> request,
+                                                     Mono<ResponseEntity<T>> call, Deadline deadline) {
+        return Mono.defer(() -> {
+            boolean wire = wireLogger.sample();
+            if (wire) {
+                wireLogger.logRequest(operation, url, request);
+            }
+            long start = System.nanoTime();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            if (deadline != null && deadline.isExpired()) {
+                sample.stop(timer(operation, "DEADLINE_EXCEEDED", "UNKNOWN"));
+                return Mono.error(deadlineExceeded(operation, "before-call", null));
+            }
+            // WebClient chỉ có response timeout cố định, thời gian còn lại của request được áp bằng timeout()
+            Mono<ResponseEntity<T>> bounded = deadline != null ? call.timeout(deadline.remaining()) : call;
+            return resilience.decorate(operation, bounded)
+                .onErrorMap(TimeoutException.class, e -> deadlineExceeded(operation, "in-call", e))
+                .doOnSuccess(response -> {
+                    if (response == null) {
+                        sample.stop(timer(operation, "CLIENT_ERROR", "UNKNOWN"));
+                        return;
+                    }
+                    sample.stop(timer(operation, String.valueOf(response.getStatusCode().value()),
+                        outcome(response.getStatusCode())));
+                    if (wire) {
+                        wireLogger.logResponse(operation, elapsedMillis(start), response);
+                    }
+                })
+                .doOnError(error -> {
+                    String status = "CLIENT_ERROR";
+                    String outcome = "UNKNOWN";
+                    if (error instanceof DeadlineExceededException) {
+                        status = "DEADLINE_EXCEEDED";
+                    } else if (error instanceof Wso2UnavailableException) {
+                        status = "REJECTED";
+                    } else if (error instanceof WebClientResponseException responseError) {
+                        status = String.valueOf(responseError.getStatusCode().value());
+                        outcome = outcome(responseError.getStatusCode());
+                    } else if (error instanceof WebClientRequestException) {
+                        status = "IO_ERROR";
+                    }
+                    sample.stop(timer(operation, status, outcome));
+                    if (wire && error instanceof Exception e && !(error instanceof Wso2UnavailableException)) {
+                        wireLogger.logFailure(operation, elapsedMillis(start), e);
+                    }
+                })
+                .doOnCancel(() -> sample.stop(timer(operation, "CANCELLED", "UNKNOWN")));
+        });
+    }
+
+    private <T> ResponseEntity<T> attempt(Wso2Operation operation, String url, HttpEntity<?> request,
+                                          Supplier<ResponseEntity<T>> call) {
+        boolean wire = wireLogger.sample();
+        if (wire) {
+            wireLogger.logRequest(operation, url, request);
+        }
+        long start = System.nanoTime();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = "CLIENT_ERROR";
+        String outcome = "UNKNOWN";
+        Deadline deadline = Deadline.current();
+        try {
+            if (deadline != null && deadline.isExpired()) {
+                throw deadlineExceeded(operation, "before-call", null);
+            }
+            ResponseEntity<T> response = resilience.call(operation, call);
+            status = String.valueOf(response.getStatusCode().value());
+            outcome = outcome(response.getStatusCode());
+            if (wire) {
+                wireLogger.logResponse(operation, elapsedMillis(start), response);
+            }
+            return response;
+        } catch (DeadlineExceededException e) {
+            status = "DEADLINE_EXCEEDED";
+            throw e;
+        } catch (Wso2UnavailableException e) {
+            status = "REJECTED";
+            throw e;
+        } catch (RestClientResponseException e) {
+            status = String.valueOf(e.getStatusCode().value());
+            outcome = outcome(e.getStatusCode());
+            if (wire) {
+                wireLogger.logFailure(operation, elapsedMillis(start), e);
+            }
+            throw e;
+        } catch (ResourceAccessException e) {
+            status = "IO_ERROR";
+            if (wire) {
+                wireLogger.logFailure(operation, elapsedMillis(start), e);
+            }
+            if (deadline != null && deadline.isExpired()) {
+                // Read timeout = thời gian còn lại của request
+                throw deadlineExceeded(operation, "in-call", e);
+            }
+            throw e;
+        } finally {
+            sample.stop(timer(operation, status, outcome));
+        }
+    }
+
+    private DeadlineExceededException deadlineExceeded(Wso2Operation operation, String stage, Throwable cause) {
+        Counter.builder("gateway.deadline.exceeded")
+            .description("WSO2 IS calls that ran out of the inbound request deadline")
+            .tag("operation", operation.tagValue())
+            .tag("stage", stage)
+            .register(meterRegistry)
+            .increment();
+        return new DeadlineExceededException("Request deadline exceeded " + stage + " " + operation.tagValue(),
+            operation.operationClass().tagValue(), cause);
+    }
+
+    private Timer timer(Wso2Operation operation, String status, String outcome) {
+        return Timer.builder(TIMER_NAME)
+            .description("Outbound calls to WSO2 IS")
+            .tag("operation", operation.tagValue())
+            .tag("status", status)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static String outcome(HttpStatusCode statusCode) {
+        if (statusCode.is2xxSuccessful()) {
+            return "SUCCESS";
+        }
+        if (statusCode.is3xxRedirection()) {
+            return "REDIRECTION";
+        }
+        if (statusCode.is4xxClientError()) {
+            return "CLIENT_ERROR";
+        }
+        if (statusCode.is5xxServerError()) {
+            return "SERVER_ERROR";
+        }
+        return "UNKNOWN";
+    }
+}
@@ -0,0 +1,40 @@
+package com.anhngo.wso2.fido.service;
+
+/**
+ * Các operation gọi WSO2 IS, dùng làm tag "operation" cho metrics và nhóm theo Wso2OperationClass cho circuit breaker/bulkhead
+ */
+public enum Wso2Operation {
+
+    CLIENT_CREDENTIALS("token.client-credentials", Wso2OperationClass.ADMIN),
+    ADMIN_LOGIN("token.admin-login", Wso2OperationClass.ADMIN),
+    USER_LOGIN("token.password", Wso2OperationClass.TOKEN),
+    CODE_EXCHANGE("token.authorization-code", Wso2OperationClass.TOKEN),
+    TOKEN_REFRESH("token.refresh", Wso2OperationClass.TOKEN),
+    TOKEN_INTROSPECT("token.introspect", Wso2OperationClass.TOKEN),
+    TOKEN_REVOKE("token.revoke", Wso2OperationClass.TOKEN),
+    JWKS("jwks", Wso2OperationClass.TOKEN),
+    FIDO_REGISTRATION_OPTIONS("fido.registration-options", Wso2OperationClass.FIDO_REGISTRATION),
+    FIDO_REGISTRATION_FINISH("fido.registration-finish", Wso2OperationClass.FIDO_REGISTRATION),
+    FIDO_AUTHENTICATION_OPTIONS("fido.authentication-options", Wso2OperationClass.FIDO_AUTHENTICATION),
+    FIDO_AUTHENTICATION_FINISH("fido.authentication-finish", Wso2OperationClass.FIDO_AUTHENTICATION),
+    FIDO_DEREGISTER("fido.deregister", Wso2OperationClass.FIDO_REGISTRATION),
+    NATIVE_AUTH_INIT("native-auth.init", Wso2OperationClass.NATIVE_AUTH),
+    NATIVE_AUTH_CHALLENGE("native-auth.challenge", Wso2OperationClass.NATIVE_AUTH),
+    NATIVE_AUTH_VERIFY("native-auth.verify", Wso2OperationClass.NATIVE_AUTH);
+
+    private final String tagValue;
+    private final Wso2OperationClass operationClass;
+
+    Wso2Operation(String tagValue, Wso2OperationClass operationClass) {
+        this.tagValue = tagValue;
+        this.operationClass = operationClass;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+
+    public Wso2OperationClass operationClass() {
+        return operationClass;
+    }
+}
@@ -0,0 +1,24 @@
+package com.anhngo.wso2.fido.service;
+
+/**
+ * Nhóm operation WSO2 IS; mỗi nhóm có circuit breaker và bulkhead riêng để một endpoint chậm
+ * (ví dụ FIDO registration) không chiếm hết thread/connection của các nhóm còn lại
+ */
+public enum Wso2OperationClass {
+
+    TOKEN("token"),
+    FIDO_REGISTRATION("fido-registration"),
+    FIDO_AUTHENTICATION("fido-authentication"),
+    NATIVE_AUTH("native-auth"),
+    ADMIN("admin");
+
+    private final String tagValue;
+
+    Wso2OperationClass(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
@@ -0,0 +1,126 @@
+package com.anhngo.wso2.fido.service;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Đích của pass-through (wso2.client.passthrough): body WSO2 IS được copy thẳng từ connection sang
+ * HttpServletResponse theo từng buffer, không qua String/JsonNode và không serialize lại.
+ * Dạng enveloped ghi thêm vỏ ApiResponse ({"success":true,"message":...,"data":<body WSO2 IS>}) quanh body.
+ */
+public final class Wso2Passthrough {
+
+    private static final Logger logger = LoggerFactory.getLogger(Wso2Passthrough.class);
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] NULL_BODY = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final HttpServletResponse response;
+    private final byte[] prefix;
+    private final byte[] suffix;
+
+    private Wso2Passthrough(HttpServletResponse response, byte[] prefix, byte[] suffix) {
+        this.response = response;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Trả body WSO2 IS nguyên văn, cùng status và content type
+     */
+    public static Wso2Passthrough raw(HttpServletResponse response) {
+        return new Wso2Passthrough(response, new byte[0], new byte[0]);
+    }
+
+    /**
+     * Bọc body WSO2 IS trong ApiResponse.success(message, body)
+     */
+    public static Wso2Passthrough enveloped(HttpServletResponse response, String message) {
+        String prefix = "{\"success\":true,\"message\":\""
+            + new String(JsonStringEncoder.getInstance().quoteAsString(message)) + "\",\"data\":";
+        return new Wso2Passthrough(response, prefix.getBytes(StandardCharsets.UTF_8), new byte[]{'}'});
+    }
+
+    public boolean isCommitted() {
+        return response.isCommitted();
+    }
+
+    /**
+     * Chạy call stream trên request thread. Lỗi trước khi ghi response được ném lại để controller dựng error response;
+     * lỗi sau khi response đã commit thì không đổi được status nữa nên chỉ log
+     */
+    public void run(Runnable call) {
+        try {
+            call.run();
+        } catch (RuntimeException e) {
+            if (!isCommitted()) {
+                throw e;
+            }
+            logger.warn("WSO2 IS pass-through aborted after response was committed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * ResponseExtractor cho RestTemplate.execute; chỉ được gọi với response 2xx (lỗi do error handler ném ra trước)
+     */
+    public ResponseEntity<String> write(ClientHttpResponse upstream) throws IOException {
+        HttpStatusCode status = upstream.getStatusCode();
+        MediaType contentType = upstream.getHeaders().getContentType();
+        long contentLength = upstream.getHeaders().getContentLength();
+
+        response.setStatus(status.value());
+        response.setContentType(contentType != null && prefix.length == 0
+            ? contentType.toString() : MediaType.APPLICATION_JSON_VALUE);
+        if (contentLength > 0) {
+            response.setContentLengthLong(contentLength + prefix.length + suffix.length);
+        }
+
+        long written = copy(upstream.getBody(), response.getOutputStream());
+        return ResponseEntity.status(status).body("(streamed " + written + " bytes)");
+    }
+
+    /**
+     * Ghi một body đã có sẵn (ví dụ init response khi không lấy được challenge) theo cùng định dạng
+     */
+    public void writeBody(String body) throws IOException {
+        byte[] bytes = body != null && !body.isBlank() ? body.getBytes(StandardCharsets.UTF_8) : NULL_BODY;
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLengthLong(bytes.length + prefix.length + suffix.length);
+        OutputStream out = response.getOutputStream();
+        out.write(prefix);
+        out.write(bytes);
+        out.write(suffix);
+        out.flush();
+    }
+
+    private long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read = in.read(buffer);
+        out.write(prefix);
+        if (read < 0) {
+            // Body rỗng: giữ JSON hợp lệ như RawJson.of
+            out.write(NULL_BODY);
+        }
+        long written = 0;
+        while (read >= 0) {
+            out.write(buffer, 0, read);
+            written += read;
+            read = in.read(buffer);
+        }
+        out.write(suffix);
+        out.flush();
+        return written;
+    }
+}
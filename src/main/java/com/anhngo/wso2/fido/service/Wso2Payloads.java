@@ -0,0 +1,270 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.dto.NativeAuthFlowResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Đường dẫn và payload dùng chung cho các client gọi WSO2 IS (RestTemplate và WebClient)
+ */
+public final class Wso2Payloads {
+
+    public static final String TOKEN_PATH = "/oauth2/token";
+    public static final String INTROSPECT_PATH = "/oauth2/introspect";
+    public static final String REVOKE_PATH = "/oauth2/revoke";
+    public static final String AUTHORIZE_PATH = "/oauth2/authorize/";
+    public static final String AUTHN_PATH = "/oauth2/authn/";
+    public static final String FINISH_REGISTRATION_PATH = "/api/users/v2/me/webauthn/finish-registration";
+    public static final String FIDO_APP_ID = "https://anhngo.site";
+
+    private static final String PASSKEY_AUTHENTICATOR_ID = "RklET0F1dGhlbnRpY2F0b3I6TE9DQUw";
+
+    private Wso2Payloads() {
+    }
+
+    public static String webauthnPath(Wso2Config wso2Config, String operation) {
+        return "/t/" + wso2Config.getTenantDomain() + "/api/users/v2/me/webauthn/" + operation;
+    }
+
+    /**
+     * Base64 của "clientKey:clientSecret" cho Basic Authentication
+     */
+    public static String encodedClientCredentials(Wso2Config wso2Config) {
+        String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
+        return Base64.getEncoder().encodeToString(credentials.getBytes());
+    }
+
+    public static String formData(Map<String, String> data) {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            if (result.length() > 0) {
+                result.append("&");
+            }
+            result.append(entry.getKey()).append("=").append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Form data cho /oauth2/authorize/ với response_mode=direct (native authentication)
+     */
+    public static String nativeAuthInitForm(Wso2Config wso2Config, String redirectUri, String scope,
+                                            String responseType, String responseMode) {
+        Map<String, String> formData = new HashMap<>();
+        formData.put("client_id", wso2Config.getOauth().getClientKey());
+        formData.put("redirect_uri", redirectUri);
+        formData.put("scope", scope != null ? scope : "openid profile");
+        formData.put("response_type", responseType != null ? responseType : "code");
+        formData.put("response_mode", responseMode != null ? responseMode : "direct");
+        formData.put("prompt", "login");
+        return formData(formData);
+    }
+
+    public static String registrationFinishBody(JsonCodec codec, String requestId, String rawId,
+                                                String attestationObject, String clientDataJSON) throws JsonProcessingException {
+        ObjectNode jsonPayload = codec.createObjectNode();
+        jsonPayload.put("requestId", requestId);
+
+        ObjectNode credential = codec.createObjectNode();
+        credential.put("id", rawId);
+
+        ObjectNode credentialResponse = codec.createObjectNode();
+        credentialResponse.put("attestationObject", attestationObject);
+        credentialResponse.put("clientDataJSON", clientDataJSON);
+
+        credential.set("response", credentialResponse);
+        credential.set("clientExtensionResults", codec.createObjectNode());
+        credential.put("type", "public-key");
+
+        jsonPayload.set("credential", credential);
+        return codec.write(jsonPayload);
+    }
+
+    /**
+     * Payload theo format string như trong curl example của WSO2 IS
+     */
+    public static String authenticationFinishBody(String rawId, String assertionObject, String clientDataJSON) {
+        return String.format(
+            "\"{requestId=%s, credential={id=%s, response={assertionObject=%s, clientDataJSON=%s}, clientExtensionResults={}, type=public-key}}\"",
+            "request-id", rawId, assertionObject, clientDataJSON
+        );
+    }
+
+    public static String passkeyChallengeBody(JsonCodec codec, String flowId, String authenticatorId) throws JsonProcessingException {
+        ObjectNode requestBody = codec.createObjectNode();
+        requestBody.put("flowId", flowId);
+
+        ObjectNode selectedAuthenticator = codec.createObjectNode();
+        selectedAuthenticator.put("authenticatorId", authenticatorId);
+        requestBody.set("selectedAuthenticator", selectedAuthenticator);
+        return codec.write(requestBody);
+    }
+
+    /**
+     * WebAuthn assertion dạng { "requestId": "...", "credential": { ... } } trước khi Base64
+     */
+    public static String passkeyTokenResponseJson(JsonCodec codec, String requestId, String credentialId,
+                                                  String authenticatorData, String clientDataJSON,
+                                                  String signature, String userHandle) throws JsonProcessingException {
+        ObjectNode responseObject = codec.createObjectNode();
+        responseObject.put("requestId", requestId);
+
+        ObjectNode credential = codec.createObjectNode();
+        credential.put("id", credentialId);
+
+        ObjectNode response = codec.createObjectNode();
+        response.put("authenticatorData", authenticatorData);
+        response.put("clientDataJSON", clientDataJSON);
+        response.put("signature", signature);
+        if (userHandle != null) {
+            response.put("userHandle", userHandle);
+        }
+
+        credential.set("response", response);
+        credential.set("clientExtensionResults", codec.createObjectNode());
+        credential.put("type", "public-key");
+
+        responseObject.set("credential", credential);
+        return codec.write(responseObject);
+    }
+
+    public static String passkeyVerifyBody(JsonCodec codec, String flowId, String authenticatorId,
+                                           String tokenResponse) throws JsonProcessingException {
+        ObjectNode requestBody = codec.createObjectNode();
+        requestBody.put("flowId", flowId);
+
+        ObjectNode selectedAuthenticator = codec.createObjectNode();
+        selectedAuthenticator.put("authenticatorId", authenticatorId);
+
+        ObjectNode params = codec.createObjectNode();
+        params.put("tokenResponse", tokenResponse);
+        selectedAuthenticator.set("params", params);
+
+        requestBody.set("selectedAuthenticator", selectedAuthenticator);
+        return codec.write(requestBody);
+    }
+
+    /**
+     * Body cho /oauth2/authn/ ghi trong một lượt: WebAuthn assertion được serialize thẳng vào Base64 stream
+     * nằm trong chuỗi tokenResponse của body, không qua String JSON trung gian, String Base64 hay ObjectNode.
+     * Kết quả giống hệt passkeyVerifyBody(passkeyTokenResponseJson(...)) với Base64 chuẩn có padding.
+     */
+    public static byte[] passkeyVerifyBodyBytes(JsonCodec codec, String flowId, String authenticatorId,
+                                                String requestId, String credentialId, String authenticatorData,
+                                                String clientDataJSON, String signature, String userHandle) throws IOException {
+        int estimatedSize = 256 + 2 * (authenticatorData.length() + clientDataJSON.length() + signature.length()
+            + credentialId.length() + (userHandle != null ? userHandle.length() : 0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(estimatedSize);
+        try (JsonGenerator body = codec.factory().createGenerator(out)) {
+            body.writeStartObject();
+            body.writeStringField("flowId", flowId);
+            body.writeObjectFieldStart("selectedAuthenticator");
+            body.writeStringField("authenticatorId", authenticatorId);
+            body.writeObjectFieldStart("params");
+            body.writeFieldName("tokenResponse");
+            // Mở chuỗi tokenResponse rồi ghi Base64 trực tiếp vào out; ký tự Base64 không cần escape trong JSON
+            body.writeRawValue("\"");
+            body.flush();
+            try (OutputStream base64 = Base64.getEncoder().wrap(nonClosing(out));
+                 JsonGenerator credential = codec.factory().createGenerator(base64)) {
+                writePasskeyTokenResponse(credential, requestId, credentialId, authenticatorData,
+                    clientDataJSON, signature, userHandle);
+            }
+            out.write('"');
+            body.writeEndObject();
+            body.writeEndObject();
+            body.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writePasskeyTokenResponse(JsonGenerator generator, String requestId, String credentialId,
+                                                  String authenticatorData, String clientDataJSON,
+                                                  String signature, String userHandle) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("requestId", requestId);
+        generator.writeObjectFieldStart("credential");
+        generator.writeStringField("id", credentialId);
+        generator.writeObjectFieldStart("response");
+        generator.writeStringField("authenticatorData", authenticatorData);
+        generator.writeStringField("clientDataJSON", clientDataJSON);
+        generator.writeStringField("signature", signature);
+        if (userHandle != null) {
+            generator.writeStringField("userHandle", userHandle);
+        }
+        generator.writeEndObject();
+        generator.writeObjectFieldStart("clientExtensionResults");
+        generator.writeEndObject();
+        generator.writeStringField("type", "public-key");
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Đóng Base64 stream để ghi padding nhưng giữ nguyên stream bên dưới
+     */
+    private static OutputStream nonClosing(OutputStream out) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * Response /oauth2/token dạng Map, mọi field (kể cả field gateway không biết tới) giữ dạng text
+     */
+    public static Map<String, Object> textFields(Map<String, Object> response) {
+        Map<String, Object> result = new HashMap<>();
+        response.forEach((key, value) -> result.put(key, String.valueOf(value)));
+        return result;
+    }
+
+    /**
+     * Response /oauth2/introspect dạng Map: boolean giữ nguyên, số chuyển về Long, còn lại là text
+     */
+    public static Map<String, Object> introspectionFields(Map<String, Object> response) {
+        Map<String, Object> result = new HashMap<>();
+        response.forEach((key, value) -> {
+            if (value instanceof Boolean) {
+                result.put(key, value);
+            } else if (value instanceof Number number) {
+                result.put(key, number.longValue());
+            } else {
+                result.put(key, String.valueOf(value));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Tìm authenticator biometric/passkey trong response của /oauth2/authorize/
+     */
+    public static String findPasskeyAuthenticatorId(NativeAuthFlowResponse initResponse) {
+        for (NativeAuthFlowResponse.Authenticator authenticator : initResponse.authenticators()) {
+            String authenticatorId = authenticator.authenticatorId();
+            if (authenticatorId != null && (authenticatorId.contains("FIDO") || authenticatorId.contains("Passkey") ||
+                authenticatorId.equals(PASSKEY_AUTHENTICATOR_ID))) {
+                return authenticatorId;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.Wso2ResilienceConfig;
+import com.anhngo.wso2.fido.exception.Wso2UnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker + bulkhead (resilience4j) cho từng Wso2OperationClass, dùng bởi Wso2CallExecutor
+ * cho cả RestTemplate (call) và WebClient (decorate, cùng breaker/bulkhead).
+ * Chỉ lỗi I/O và 5xx được tính là failure; 4xx là WSO2 IS vẫn trả lời bình thường.
+ * Khi breaker mở hoặc bulkhead đầy, call bị từ chối ngay bằng Wso2UnavailableException thay vì giữ thread
+ * và connection tới timeout. Trạng thái được export qua resilience4j.circuitbreaker.* và resilience4j.bulkhead.*
+ */
+@Component
+public class Wso2Resilience {
+
+    private static final Logger logger = LoggerFactory.getLogger(Wso2Resilience.class);
+
+    private static final Duration BULKHEAD_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final Wso2ResilienceConfig config;
+    private final Map<Wso2OperationClass, CircuitBreaker> circuitBreakers = new EnumMap<>(Wso2OperationClass.class);
+    private final Map<Wso2OperationClass, Bulkhead> bulkheads = new EnumMap<>(Wso2OperationClass.class);
+
+    public Wso2Resilience(Wso2ResilienceConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig(config.getCircuitBreaker()));
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+        // Tạo sẵn cho mọi nhóm để metrics có ngay từ lúc khởi động, không đợi call đầu tiên
+        for (Wso2OperationClass operationClass : Wso2OperationClass.values()) {
+            String name = operationClass.tagValue();
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+            circuitBreaker.getEventPublisher().onStateTransition(event ->
+                logger.warn("WSO2 IS circuit breaker {}: {}", name, event.getStateTransition()));
+            circuitBreakers.put(operationClass, circuitBreaker);
+            bulkheads.put(operationClass, bulkheadRegistry.bulkhead(name, bulkheadConfig(config.getBulkhead(), name)));
+        }
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    public <T> T call(Wso2Operation operation, Supplier<T> call) {
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+        Wso2OperationClass operationClass = operation.operationClass();
+        CircuitBreaker circuitBreaker = circuitBreakers.get(operationClass);
+        Bulkhead bulkhead = bulkheads.get(operationClass);
+        // Breaker bọc ngoài bulkhead: khi breaker mở, call bị từ chối mà không chiếm slot của bulkhead
+        try {
+            return CircuitBreaker.decorateSupplier(circuitBreaker, Bulkhead.decorateSupplier(bulkhead, call)).get();
+        } catch (CallNotPermittedException e) {
+            throw circuitOpen(operationClass, e);
+        } catch (BulkheadFullException e) {
+            throw bulkheadFull(operationClass, e);
+        }
+    }
+
+    /**
+     * Như call cho Mono của WebClient: permission được lấy lúc subscribe, slot bulkhead được trả khi Mono
+     * kết thúc hoặc bị cancel
+     */
+    public <T> Mono<T> decorate(Wso2Operation operation, Mono<T> call) {
+        if (!config.isEnabled()) {
+            return call;
+        }
+        Wso2OperationClass operationClass = operation.operationClass();
+        // Breaker bọc ngoài bulkhead như call()
+        return call
+            .transformDeferred(BulkheadOperator.of(bulkheads.get(operationClass)))
+            .transformDeferred(CircuitBreakerOperator.of(circuitBreakers.get(operationClass)))
+            .onErrorMap(CallNotPermittedException.class, e -> circuitOpen(operationClass, e))
+            .onErrorMap(BulkheadFullException.class, e -> bulkheadFull(operationClass, e));
+    }
+
+    public CircuitBreaker.State state(Wso2OperationClass operationClass) {
+        return circuitBreakers.get(operationClass).getState();
+    }
+
+    static boolean isFailure(Throwable error) {
+        if (error instanceof ResourceAccessException || error instanceof HttpServerErrorException
+            || error instanceof WebClientRequestException) {
+            return true;
+        }
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError();
+        }
+        return error instanceof RestClientResponseException response && response.getStatusCode().is5xxServerError();
+    }
+
+    private Wso2UnavailableException circuitOpen(Wso2OperationClass operationClass, CallNotPermittedException e) {
+        return new Wso2UnavailableException("WSO2 IS " + operationClass.tagValue() + " calls are failing, circuit breaker is open",
+            operationClass.tagValue(), config.getCircuitBreaker().getWaitDurationInOpenState(), e);
+    }
+
+    private static Wso2UnavailableException bulkheadFull(Wso2OperationClass operationClass, BulkheadFullException e) {
+        return new Wso2UnavailableException("Too many concurrent WSO2 IS " + operationClass.tagValue() + " calls",
+            operationClass.tagValue(), BULKHEAD_RETRY_AFTER, e);
+    }
+
+    private static CircuitBreakerConfig circuitBreakerConfig(Wso2ResilienceConfig.CircuitBreaker properties) {
+        return CircuitBreakerConfig.custom()
+            .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+            .slidingWindowSize(properties.getSlidingWindowSize())
+            .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+            .failureRateThreshold(properties.getFailureRateThreshold())
+            .slowCallDurationThreshold(properties.getSlowCallDurationThreshold())
+            .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+            .waitDurationInOpenState(properties.getWaitDurationInOpenState())
+            .permittedNumberOfCallsInHalfOpenState(properties.getPermittedCallsInHalfOpenState())
+            .recordException(Wso2Resilience::isFailure)
+            // Bulkhead đầy là lỗi của gateway, không phải của WSO2 IS
+            .ignoreExceptions(BulkheadFullException.class)
+            .build();
+    }
+
+    private static BulkheadConfig bulkheadConfig(Wso2ResilienceConfig.Bulkhead properties, String operationClass) {
+        return BulkheadConfig.custom()
+            .maxConcurrentCalls(properties.maxConcurrentCalls(operationClass))
+            .maxWaitDuration(properties.getMaxWaitDuration())
+            .build();
+    }
+}
@@ -0,0 +1,286 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.config.Wso2RetryConfig;
+import com.anhngo.wso2.fido.filter.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Retry (decorrelated jitter) và hedging cho các WSO2 IS call idempotent, dùng bởi Wso2CallExecutor.
+ * Retry và hedge cùng lấy từ retry budget theo Wso2OperationClass: bắt đầu với budget-reserve, mỗi call gốc
+ * nạp thêm budget-ratio, tích luỹ tối đa budget-max
+ * để khi WSO2 IS quá tải gateway không nhân tải lên. Không retry/hedge khi không còn đủ deadline.
+ * Metrics: wso2.client.retries và wso2.client.hedges (tag operation, outcome).
+ */
+@Component
+public class Wso2Retries {
+
+    // Budget lưu dạng fixed-point (1 retry = 1000) để cập nhật lock-free
+    private static final long UNIT = 1000;
+
+    private final Wso2RetryConfig config;
+    private final Wso2Executors executors;
+    private final MeterRegistry meterRegistry;
+    private final Map<Wso2OperationClass, AtomicLong> budgets = new EnumMap<>(Wso2OperationClass.class);
+
+    public Wso2Retries(Wso2RetryConfig config, Wso2Executors executors, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.executors = executors;
+        this.meterRegistry = meterRegistry;
+        for (Wso2OperationClass operationClass : Wso2OperationClass.values()) {
+            budgets.put(operationClass, new AtomicLong(config.getBudgetReserve() * UNIT));
+        }
+    }
+
+    public boolean isRetryable(Wso2Operation operation) {
+        return config.isEnabled() && config.getMaxAttempts() > 1 && config.getOperations().contains(operation.tagValue());
+    }
+
+    public boolean isHedged(Wso2Operation operation) {
+        return config.getHedge().isEnabled() && config.getHedge().getOperations().contains(operation.tagValue());
+    }
+
+    /**
+     * Lỗi tạm thời đáng retry: I/O (connect/read timeout, connection reset) và 502/503/504.
+     * Breaker mở, bulkhead đầy và hết deadline (Wso2UnavailableException) không retry
+     */
+    public static boolean isTransient(Throwable error) {
+        if (error instanceof ResourceAccessException || error instanceof WebClientRequestException) {
+            return true;
+        }
+        if (error instanceof HttpServerErrorException serverError) {
+            return isTransientStatus(serverError.getStatusCode().value());
+        }
+        if (error instanceof WebClientResponseException responseError) {
+            return isTransientStatus(responseError.getStatusCode().value());
+        }
+        return false;
+    }
+
+    private static boolean isTransientStatus(int status) {
+        return status == HttpStatus.BAD_GATEWAY.value()
+            || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+            || status == HttpStatus.GATEWAY_TIMEOUT.value();
+    }
+
+    /**
+     * Chạy call, retry lỗi tạm thời tối đa max-attempts lần trong giới hạn budget và deadline
+     */
+    public <T> T retry(Wso2Operation operation, Supplier<T> call) {
+        deposit(operation);
+        long delayMillis = config.getBaseDelay().toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                if (attempt >= config.getMaxAttempts()) {
+                    count("wso2.client.retries", operation, "exhausted");
+                    throw e;
+                }
+                delayMillis = nextDelayMillis(delayMillis);
+                if (!tryAcquire(operation, "wso2.client.retries", Duration.ofMillis(delayMillis))) {
+                    throw e;
+                }
+                count("wso2.client.retries", operation, "retried");
+                sleep(delayMillis, e);
+            }
+        }
+    }
+
+    /**
+     * Như retry cho Mono của WebClient: subscribe lại khi lỗi tạm thời, chờ bằng Mono.delay thay vì sleep.
+     * Deadline do caller truyền vào (lấy từ Reactor context) vì call không chạy trên request thread
+     */
+    public <T> Mono<T> retryAsync(Wso2Operation operation, Mono<T> attempt, Deadline deadline) {
+        return Mono.defer(() -> {
+            deposit(operation);
+            AtomicLong delayMillis = new AtomicLong(config.getBaseDelay().toMillis());
+            return attempt.retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                Throwable e = signal.failure();
+                if (!isTransient(e)) {
+                    return Mono.error(e);
+                }
+                if (signal.totalRetries() + 1 >= config.getMaxAttempts()) {
+                    count("wso2.client.retries", operation, "exhausted");
+                    return Mono.error(e);
+                }
+                long delay = nextDelayMillis(delayMillis.get());
+                delayMillis.set(delay);
+                if (!tryAcquire(operation, "wso2.client.retries", Duration.ofMillis(delay), deadline)) {
+                    return Mono.error(e);
+                }
+                count("wso2.client.retries", operation, "retried");
+                return Mono.delay(Duration.ofMillis(delay));
+            })));
+        });
+    }
+
+    /**
+     * Gửi call trên outbound executor; nếu chưa có kết quả sau hedge delay (percentile latency quan sát được)
+     * thì gửi thêm một call và lấy kết quả thành công đến trước. Call thua vẫn chạy hết để trả connection về pool
+     */
+    public <T> T hedge(Wso2Operation operation, Supplier<T> call) {
+        deposit(operation);
+        Duration delay = hedgeDelay(operation);
+        Supplier<T> timedCall = Deadline.propagate(() -> {
+            long start = System.nanoTime();
+            T result = call.get();
+            latencyTimer(operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        });
+
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(timedCall, executors.outbound());
+        try {
+            return primary.get(delay.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException slow) {
+            if (!tryAcquire(operation, "wso2.client.hedges", delay)) {
+                return join(primary);
+            }
+            count("wso2.client.hedges", operation, "sent");
+            CompletableFuture<T> hedged = CompletableFuture.supplyAsync(timedCall, executors.outbound());
+            return join(firstSuccessful(operation, primary, hedged));
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for WSO2 IS " + operation.tagValue(), e);
+        }
+    }
+
+    Duration hedgeDelay(Wso2Operation operation) {
+        Wso2RetryConfig.Hedge hedge = config.getHedge();
+        HistogramSnapshot snapshot = latencyTimer(operation).takeSnapshot();
+        ValueAtPercentile[] percentiles = snapshot.percentileValues();
+        if (snapshot.count() < hedge.getMinSamples() || percentiles.length == 0) {
+            return hedge.getInitialDelay();
+        }
+        long millis = (long) percentiles[0].value(TimeUnit.MILLISECONDS);
+        return Duration.ofMillis(Math.max(hedge.getMinDelay().toMillis(), millis));
+    }
+
+    private <T> CompletableFuture<T> firstSuccessful(Wso2Operation operation, CompletableFuture<T> primary,
+                                                     CompletableFuture<T> hedged) {
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, error) -> {
+            if (error == null) {
+                first.complete(result);
+            } else if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(error);
+            }
+        });
+        hedged.whenComplete((result, error) -> {
+            if (error == null) {
+                if (first.complete(result)) {
+                    count("wso2.client.hedges", operation, "won");
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(error);
+            }
+        });
+        return first;
+    }
+
+    private void deposit(Wso2Operation operation) {
+        long ratio = (long) (config.getBudgetRatio() * UNIT);
+        long max = config.getBudgetMax() * UNIT;
+        // Reserve ban đầu lớn hơn budget-max thì được giữ nguyên cho tới khi dùng hết, không bị cắt bớt
+        budgets.get(operation.operationClass()).updateAndGet(balance -> balance >= max ? balance : Math.min(max, balance + ratio));
+    }
+
+    private boolean tryAcquire(Wso2Operation operation, String metric, Duration delay) {
+        return tryAcquire(operation, metric, delay, Deadline.current());
+    }
+
+    private boolean tryAcquire(Wso2Operation operation, String metric, Duration delay, Deadline deadline) {
+        if (deadline != null && !deadline.hasAtLeast(delay.plus(config.getBaseDelay()))) {
+            count(metric, operation, "deadline");
+            return false;
+        }
+        AtomicLong budget = budgets.get(operation.operationClass());
+        long balance;
+        do {
+            balance = budget.get();
+            if (balance < UNIT) {
+                count(metric, operation, "budget-exhausted");
+                return false;
+            }
+        } while (!budget.compareAndSet(balance, balance - UNIT));
+        return true;
+    }
+
+    private long nextDelayMillis(long previousMillis) {
+        // Decorrelated jitter: sleep = min(cap, random(base, previous * 3))
+        long base = config.getBaseDelay().toMillis();
+        long upper = Math.max(base + 1, previousMillis * 3);
+        return Math.min(config.getMaxDelay().toMillis(), ThreadLocalRandom.current().nextLong(base, upper));
+    }
+
+    private Timer latencyTimer(Wso2Operation operation) {
+        return Timer.builder("wso2.client.hedge.latency")
+            .description("Latency of hedged WSO2 IS calls, used to derive the hedge delay")
+            .tag("operation", operation.tagValue())
+            .publishPercentiles(config.getHedge().getPercentile())
+            .register(meterRegistry);
+    }
+
+    private void count(String metric, Wso2Operation operation, String outcome) {
+        Counter.builder(metric)
+            .tag("operation", operation.tagValue())
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static void sleep(long millis, RuntimeException failure) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        if (error instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new RuntimeException(error);
+    }
+}
@@ -1,9 +1,12 @@
 package com.anhngo.wso2.fido.service;
 
+import com.anhngo.wso2.fido.config.Wso2ClientConfig;
 import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.dto.FidoRegistrationOptionsResponse;
+import com.anhngo.wso2.fido.dto.NativeAuthFlowResponse;
+import com.anhngo.wso2.fido.dto.RawJson;
+import com.anhngo.wso2.fido.dto.Wso2TokenResponse;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
@@ -12,11 +15,11 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Base64;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 @Service
 public class Wso2Service {
@@ -25,148 +28,65 @@ public class Wso2Service {
     
     private final RestTemplate restTemplate;
     private final Wso2Config wso2Config;
-    private final ObjectMapper objectMapper;
+    private final JsonCodec jsonCodec;
+    private final ClientCredentialsTokenManager tokenManager;
+    private final AdminSessionManager adminSessionManager;
+    private final Wso2CallExecutor wso2Calls;
+    private final Wso2ClientConfig clientConfig;
 
-    // Cache để lưu admin session
-    private final Map<String, String> adminSessionCache = new ConcurrentHashMap<>();
-    private static final String ADMIN_SESSION_KEY = "admin_session";
+    private static final String CLIENT_TOKEN_SCOPE = "openid";
     
-    public Wso2Service(RestTemplate restTemplate, Wso2Config wso2Config, ObjectMapper objectMapper) {
+    public Wso2Service(RestTemplate restTemplate, Wso2Config wso2Config, JsonCodec jsonCodec,
+                       ClientCredentialsTokenManager tokenManager, AdminSessionManager adminSessionManager,
+                       Wso2CallExecutor wso2Calls, Wso2ClientConfig clientConfig) {
         this.restTemplate = restTemplate;
         this.wso2Config = wso2Config;
-        this.objectMapper = objectMapper;
+        this.jsonCodec = jsonCodec;
+        this.tokenManager = tokenManager;
+        this.adminSessionManager = adminSessionManager;
+        this.wso2Calls = wso2Calls;
+        this.clientConfig = clientConfig;
     }
     
     /**
-     * Lấy admin session từ cache hoặc tạo mới
+     * Lấy admin session từ AdminSessionManager (single-flight, hết hạn theo expires_in)
      */
     public String getAdminSession() {
-        String session = adminSessionCache.get(ADMIN_SESSION_KEY);
-        if (session == null) {
-            session = createAdminSession();
-            adminSessionCache.put(ADMIN_SESSION_KEY, session);
-        }
-        return session;
+        return adminSessionManager.getSession();
     }
     
     /**
-     * Tạo admin session mới
+     * Refresh admin session nếu cần
      */
-    private String createAdminSession() {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            
-            Map<String, String> loginRequest = new HashMap<>();
-            loginRequest.put("username", wso2Config.getAdminUsername());
-            loginRequest.put("password", wso2Config.getAdminPassword());
-            loginRequest.put("grant_type", "password");
-            loginRequest.put("scope", "openid");
-            
-            // Sử dụng OAuth client credentials để authenticate admin
-            String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
-            String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
-            headers.setBasicAuth(encodedCredentials);
-            
-            HttpEntity<String> request = new HttpEntity<>(buildFormData(loginRequest), headers);
-            
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                wso2Config.getBaseUrl() + "/oauth2/token",
-                request,
-                String.class
-            );
-            
-            logger.info("Admin session creation response: {}", response.getBody());
-            
-            JsonNode jsonNode = objectMapper.readTree(response.getBody());
-            JsonNode accessTokenNode = jsonNode.get("access_token");
-            
-            if (accessTokenNode == null) {
-                logger.error("No access_token found in admin session response. Full response: {}", jsonNode.toString());
-                throw new RuntimeException("No access_token found in admin session response");
-            }
-            
-            return accessTokenNode.asText();
-            
-        } catch (Exception e) {
-            logger.error("Error creating admin session", e);
-            throw new RuntimeException("Failed to create admin session", e);
-        }
+    public void refreshAdminSession() {
+        adminSessionManager.invalidate();
+        adminSessionManager.getSession();
     }
     
     /**
-     * Refresh admin session nếu cần
+     * Gọi WSO2 IS bằng admin session, tự login lại khi WSO2 IS trả về 401
      */
-    public void refreshAdminSession() {
-        adminSessionCache.remove(ADMIN_SESSION_KEY);
-        getAdminSession();
+    public <T> T callWithAdminSession(Function<String, T> call) {
+        return adminSessionManager.execute(call);
     }
     
+    /**
+     * Lấy client_credentials access token (cache và refresh ngầm bởi ClientCredentialsTokenManager)
+     */
     public String getAccessToken() {
         try {
-            // Log OAuth credentials for debugging
-            String clientKey = wso2Config.getOauth().getClientKey();
-            String clientSecret = wso2Config.getOauth().getClientSecret();
-            
-            logger.info("OAuth Client Key: {}", clientKey);
-            logger.info("OAuth Client Secret: {}", clientSecret != null ? "***" + clientSecret.substring(Math.max(0, clientSecret.length() - 4)) : "null");
-            
-            if (clientKey == null || clientSecret == null) {
-                throw new RuntimeException("OAuth credentials are null. Client Key: " + clientKey + ", Client Secret: " + (clientSecret != null ? "not null" : "null"));
-            }
-            
-            // Use OAuth client credentials
-            String credentials = clientKey + ":" + clientSecret;
-            String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            headers.setBasicAuth(encodedCredentials);
-            
-            Map<String, String> tokenRequest = new HashMap<>();
-            tokenRequest.put("grant_type", "client_credentials");
-            tokenRequest.put("scope", "openid");
-            
-            HttpEntity<String> request = new HttpEntity<>(buildFormData(tokenRequest), headers);
-            
-            String url = wso2Config.getBaseUrl() + "/oauth2/token";
-            logger.info("=== WSO2 IS OAuth2 Token Request ===");
-            logger.info("URL: {}", url);
-            logger.info("Headers: {}", headers);
-            logger.info("Payload: {}", buildFormData(tokenRequest));
-            
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
-
-            logger.info("=== WSO2 IS OAuth2 Token Response ===");
-            logger.info("Status: {}", response.getStatusCode());
-            logger.info("Response Headers: {}", response.getHeaders());
-            logger.info("Response Body: {}", response.getBody());
-            
-            logger.info("OAuth response status: {}", response.getStatusCode());
-            logger.info("OAuth response body: {}", response.getBody());
-            
-            JsonNode jsonNode = objectMapper.readTree(response.getBody());
-            logger.info("OAuth response: {}", jsonNode.toString());
-            
-            JsonNode accessTokenNode = jsonNode.get("access_token");
-            if (accessTokenNode == null) {
-                logger.error("No access_token found in response. Full response: {}", jsonNode.toString());
-                throw new RuntimeException("No access_token found in OAuth response");
-            }
-            
-            return accessTokenNode.asText();
-            
+            return tokenManager.getToken(CLIENT_TOKEN_SCOPE);
         } catch (Exception e) {
             logger.error("Error getting access token", e);
             throw new RuntimeException("Failed to get access token", e);
         }
     }
     
-    public JsonNode getFidoRegistrationOptions(String username, String displayName) {
+    public RawJson getFidoRegistrationOptions(String username, String displayName) {
         return getFidoRegistrationOptions(username, displayName, null);
     }
     
-    public JsonNode getFidoRegistrationOptions(String username, String displayName, String userAccessToken) {
+    public RawJson getFidoRegistrationOptions(String username, String displayName, String userAccessToken) {
         try {
             // Phải sử dụng user access token từ frontend
             if (userAccessToken == null || userAccessToken.trim().isEmpty()) {
@@ -181,39 +101,28 @@ public class Wso2Service {
 
             // Tạo form data như WSO2 IS yêu cầu
             MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
-            String appId = "https://anhngo.site";
-            formData.add("appId", appId);
+            formData.add("appId", Wso2Payloads.FIDO_APP_ID);
 
             HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
 
-            String url = wso2Config.getBaseUrl() + "/t/" + wso2Config.getTenantDomain() + "/api/users/v2/me/webauthn/start-usernameless-registration";
-            logger.info("=== WSO2 IS FIDO Registration Options Request ===");
-            logger.info("URL: {}", url);
-            logger.info("Headers: {}", headers);
-            logger.info("Payload: {}", formData);
+            String url = wso2Config.getBaseUrl() + Wso2Payloads.webauthnPath(wso2Config, "start-usernameless-registration");
 
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.FIDO_REGISTRATION_OPTIONS, url, request,
+                () -> restTemplate.postForEntity(url, request, String.class));
 
-            logger.info("=== WSO2 IS FIDO Registration Options Response ===");
-            logger.info("Status: {}", response.getStatusCode());
-            logger.info("Response Headers: {}", response.getHeaders());
-            logger.info("Response Body: {}", response.getBody());
-            
             // Debug start-usernameless-registration response
-            try {
-                JsonNode responseNode = objectMapper.readTree(response.getBody());
-                if (responseNode.has("publicKeyCredentialCreationOptions")) {
-                    JsonNode options = responseNode.get("publicKeyCredentialCreationOptions");
-                    if (options.has("challenge")) {
-                        String challenge = options.get("challenge").asText();
-                        logger.info("Challenge from start-usernameless-registration: {}", challenge);
+            if (logger.isDebugEnabled()) {
+                try {
+                    FidoRegistrationOptionsResponse options = jsonCodec.read(response.getBody(), FidoRegistrationOptionsResponse.class);
+                    if (options.challenge() != null) {
+                        logger.debug("Challenge from start-usernameless-registration: {}", options.challenge());
                     }
+                } catch (Exception e) {
+                    logger.error("Error parsing start-usernameless-registration response: {}", e.getMessage());
                 }
-            } catch (Exception e) {
-                logger.error("Error parsing start-usernameless-registration response: {}", e.getMessage());
             }
             
-            return objectMapper.readTree(response.getBody());
+            return RawJson.of(response.getBody());
 
         } catch (Exception e) {
             logger.error("Error getting FIDO registration options", e);
@@ -221,180 +130,143 @@ public class Wso2Service {
         }
     }
     
-    public JsonNode registerFidoCredential(String username, String displayName, 
+    public RawJson registerFidoCredential(String username, String displayName, 
                                           String requestId, String attestationObject, String clientDataJSON, String rawId, String userAccessToken) {
         try {
-            // Phải sử dụng user access token từ frontend
-            if (userAccessToken == null || userAccessToken.trim().isEmpty()) {
-                throw new RuntimeException("User access token is required for FIDO registration");
-            }
-            
-            logger.info("Using user access token for FIDO credential registration");
-            logger.info("Using requestId from frontend: {}", requestId);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(userAccessToken);
+            PreparedCall call = fidoRegistrationFinishCall(requestId, attestationObject, clientDataJSON, rawId, userAccessToken);
 
-            // Thử sử dụng format JSON đơn giản như curl example
-            headers.setContentType(MediaType.APPLICATION_JSON);
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.FIDO_REGISTRATION_FINISH, call.url(), call.request(),
+                () -> restTemplate.postForEntity(call.url(), call.request(), String.class));
 
-            // Extract user info from JWT token
-            String actualUsername = "admin";
-            String actualDisplayName = "admin";
-            
-            try {
-                // Decode JWT token to get user info
-                String[] parts = userAccessToken.split("\\.");
-                if (parts.length == 3) {
-                    String payload = parts[1];
-                    // Add padding if needed
-                    while (payload.length() % 4 != 0) {
-                        payload += "=";
-                    }
-                    String decodedPayload = new String(java.util.Base64.getUrlDecoder().decode(payload));
-                    JsonNode tokenNode = objectMapper.readTree(decodedPayload);
-                    
-                    if (tokenNode.has("name")) {
-                        actualDisplayName = tokenNode.get("name").asText();
-                    }
-                    if (tokenNode.has("username")) {
-                        actualUsername = tokenNode.get("username").asText();
-                    } else if (tokenNode.has("sub")) {
-                        // Nếu sub là UUID, sử dụng "admin" thay thế
-                        String sub = tokenNode.get("sub").asText();
-                        if (sub.contains("-")) { // UUID format
-                            actualUsername = "admin";
-                        } else {
-                            actualUsername = sub;
-                        }
-                    }
-                    
-                    logger.info("Extracted from JWT - Username: {}, DisplayName: {}", actualUsername, actualDisplayName);
-                }
-            } catch (Exception e) {
-                logger.warn("Could not decode JWT token, using default values: {}", e.getMessage());
-            }
-            
-            // Tạo JSON object thực sự thay vì string
-            ObjectNode jsonPayload = objectMapper.createObjectNode();
-            jsonPayload.put("requestId", requestId);
-            
-            ObjectNode credential = objectMapper.createObjectNode();
-            credential.put("id", rawId);
-            
-            ObjectNode credentialResponse = objectMapper.createObjectNode();
-            credentialResponse.put("attestationObject", attestationObject);
-            credentialResponse.put("clientDataJSON", clientDataJSON);
-            
-            credential.set("response", credentialResponse);
-            credential.set("clientExtensionResults", objectMapper.createObjectNode());
-            credential.put("type", "public-key");
-            
-            jsonPayload.set("credential", credential);
+            logger.info("FIDO registration response status: {}", response.getStatusCode());
+            return RawJson.of(response.getBody());
 
-            String jsonBody = objectMapper.writeValueAsString(jsonPayload);
-            HttpEntity<String> request = new HttpEntity<>(jsonBody, headers);
-            logger.info("JSON payload being sent: {}", jsonBody);
-            logger.info("Content-Type: {}", headers.getContentType());
-            logger.info("RequestId: {}", requestId);
-            logger.info("RawId: {}", rawId);
-            logger.info("AttestationObject length: {}", attestationObject.length());
-            logger.info("ClientDataJSON: {}", clientDataJSON);
-            
-            // Debug challenge verification - KHÔNG sửa clientDataJSON
+        } catch (Exception e) {
+            logger.error("Error registering FIDO credential", e);
+            throw new RuntimeException("Failed to register FIDO credential", e);
+        }
+    }
+
+    /**
+     * Như registerFidoCredential nhưng body WSO2 IS được stream thẳng sang response (wso2.client.passthrough)
+     */
+    public void streamFidoCredentialRegistration(String requestId, String attestationObject, String clientDataJSON,
+                                                 String rawId, String userAccessToken, Wso2Passthrough target) {
+        try {
+            stream(Wso2Operation.FIDO_REGISTRATION_FINISH,
+                fidoRegistrationFinishCall(requestId, attestationObject, clientDataJSON, rawId, userAccessToken), target);
+        } catch (Exception e) {
+            logger.error("Error registering FIDO credential", e);
+            throw new RuntimeException("Failed to register FIDO credential", e);
+        }
+    }
+
+    private PreparedCall fidoRegistrationFinishCall(String requestId, String attestationObject, String clientDataJSON,
+                                                    String rawId, String userAccessToken) throws IOException {
+        // Phải sử dụng user access token từ frontend
+        if (userAccessToken == null || userAccessToken.trim().isEmpty()) {
+            throw new RuntimeException("User access token is required for FIDO registration");
+        }
+        
+        logger.info("Using user access token for FIDO credential registration");
+        logger.info("Using requestId from frontend: {}", requestId);
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(userAccessToken);
+
+        // Thử sử dụng format JSON đơn giản như curl example
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // Tạo JSON object thực sự thay vì string
+        String jsonBody = Wso2Payloads.registrationFinishBody(jsonCodec, requestId, rawId, attestationObject, clientDataJSON);
+        HttpEntity<String> request = new HttpEntity<>(jsonBody, headers);
+        logger.debug("JSON payload being sent: {}", jsonBody);
+        logger.debug("Content-Type: {}", headers.getContentType());
+        logger.info("RequestId: {}", requestId);
+        logger.debug("RawId: {}", rawId);
+        logger.debug("AttestationObject length: {}", attestationObject.length());
+        logger.debug("ClientDataJSON: {}", clientDataJSON);
+        
+        // Debug challenge verification - KHÔNG sửa clientDataJSON
+        if (logger.isDebugEnabled()) {
             try {
                 String clientDataJsonDecoded = new String(java.util.Base64.getUrlDecoder().decode(clientDataJSON));
-                logger.info("ClientDataJSON (decoded): {}", clientDataJsonDecoded);
-                
+                logger.debug("ClientDataJSON (decoded): {}", clientDataJsonDecoded);
+            
                 // Parse JSON to extract challenge
-                JsonNode clientDataNode = objectMapper.readTree(clientDataJsonDecoded);
+                JsonNode clientDataNode = jsonCodec.readTree(clientDataJsonDecoded);
                 String challenge = clientDataNode.get("challenge").asText();
                 String origin = clientDataNode.get("origin").asText();
-                logger.info("Challenge from ClientDataJSON: {}", challenge);
-                logger.info("Origin from ClientDataJSON: {}", origin);
-                
+                logger.debug("Challenge from ClientDataJSON: {}", challenge);
+                logger.debug("Origin from ClientDataJSON: {}", origin);
+            
             } catch (Exception e) {
                 logger.error("Error parsing ClientDataJSON: {}", e.getMessage());
             }
-
-            String endpointUrl = wso2Config.getBaseUrl() + "/api/users/v2/me/webauthn/finish-registration";
-            logger.info("=== WSO2 IS FIDO Registration Finish Request ===");
-            logger.info("URL: {}", endpointUrl);
-            logger.info("Headers: {}", headers);
-            logger.info("Payload: {}", jsonBody);
-
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                endpointUrl,
-                request,
-                String.class
-            );
-
-            logger.info("=== WSO2 IS FIDO Registration Finish Response ===");
-            logger.info("Status: {}", response.getStatusCode());
-            logger.info("Response Headers: {}", response.getHeaders());
-            logger.info("Response Body: {}", response.getBody());
-
-            logger.info("FIDO registration response status: {}", response.getStatusCode());
-            logger.info("FIDO registration response body: {}", response.getBody());
-            return objectMapper.readTree(response.getBody());
-
-        } catch (Exception e) {
-            logger.error("Error registering FIDO credential", e);
-            throw new RuntimeException("Failed to register FIDO credential", e);
         }
+
+        String endpointUrl = wso2Config.getBaseUrl() + Wso2Payloads.FINISH_REGISTRATION_PATH;
+        return new PreparedCall(endpointUrl, request);
     }
     
-    public JsonNode getFidoAuthenticationOptions(String username) {
+    public RawJson getFidoAuthenticationOptions(String username) {
         return getFidoAuthenticationOptions(username, null);
     }
     
-    public JsonNode getFidoAuthenticationOptions(String username, String userAccessToken) {
+    public RawJson getFidoAuthenticationOptions(String username, String userAccessToken) {
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            
-            // Nếu có user access token, sử dụng nó. Nếu không, sử dụng admin token
-            if (userAccessToken != null && !userAccessToken.trim().isEmpty()) {
-                headers.setBearerAuth(userAccessToken);
-                logger.info("Using user access token for FIDO authentication options");
-            } else {
-                // Sử dụng OAuth client credentials để lấy admin access token
-                String token = getAccessToken();
-                headers.setBearerAuth(token);
-                logger.info("Using admin access token for FIDO authentication options");
-            }
-
-            // Tạo form data như WSO2 IS yêu cầu
-            MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
-            String appId = "https://anhngo.site";
-            formData.add("appId", appId);
-
-            HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
+            PreparedCall call = fidoAuthenticationOptionsCall(userAccessToken);
 
-            String url = wso2Config.getBaseUrl() + "/t/" + wso2Config.getTenantDomain() + "/api/users/v2/me/webauthn/start-authentication";
-            logger.info("=== WSO2 IS FIDO Authentication Start Request ===");
-            logger.info("URL: {}", url);
-            logger.info("Headers: {}", headers);
-            logger.info("Payload: {}", formData);
+            ResponseEntity<String> response = wso2Calls.executeHedged(Wso2Operation.FIDO_AUTHENTICATION_OPTIONS, call.url(), call.request(),
+                () -> restTemplate.postForEntity(call.url(), call.request(), String.class));
 
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+            return RawJson.of(response.getBody());
 
-            logger.info("=== WSO2 IS FIDO Authentication Start Response ===");
-            logger.info("Status: {}", response.getStatusCode());
-            logger.info("Response Headers: {}", response.getHeaders());
-            logger.info("Response Body: {}", response.getBody());
-
-            logger.info("FIDO authentication options response: {}", response.getBody());
-            return objectMapper.readTree(response.getBody());
+        } catch (Exception e) {
+            logger.error("Error getting FIDO authentication options", e);
+            throw new RuntimeException("Failed to get authentication options", e);
+        }
+    }
 
+    /**
+     * Như getFidoAuthenticationOptions nhưng body WSO2 IS được stream thẳng sang response (wso2.client.passthrough)
+     */
+    public void streamFidoAuthenticationOptions(String userAccessToken, Wso2Passthrough target) {
+        try {
+            stream(Wso2Operation.FIDO_AUTHENTICATION_OPTIONS, fidoAuthenticationOptionsCall(userAccessToken), target);
         } catch (Exception e) {
             logger.error("Error getting FIDO authentication options", e);
             throw new RuntimeException("Failed to get authentication options", e);
         }
     }
+
+    private PreparedCall fidoAuthenticationOptionsCall(String userAccessToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        
+        // Nếu có user access token, sử dụng nó. Nếu không, sử dụng admin token
+        if (userAccessToken != null && !userAccessToken.trim().isEmpty()) {
+            headers.setBearerAuth(userAccessToken);
+            logger.info("Using user access token for FIDO authentication options");
+        } else {
+            // Sử dụng OAuth client credentials để lấy admin access token
+            String token = getAccessToken();
+            headers.setBearerAuth(token);
+            logger.info("Using admin access token for FIDO authentication options");
+        }
+
+        // Tạo form data như WSO2 IS yêu cầu
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("appId", Wso2Payloads.FIDO_APP_ID);
+
+        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
+
+        String url = wso2Config.getBaseUrl() + Wso2Payloads.webauthnPath(wso2Config, "start-authentication");
+        return new PreparedCall(url, request);
+    }
     
-    public JsonNode authenticateFido(String username, String assertionObject, 
+    public RawJson authenticateFido(String username, String assertionObject, 
                                     String clientDataJSON, String rawId, String userAccessToken) {
         try {
             // Phải sử dụng user access token từ frontend
@@ -409,27 +281,15 @@ public class Wso2Service {
             headers.setBearerAuth(userAccessToken);
 
             // Tạo JSON payload theo format string như trong curl example
-            String jsonBody = String.format(
-                "\"{requestId=%s, credential={id=%s, response={assertionObject=%s, clientDataJSON=%s}, clientExtensionResults={}, type=public-key}}\"",
-                "request-id", rawId, assertionObject, clientDataJSON
-            );
+            String jsonBody = Wso2Payloads.authenticationFinishBody(rawId, assertionObject, clientDataJSON);
             HttpEntity<String> request = new HttpEntity<>(jsonBody, headers);
 
-            String url = wso2Config.getBaseUrl() + "/t/" + wso2Config.getTenantDomain() + "/api/users/v2/me/webauthn/finish-authentication";
-            logger.info("=== WSO2 IS FIDO Authentication Finish Request ===");
-            logger.info("URL: {}", url);
-            logger.info("Headers: {}", headers);
-            logger.info("Payload: {}", jsonBody);
-
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+            String url = wso2Config.getBaseUrl() + Wso2Payloads.webauthnPath(wso2Config, "finish-authentication");
 
-            logger.info("=== WSO2 IS FIDO Authentication Finish Response ===");
-            logger.info("Status: {}", response.getStatusCode());
-            logger.info("Response Headers: {}", response.getHeaders());
-            logger.info("Response Body: {}", response.getBody());
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.FIDO_AUTHENTICATION_FINISH, url, request,
+                () -> restTemplate.postForEntity(url, request, String.class));
 
-            logger.info("FIDO authentication response: {}", response.getBody());
-            return objectMapper.readTree(response.getBody());
+            return RawJson.of(response.getBody());
 
         } catch (Exception e) {
             logger.error("Error authenticating FIDO", e);
@@ -452,29 +312,23 @@ public class Wso2Service {
             loginRequest.put("scope", "openid");
             
             // Sử dụng OAuth client credentials để authenticate user
-            String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
-            String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
+            String encodedCredentials = Wso2Payloads.encodedClientCredentials(wso2Config);
             headers.setBasicAuth(encodedCredentials);
             
             HttpEntity<String> request = new HttpEntity<>(buildFormData(loginRequest), headers);
             
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                wso2Config.getBaseUrl() + "/oauth2/token",
-                request,
-                String.class
-            );
-            
-            logger.info("User login response: {}", response.getBody());
+            String url = wso2Config.getBaseUrl() + Wso2Payloads.TOKEN_PATH;
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.USER_LOGIN, url, request,
+                () -> restTemplate.postForEntity(url, request, String.class));
             
-            JsonNode jsonNode = objectMapper.readTree(response.getBody());
-            JsonNode accessTokenNode = jsonNode.get("access_token");
+            Wso2TokenResponse tokenResponse = jsonCodec.read(response.getBody(), Wso2TokenResponse.class);
             
-            if (accessTokenNode == null) {
-                logger.error("No access_token found in user login response. Full response: {}", jsonNode.toString());
+            if (tokenResponse.accessToken() == null) {
+                logger.error("No access_token found in user login response. Status: {}", response.getStatusCode());
                 throw new RuntimeException("No access_token found in user login response");
             }
             
-            return accessTokenNode.asText();
+            return tokenResponse.accessToken();
             
         } catch (Exception e) {
             logger.error("Error during user login", e);
@@ -483,14 +337,7 @@ public class Wso2Service {
     }
     
     private String buildFormData(Map<String, String> data) {
-        StringBuilder result = new StringBuilder();
-        for (Map.Entry<String, String> entry : data.entrySet()) {
-            if (result.length() > 0) {
-                result.append("&");
-            }
-            result.append(entry.getKey()).append("=").append(java.net.URLEncoder.encode(entry.getValue(), java.nio.charset.StandardCharsets.UTF_8));
-        }
-        return result.toString();
+        return Wso2Payloads.formData(data);
     }
     
     /**
@@ -507,27 +354,22 @@ public class Wso2Service {
             tokenRequest.put("redirect_uri", "https://anhngo.site/oauth2/code/wso2");
 
             // Use OAuth client credentials
-            String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
-            String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
+            String encodedCredentials = Wso2Payloads.encodedClientCredentials(wso2Config);
             headers.setBasicAuth(encodedCredentials);
 
             HttpEntity<String> request = new HttpEntity<>(buildFormData(tokenRequest), headers);
 
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                wso2Config.getBaseUrl() + "/oauth2/token",
-                request,
-                String.class
-            );
+            String url = wso2Config.getBaseUrl() + Wso2Payloads.TOKEN_PATH;
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.CODE_EXCHANGE, url, request,
+                () -> restTemplate.postForEntity(url, request, String.class));
 
-            logger.info("Token exchange response: {}", response.getBody());
-
-            JsonNode jsonNode = objectMapper.readTree(response.getBody());
+            Wso2TokenResponse tokenResponse = jsonCodec.read(response.getBody(), Wso2TokenResponse.class);
 
             Map<String, Object> tokenData = new HashMap<>();
-            tokenData.put("access_token", jsonNode.get("access_token").asText());
-            tokenData.put("refresh_token", jsonNode.get("refresh_token").asText());
-            tokenData.put("token_type", jsonNode.get("token_type").asText());
-            tokenData.put("expires_in", jsonNode.get("expires_in").asInt());
+            tokenData.put("access_token", tokenResponse.accessToken());
+            tokenData.put("refresh_token", tokenResponse.refreshToken());
+            tokenData.put("token_type", tokenResponse.tokenType());
+            tokenData.put("expires_in", tokenResponse.expiresIn() != null ? tokenResponse.expiresIn().intValue() : 0);
 
             return tokenData;
 
@@ -542,81 +384,34 @@ public class Wso2Service {
      * Initialize native authentication flow - call /oauth2/authorize/ endpoint
      * Then automatically get challenge if biometric option is available
      */
-    public JsonNode initNativeAuth(String clientId, String redirectUri, String scope, String responseType, String responseMode) {
+    public RawJson initNativeAuth(String clientId, String redirectUri, String scope, String responseType, String responseMode) {
         try {
             // Step 1: Call /oauth2/authorize/ endpoint directly as per WSO2 IS documentation
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-
-            // Add Basic Authentication with client credentials from config
-            String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
-            String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
-            headers.setBasicAuth(encodedCredentials);
-
-            // Build form data for OAuth2 authorize request
-            Map<String, String> formData = new HashMap<>();
-            formData.put("client_id", wso2Config.getOauth().getClientKey());
-            formData.put("redirect_uri", redirectUri);
-            formData.put("scope", scope != null ? scope : "openid profile");
-            formData.put("response_type", responseType != null ? responseType : "code");
-            formData.put("response_mode", responseMode != null ? responseMode : "direct");
-            formData.put("prompt", "login");
-
-            HttpEntity<String> request = new HttpEntity<>(buildFormData(formData), headers);
-
-            String url = wso2Config.getBaseUrl() + "/oauth2/authorize/";
-            logger.info("=== WSO2 IS Native Auth Init Request ===");
-            logger.info("URL: {}", url);
-            logger.info("Headers: {}", headers);
-            logger.info("Payload: {}", buildFormData(formData));
-
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
-
-            logger.info("=== WSO2 IS Native Auth Init Response ===");
-            logger.info("Status: {}", response.getStatusCode());
-            logger.info("Response Headers: {}", response.getHeaders());
-            logger.info("Response Body: {}", response.getBody());
+            String initBody = callNativeAuthInit(redirectUri, scope, responseType, responseMode);
+            RawJson initResponse = RawJson.of(initBody);
 
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                throw new RuntimeException("WSO2 IS returned status: " + response.getStatusCode());
-            }
-
-            JsonNode initResponse = objectMapper.readTree(response.getBody());
-            
             // Step 2: Check if biometric option is available and get challenge automatically
-            if (initResponse.has("nextStep") && initResponse.get("nextStep").has("authenticators")) {
-                JsonNode authenticators = initResponse.get("nextStep").get("authenticators");
+            // Chỉ bind flowId và authenticators để quyết định, client nhận nguyên body gốc
+            NativeAuthFlowResponse flow = jsonCodec.read(initBody, NativeAuthFlowResponse.class);
+            String biometricAuthenticatorId = Wso2Payloads.findPasskeyAuthenticatorId(flow);
+            
+            // If biometric authenticator found, get challenge automatically and return only challenge data
+            // Sắp hết deadline thì trả init response luôn (client tự gọi /native-auth/challenge)
+            if (biometricAuthenticatorId != null && flow.flowId() != null
+                    && wso2Calls.hasBudgetFor(Wso2Operation.NATIVE_AUTH_CHALLENGE)) {
+                String flowId = flow.flowId();
+                logger.info("Found biometric authenticator: {}, getting challenge for flow: {}", biometricAuthenticatorId, flowId);
                 
-                // Look for biometric/passkey authenticator
-                String biometricAuthenticatorId = null;
-                for (JsonNode authenticator : authenticators) {
-                    if (authenticator.has("authenticatorId")) {
-                        String authenticatorId = authenticator.get("authenticatorId").asText();
-                        if (authenticatorId.contains("FIDO") || authenticatorId.contains("Passkey") || 
-                            authenticatorId.equals("RklET0F1dGhlbnRpY2F0b3I6TE9DQUw")) {
-                            biometricAuthenticatorId = authenticatorId;
-                            break;
-                        }
-                    }
-                }
-                
-                // If biometric authenticator found, get challenge automatically and return only challenge data
-                if (biometricAuthenticatorId != null && initResponse.has("flowId")) {
-                    String flowId = initResponse.get("flowId").asText();
-                    logger.info("Found biometric authenticator: {}, getting challenge for flow: {}", biometricAuthenticatorId, flowId);
+                try {
+                    RawJson challengeResponse = getPasskeyChallenge(flowId, biometricAuthenticatorId);
                     
-                    try {
-                        JsonNode challengeResponse = getPasskeyChallenge(flowId, biometricAuthenticatorId);
-                        
-                        logger.info("Successfully retrieved challenge, returning challenge data only");
-                        return challengeResponse;
-                        
-                    } catch (Exception challengeError) {
-                        logger.warn("Failed to get challenge automatically, returning init response only: {}", challengeError.getMessage());
-                        // Return init response without challenge if challenge call fails
-                        return initResponse;
-                    }
+                    logger.info("Successfully retrieved challenge, returning challenge data only");
+                    return challengeResponse;
+                    
+                } catch (Exception challengeError) {
+                    logger.warn("Failed to get challenge automatically, returning init response only: {}", challengeError.getMessage());
+                    // Return init response without challenge if challenge call fails
+                    return initResponse;
                 }
             }
             
@@ -627,196 +422,229 @@ public class Wso2Service {
             throw new RuntimeException("Failed to call WSO2 IS native auth init", e);
         }
     }
-    
+
     /**
-     * Get challenge for passkey authentication - call /oauth2/authn/ endpoint
+     * Như initNativeAuth nhưng challenge response được stream thẳng sang response (wso2.client.passthrough).
+     * Init response vẫn phải parse để tìm passkey authenticator
      */
-    public JsonNode getPasskeyChallenge(String flowId, String authenticatorId) {
+    public void streamNativeAuthInit(String redirectUri, String scope, String responseType, String responseMode,
+                                     Wso2Passthrough target) {
         try {
-            // Call /oauth2/authn/ endpoint as per WSO2 IS documentation
-            logger.info("Getting passkey challenge for flow: {} with authenticator: {}", flowId, authenticatorId);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+            String initBody = callNativeAuthInit(redirectUri, scope, responseType, responseMode);
+            NativeAuthFlowResponse flow = jsonCodec.read(initBody, NativeAuthFlowResponse.class);
+            String biometricAuthenticatorId = Wso2Payloads.findPasskeyAuthenticatorId(flow);
+
+            if (biometricAuthenticatorId != null && flow.flowId() != null
+                    && wso2Calls.hasBudgetFor(Wso2Operation.NATIVE_AUTH_CHALLENGE)) {
+                try {
+                    stream(Wso2Operation.NATIVE_AUTH_CHALLENGE, passkeyChallengeCall(flow.flowId(), biometricAuthenticatorId), target);
+                    return;
+                } catch (Exception challengeError) {
+                    if (target.isCommitted()) {
+                        throw challengeError;
+                    }
+                    logger.warn("Failed to get challenge automatically, returning init response only: {}", challengeError.getMessage());
+                }
+            }
 
-            // Add Basic Authentication with client credentials
-            String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
-            String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
-            headers.setBasicAuth(encodedCredentials);
+            target.writeBody(initBody);
 
-            // Create request body for /oauth2/authn/ endpoint
-            ObjectNode requestBody = objectMapper.createObjectNode();
-            requestBody.put("flowId", flowId);
-            
-            ObjectNode selectedAuthenticator = objectMapper.createObjectNode();
-            selectedAuthenticator.put("authenticatorId", authenticatorId);
-            requestBody.set("selectedAuthenticator", selectedAuthenticator);
+        } catch (Exception e) {
+            logger.error("Error calling WSO2 IS native auth init", e);
+            throw new RuntimeException("Failed to call WSO2 IS native auth init", e);
+        }
+    }
 
-            HttpEntity<String> request = new HttpEntity<>(objectMapper.writeValueAsString(requestBody), headers);
+    /**
+     * Init flow và lấy challenge passkey cho NativeAuthFlowPool; null nếu WSO2 IS không đưa ra passkey authenticator.
+     * Khác initNativeAuth: lỗi challenge không fallback về init response vì flow trong pool phải có challenge
+     */
+    public RawJson initPasskeyFlow(String redirectUri, String scope, String responseType, String responseMode) {
+        try {
+            String initBody = callNativeAuthInit(redirectUri, scope, responseType, responseMode);
+            NativeAuthFlowResponse flow = jsonCodec.read(initBody, NativeAuthFlowResponse.class);
+            String biometricAuthenticatorId = Wso2Payloads.findPasskeyAuthenticatorId(flow);
 
-            String url = wso2Config.getBaseUrl() + "/oauth2/authn/";
-            logger.info("=== WSO2 IS Passkey Challenge Request ===");
-            logger.info("URL: {}", url);
-            logger.info("Headers: {}", headers);
-            logger.info("Payload: {}", objectMapper.writeValueAsString(requestBody));
+            if (biometricAuthenticatorId == null || flow.flowId() == null) {
+                return null;
+            }
+            return getPasskeyChallenge(flow.flowId(), biometricAuthenticatorId);
 
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to pre-initialize WSO2 IS native auth flow", e);
+        }
+    }
+
+    private String callNativeAuthInit(String redirectUri, String scope, String responseType, String responseMode) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        // Add Basic Authentication with client credentials from config
+        String encodedCredentials = Wso2Payloads.encodedClientCredentials(wso2Config);
+        headers.setBasicAuth(encodedCredentials);
+
+        // Build form data for OAuth2 authorize request
+        String formData = Wso2Payloads.nativeAuthInitForm(wso2Config, redirectUri, scope, responseType, responseMode);
+
+        HttpEntity<String> request = new HttpEntity<>(formData, headers);
+
+        String url = wso2Config.getBaseUrl() + Wso2Payloads.AUTHORIZE_PATH;
+
+        ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.NATIVE_AUTH_INIT, url, request,
+            () -> restTemplate.postForEntity(url, request, String.class));
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new RuntimeException("WSO2 IS returned status: " + response.getStatusCode());
+        }
+        return response.getBody();
+    }
+    
+    /**
+     * Get challenge for passkey authentication - call /oauth2/authn/ endpoint
+     */
+    public RawJson getPasskeyChallenge(String flowId, String authenticatorId) {
+        try {
+            // Call /oauth2/authn/ endpoint as per WSO2 IS documentation
+            logger.info("Getting passkey challenge for flow: {} with authenticator: {}", flowId, authenticatorId);
+            
+            PreparedCall call = passkeyChallengeCall(flowId, authenticatorId);
 
-            logger.info("=== WSO2 IS Passkey Challenge Response ===");
-            logger.info("Status: {}", response.getStatusCode());
-            logger.info("Response Headers: {}", response.getHeaders());
-            logger.info("Response Body: {}", response.getBody());
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.NATIVE_AUTH_CHALLENGE, call.url(), call.request(),
+                () -> restTemplate.postForEntity(call.url(), call.request(), String.class));
 
             if (!response.getStatusCode().is2xxSuccessful()) {
                 throw new RuntimeException("WSO2 IS returned status: " + response.getStatusCode());
             }
 
-            return objectMapper.readTree(response.getBody());
+            return RawJson.of(response.getBody());
 
         } catch (Exception e) {
             logger.error("Error calling WSO2 IS passkey challenge", e);
             throw new RuntimeException("Failed to call WSO2 IS passkey challenge", e);
         }
     }
+
+    private PreparedCall passkeyChallengeCall(String flowId, String authenticatorId) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        // Add Basic Authentication with client credentials
+        String encodedCredentials = Wso2Payloads.encodedClientCredentials(wso2Config);
+        headers.setBasicAuth(encodedCredentials);
+
+        // Create request body for /oauth2/authn/ endpoint
+        String requestBody = Wso2Payloads.passkeyChallengeBody(jsonCodec, flowId, authenticatorId);
+
+        HttpEntity<String> request = new HttpEntity<>(requestBody, headers);
+
+        return new PreparedCall(wso2Config.getBaseUrl() + Wso2Payloads.AUTHN_PATH, request);
+    }
     
     /**
      * Verify passkey authentication credentials - call /oauth2/authn/ endpoint
      */
-    public JsonNode verifyPasskeyAuth(String flowId, String authenticatorId, 
+    public RawJson verifyPasskeyAuth(String flowId, String authenticatorId, 
                                      String clientDataJSON, String authenticatorData, 
                                      String signature, String userHandle, String requestId, String credentialId) {
         try {
             // Call /oauth2/authn/ endpoint as per WSO2 IS documentation
             logger.info("Verifying passkey authentication for flow: {} with authenticator: {}", flowId, authenticatorId);
             
-            // Debug: Decode and check clientDataJSON
-            try {
-                String decodedClientData = new String(java.util.Base64.getDecoder().decode(clientDataJSON));
-                logger.info("🔍 ClientDataJSON (decoded): {}", decodedClientData);
-                JsonNode clientDataObj = objectMapper.readTree(decodedClientData);
-                logger.info("🔍 ClientDataJSON challenge: {}", clientDataObj.get("challenge"));
-                logger.info("🔍 ClientDataJSON origin: {}", clientDataObj.get("origin"));
-            } catch (Exception e) {
-                logger.error("❌ Failed to decode clientDataJSON: {}", e.getMessage());
-            }
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+            PreparedCall call = passkeyVerifyCall(flowId, authenticatorId, clientDataJSON, authenticatorData,
+                signature, userHandle, requestId, credentialId);
 
-            // Add Basic Authentication with client credentials
-            String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
-            String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
-            headers.setBasicAuth(encodedCredentials);
+            ResponseEntity<String> responseEntity = wso2Calls.execute(Wso2Operation.NATIVE_AUTH_VERIFY, call.url(), call.request(),
+                () -> restTemplate.postForEntity(call.url(), call.request(), String.class));
 
-            // Create WebAuthn credential response according to WSO2 IS documentation
-            // Format should be: { "requestId": "...", "credential": { ... } }
-            // Use the requestId from challenge data and credentialId from WebAuthn response
-            logger.info("🔍 Using requestId from challenge data: {}", requestId);
-            logger.info("🔍 Using credentialId from WebAuthn response: {}", credentialId);
-            
-            // Create the main response object with requestId and credential
-            ObjectNode responseObject = objectMapper.createObjectNode();
-            responseObject.put("requestId", requestId);
-            
-            // Create credential object
-            ObjectNode credential = objectMapper.createObjectNode();
-            credential.put("id", credentialId);
-            logger.info("🔍 Using provided credentialId: {}", credentialId);
-            
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("authenticatorData", authenticatorData);
-            response.put("clientDataJSON", clientDataJSON);
-            response.put("signature", signature);
-            if (userHandle != null) {
-                response.put("userHandle", userHandle);
-            }
-            
-            credential.set("response", response);
-            credential.set("clientExtensionResults", objectMapper.createObjectNode());
-            credential.put("type", "public-key");
-            
-            // Set credential in the main response object
-            responseObject.set("credential", credential);
-            
-            // Base64 encode the complete response object
-            String responseJson = objectMapper.writeValueAsString(responseObject);
-            String tokenResponse = java.util.Base64.getEncoder().encodeToString(responseJson.getBytes());
-            
-            logger.info("Response JSON: {}", responseJson);
-            logger.info("TokenResponse (base64): {}", tokenResponse);
-            
-            // Test if the base64 encoded JSON can be decoded and parsed back
-            try {
-                String decodedJson = new String(java.util.Base64.getDecoder().decode(tokenResponse));
-                logger.info("Decoded JSON from base64: {}", decodedJson);
-                
-                // Try to parse the decoded JSON to ensure it's valid
-                JsonNode parsedNode = objectMapper.readTree(decodedJson);
-                logger.info("Successfully parsed decoded JSON: {}", parsedNode);
-                
-                // Check if all required fields are present
-                if (parsedNode.has("requestId") && parsedNode.has("credential")) {
-                    logger.info("✅ All required fields present in decoded JSON");
-                    JsonNode credentialNode = parsedNode.get("credential");
-                    if (credentialNode.has("id") && credentialNode.has("response") && credentialNode.has("type")) {
-                        logger.info("✅ Credential object has all required fields");
-                    } else {
-                        logger.warn("⚠️ Credential object missing required fields");
-                    }
-                } else {
-                    logger.warn("⚠️ Missing required fields in decoded JSON");
-                }
-                
-            } catch (Exception e) {
-                logger.error("❌ Failed to decode/parse base64 JSON: {}", e.getMessage());
+            if (!responseEntity.getStatusCode().is2xxSuccessful()) {
+                throw new RuntimeException("WSO2 IS returned status: " + responseEntity.getStatusCode());
             }
-            
-            // Create request body for /oauth2/authn/ endpoint
-            ObjectNode requestBody = objectMapper.createObjectNode();
-            requestBody.put("flowId", flowId);
-            
-            ObjectNode selectedAuthenticator = objectMapper.createObjectNode();
-            selectedAuthenticator.put("authenticatorId", authenticatorId);
-            
-            ObjectNode params = objectMapper.createObjectNode();
-            params.put("tokenResponse", tokenResponse);
-            selectedAuthenticator.set("params", params);
-            
-            requestBody.set("selectedAuthenticator", selectedAuthenticator);
 
-            HttpEntity<String> request = new HttpEntity<>(objectMapper.writeValueAsString(requestBody), headers);
+            return RawJson.of(responseEntity.getBody());
 
-            String url = wso2Config.getBaseUrl() + "/oauth2/authn/";
-            logger.info("=== WSO2 IS Passkey Verify Request ===");
-            logger.info("URL: {}", url);
-            logger.info("Headers: {}", headers);
-            logger.info("Payload: {}", objectMapper.writeValueAsString(requestBody));
-            
-            // Additional logging for debugging
-            logger.info("Request body structure:");
-            logger.info("- flowId: {}", requestBody.get("flowId"));
-            logger.info("- selectedAuthenticator.authenticatorId: {}", requestBody.get("selectedAuthenticator").get("authenticatorId"));
-            logger.info("- selectedAuthenticator.params.tokenResponse length: {}", 
-                requestBody.get("selectedAuthenticator").get("params").get("tokenResponse").asText().length());
+        } catch (Exception e) {
+            logger.error("Error calling WSO2 IS passkey verify", e);
+            throw new RuntimeException("Failed to call WSO2 IS passkey verify", e);
+        }
+    }
 
-            ResponseEntity<String> responseEntity = restTemplate.postForEntity(url, request, String.class);
+    /**
+     * Như verifyPasskeyAuth nhưng body WSO2 IS được stream thẳng sang response (wso2.client.passthrough)
+     */
+    public void streamPasskeyVerify(String flowId, String authenticatorId,
+                                    String clientDataJSON, String authenticatorData,
+                                    String signature, String userHandle, String requestId, String credentialId,
+                                    Wso2Passthrough target) {
+        try {
+            logger.info("Verifying passkey authentication for flow: {} with authenticator: {}", flowId, authenticatorId);
+            stream(Wso2Operation.NATIVE_AUTH_VERIFY, passkeyVerifyCall(flowId, authenticatorId, clientDataJSON,
+                authenticatorData, signature, userHandle, requestId, credentialId), target);
+        } catch (Exception e) {
+            logger.error("Error calling WSO2 IS passkey verify", e);
+            throw new RuntimeException("Failed to call WSO2 IS passkey verify", e);
+        }
+    }
 
-            logger.info("=== WSO2 IS Passkey Verify Response ===");
-            logger.info("Status: {}", responseEntity.getStatusCode());
-            logger.info("Response Headers: {}", responseEntity.getHeaders());
-            logger.info("Response Body: {}", responseEntity.getBody());
+    private PreparedCall passkeyVerifyCall(String flowId, String authenticatorId,
+                                           String clientDataJSON, String authenticatorData,
+                                           String signature, String userHandle, String requestId,
+                                           String credentialId) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        // Add Basic Authentication with client credentials
+        String encodedCredentials = Wso2Payloads.encodedClientCredentials(wso2Config);
+        headers.setBasicAuth(encodedCredentials);
+
+        // tokenResponse = Base64({ "requestId": "...", "credential": { ... } }), ghi thẳng vào body trong một lượt
+        // Use the requestId from challenge data and credentialId from WebAuthn response
+        byte[] requestBody = Wso2Payloads.passkeyVerifyBodyBytes(jsonCodec, flowId, authenticatorId,
+            requestId, credentialId, authenticatorData, clientDataJSON, signature, userHandle);
+
+        if (clientConfig.isDiagnostics()) {
+            logPasskeyVerifyDiagnostics(requestBody);
+        }
 
-            if (!responseEntity.getStatusCode().is2xxSuccessful()) {
-                throw new RuntimeException("WSO2 IS returned status: " + responseEntity.getStatusCode());
-            }
+        HttpEntity<byte[]> request = new HttpEntity<>(requestBody, headers);
 
-            return objectMapper.readTree(responseEntity.getBody());
+        return new PreparedCall(wso2Config.getBaseUrl() + Wso2Payloads.AUTHN_PATH, request);
+    }
 
+    /**
+     * Gửi request và copy body response sang target thay vì đọc vào String.
+     * Response lỗi (4xx/5xx) được error handler của RestTemplate ném ra trước khi ghi gì vào target
+     */
+    private void stream(Wso2Operation operation, PreparedCall call, Wso2Passthrough target) {
+        wso2Calls.execute(operation, call.url(), call.request(),
+            () -> restTemplate.execute(call.url(), HttpMethod.POST, restTemplate.httpEntityCallback(call.request()), target::write));
+    }
+
+    /**
+     * Chế độ diagnostics (wso2.client.diagnostics): decode lại tokenResponse và kiểm tra các field bắt buộc.
+     * Tốn thêm một lượt decode/parse nên chỉ bật khi debug tích hợp với WSO2 IS
+     */
+    private void logPasskeyVerifyDiagnostics(byte[] requestBody) {
+        try {
+            JsonNode body = jsonCodec.readTree(requestBody);
+            String tokenResponse = body.path("selectedAuthenticator").path("params").path("tokenResponse").asText();
+            JsonNode parsedNode = jsonCodec.readTree(java.util.Base64.getDecoder().decode(tokenResponse));
+            logger.info("Passkey verify flowId: {}, tokenResponse length: {}", body.path("flowId").asText(), tokenResponse.length());
+            logger.info("Decoded tokenResponse: {}", parsedNode);
+
+            JsonNode credentialNode = parsedNode.path("credential");
+            if (!parsedNode.has("requestId") || !credentialNode.has("id") || !credentialNode.has("response")
+                || !credentialNode.has("type")) {
+                logger.warn("⚠️ Missing required fields in decoded tokenResponse");
+            }
+
+            String clientDataJSON = credentialNode.path("response").path("clientDataJSON").asText();
+            JsonNode clientData = jsonCodec.readTree(java.util.Base64.getUrlDecoder().decode(clientDataJSON));
+            logger.info("🔍 ClientDataJSON challenge: {}, origin: {}", clientData.get("challenge"), clientData.get("origin"));
         } catch (Exception e) {
-            logger.error("Error calling WSO2 IS passkey verify", e);
-            throw new RuntimeException("Failed to call WSO2 IS passkey verify", e);
+            logger.error("❌ Failed to decode/parse passkey verify payload: {}", e.getMessage());
         }
     }
     
@@ -836,23 +664,22 @@ public class Wso2Service {
                 logger.info("Using user access token for FIDO credential deregistration");
             } else {
                 // Fallback to admin credentials if no user token
-                String credentials = wso2Config.getOauth().getClientKey() + ":" + wso2Config.getOauth().getClientSecret();
-                String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes());
+                String encodedCredentials = Wso2Payloads.encodedClientCredentials(wso2Config);
                 headers.setBasicAuth(encodedCredentials);
                 logger.info("Using admin credentials for FIDO credential deregistration");
             }
             
             HttpEntity<String> request = new HttpEntity<>(headers);
             
-            String url = wso2Config.getBaseUrl() + "/t/" + wso2Config.getTenantDomain() + "/api/users/v2/me/webauthn/" + credentialId;
+            String url = wso2Config.getBaseUrl() + Wso2Payloads.webauthnPath(wso2Config, credentialId);
             logger.info("Calling WSO2 IS deregister FIDO credential: {}", url);
             
-            ResponseEntity<String> response = restTemplate.exchange(
+            ResponseEntity<String> response = wso2Calls.execute(Wso2Operation.FIDO_DEREGISTER, url, request, () -> restTemplate.exchange(
                 url,
                 org.springframework.http.HttpMethod.DELETE,
                 request,
                 String.class
-            );
+            ));
             
             if (!response.getStatusCode().is2xxSuccessful()) {
                 throw new RuntimeException("WSO2 IS returned status: " + response.getStatusCode());
@@ -865,4 +692,10 @@ public class Wso2Service {
             throw new RuntimeException("Failed to deregister FIDO credential from WSO2 IS", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * URL và request đã dựng sẵn, dùng chung cho call đọc body và call stream (pass-through)
+     */
+    private record PreparedCall(String url, HttpEntity<?> request) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.anhngo.wso2.fido.service;
+
+import com.anhngo.wso2.fido.config.WireLogConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Wire log cho traffic tới WSO2 IS, tắt mặc định.
+ * Khi bật, chỉ một phần flow được log (sample theo inbound request: mọi call WSO2 IS của cùng một request
+ * cùng được log hoặc cùng bị bỏ qua). Token, secret và header nhạy cảm được thay bằng *** trước khi ghi.
+ * Logger wso2.wire được gắn vào async appender trong logback-spring.xml, đầy queue thì drop chứ không block.
+ */
+@Component
+public class Wso2WireLogger {
+
+    static final String LOGGER_NAME = "wso2.wire";
+    private static final Logger wireLog = LoggerFactory.getLogger(LOGGER_NAME);
+    private static final String SAMPLED_ATTRIBUTE = Wso2WireLogger.class.getName() + ".sampled";
+    private static final String MASK = "***";
+    // Chỉ dùng cho tree model khi redact, không cần module/config của ObjectMapper bean
+    private static final ObjectMapper TREE_MAPPER = new ObjectMapper();
+
+    private final int maxBodyLength;
+    private final Set<String> redactedFields;
+    private final Set<String> redactedHeaders;
+    private final Pattern jsonFieldPattern;
+    private final Pattern jsonStructurePattern;
+    private final Pattern formFieldPattern;
+
+    private volatile boolean enabled;
+    private volatile double sampleRate;
+
+    public Wso2WireLogger(WireLogConfig config) {
+        this.enabled = config.isEnabled();
+        this.sampleRate = clamp(config.getSampleRate());
+        this.maxBodyLength = config.getMaxBodyLength();
+        this.redactedFields = Set.copyOf(config.getRedactedFields());
+        this.redactedHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        this.redactedHeaders.addAll(config.getRedactedHeaders());
+
+        String fields = config.getRedactedFields().stream()
+            .map(Pattern::quote)
+            .collect(Collectors.joining("|"));
+        this.jsonFieldPattern = Pattern.compile("\"(" + fields + ")\"\\s*:\\s*\"(?:[^\"\\\\]|\\\\.)*\"");
+        this.jsonStructurePattern = Pattern.compile("\"(" + fields + ")\"\\s*:\\s*[\\[{].*", Pattern.DOTALL);
+        this.formFieldPattern = Pattern.compile("(^|[&?])(" + fields + ")=[^&]*");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = clamp(sampleRate);
+    }
+
+    /**
+     * Quyết định có log flow hiện tại hay không. Trong một inbound request kết quả được giữ lại
+     * trên request attributes; ngoài request (refresh ngầm, reactive) thì sample theo từng call.
+     */
+    public boolean sample() {
+        if (!enabled || !wireLog.isInfoEnabled()) {
+            return false;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return roll();
+        }
+        Object decision = attributes.getAttribute(SAMPLED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (decision == null) {
+            decision = roll();
+            attributes.setAttribute(SAMPLED_ATTRIBUTE, decision, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Boolean) decision;
+    }
+
+    public void logRequest(Wso2Operation operation, String url, HttpEntity<?> request) {
+        wireLog.info("--> {} {} headers={} body={}", operation.tagValue(), url,
+            request != null ? redactHeaders(request.getHeaders()) : Map.of(),
+            request != null ? redactBody(request.getBody()) : "");
+    }
+
+    public void logResponse(Wso2Operation operation, long elapsedMillis, ResponseEntity<?> response) {
+        wireLog.info("<-- {} {} ({}ms) headers={} body={}", operation.tagValue(), response.getStatusCode().value(),
+            elapsedMillis, redactHeaders(response.getHeaders()), redactBody(response.getBody()));
+    }
+
+    public void logFailure(Wso2Operation operation, long elapsedMillis, Exception e) {
+        wireLog.info("<-- {} FAILED ({}ms) {}", operation.tagValue(), elapsedMillis, redactBody(e.getMessage()));
+    }
+
+    public Map<String, Object> redactHeaders(HttpHeaders headers) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        headers.forEach((name, values) -> result.put(name, redactedHeaders.contains(name) ? MASK : values));
+        return result;
+    }
+
+    public String redactBody(Object body) {
+        if (body == null) {
+            return "";
+        }
+        String text;
+        if (body instanceof MultiValueMap<?, ?> form) {
+            Map<Object, Object> redacted = new LinkedHashMap<>();
+            form.forEach((key, values) -> redacted.put(key, redactedFields.contains(String.valueOf(key)) ? MASK : values));
+            text = redacted.toString();
+        } else {
+            text = body instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : body.toString();
+            text = redactJson(text);
+            text = formFieldPattern.matcher(text).replaceAll("$1$2=" + MASK);
+        }
+        if (text.length() > maxBodyLength) {
+            return text.substring(0, maxBodyLength) + "...(" + text.length() + " chars)";
+        }
+        return text;
+    }
+
+    /**
+     * Body JSON được redact trên tree nên field nhạy cảm có giá trị object/array (credential, tokenResponse)
+     * cũng bị che. Text không parse được (message lỗi kèm body, ...) thì dùng regex: giá trị string bị che,
+     * giá trị object/array bị che cùng toàn bộ phần text phía sau
+     */
+    private String redactJson(String text) {
+        String trimmed = text.stripLeading();
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            try {
+                JsonNode tree = TREE_MAPPER.readTree(text);
+                redactTree(tree);
+                return TREE_MAPPER.writeValueAsString(tree);
+            } catch (JsonProcessingException e) {
+                // Không phải JSON hợp lệ, dùng regex bên dưới
+            }
+        }
+        text = jsonFieldPattern.matcher(text).replaceAll("\"$1\":\"" + MASK + "\"");
+        return jsonStructurePattern.matcher(text).replaceAll("\"$1\":\"" + MASK + "\"...(redacted)");
+    }
+
+    private void redactTree(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            for (Map.Entry<String, JsonNode> field : object.properties()) {
+                if (redactedFields.contains(field.getKey())) {
+                    field.setValue(TextNode.valueOf(MASK));
+                } else {
+                    redactTree(field.getValue());
+                }
+            }
+        } else if (node instanceof ArrayNode array) {
+            array.forEach(this::redactTree);
+        }
+    }
+
+    private boolean roll() {
+        return ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private static double clamp(double rate) {
+        return Math.max(0.0, Math.min(1.0, rate));
+    }
+}
@@ -0,0 +1,168 @@
+package com.anhngo.wso2.fido.transport;
+
+import com.anhngo.wso2.fido.config.Wso2HttpClientPoolConfig;
+import com.anhngo.wso2.fido.filter.Deadline;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HeaderElement;
+import org.apache.hc.core5.http.HeaderElements;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.message.MessageSupport;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * HttpClient5 classic (HTTP/1.1) trên PoolingHttpClientConnectionManager: mỗi request đang chạy giữ một connection
+ */
+public class ClassicWso2Transport implements Wso2Transport {
+
+    private final HttpComponentsClientHttpRequestFactory requestFactory;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final Duration connectTimeout;
+    private final Duration connectionRequestTimeout;
+    private final TimeValue keepAlive;
+
+    public ClassicWso2Transport(PoolingHttpClientConnectionManager connectionManager, Wso2HttpClientPoolConfig pool,
+                                Duration defaultReadTimeout, boolean deadlines) {
+        this.connectionManager = connectionManager;
+        this.connectTimeout = pool.getConnectTimeout();
+        this.connectionRequestTimeout = pool.getConnectionRequestTimeout();
+        this.keepAlive = TimeValue.of(pool.getKeepAlive());
+
+        HttpClientBuilder builder = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setKeepAliveStrategy(this::keepAliveDuration)
+            // Background evictor: đóng connection idle quá idle-timeout hoặc hết TTL trước khi WSO2 IS/LB đóng phía server
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.of(pool.getIdleTimeout()));
+        if (!pool.isCompression()) {
+            builder.disableContentCompression();
+        }
+
+        requestFactory = new HttpComponentsClientHttpRequestFactory(builder.build());
+        requestFactory.setConnectionRequestTimeout((int) connectionRequestTimeout.toMillis());
+        // Read timeout cho call ngoài request inbound; trong request, deadlineContext thay bằng thời gian còn lại
+        requestFactory.setReadTimeout(defaultReadTimeout);
+        if (deadlines) {
+            requestFactory.setHttpContextFactory((method, uri) -> deadlineContext());
+        }
+    }
+
+    @Override
+    public String name() {
+        return "classic";
+    }
+
+    @Override
+    public ClientHttpRequestFactory requestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * Lease đồng thời connections connection (tối đa max-per-route) tới route của origin, connect (TCP + TLS handshake) rồi trả lại pool
+     * để request sau lease được connection đã sẵn sàng. Connection lỗi được bỏ qua
+     */
+    @Override
+    public int prewarm(URI origin, int connections) {
+        HttpRoute route = route(origin.toString());
+        int count = Math.min(connections, connectionManager.getMaxPerRoute(route));
+        List<Future<ConnectionEndpoint>> opening = new ArrayList<>(count);
+        // Giữ tất cả connection cho đến khi mở xong, nếu không pool sẽ cho lease lại cùng một connection
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count; i++) {
+                opening.add(executor.submit(() -> open(route)));
+            }
+        }
+        int opened = 0;
+        for (Future<ConnectionEndpoint> endpoint : opening) {
+            // Connection không mở được thì bỏ qua, các connection khác vẫn dùng được
+            if (endpoint.state() == Future.State.SUCCESS) {
+                connectionManager.release(endpoint.resultNow(), null, keepAlive);
+                opened++;
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Route của origin (scheme://host[:port]) như pool thấy: port luôn tường minh để limit/lease khớp route của request
+     */
+    public static HttpRoute route(String origin) {
+        URI uri = URI.create(origin);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : secure ? 443 : 80;
+        return new HttpRoute(new HttpHost(uri.getScheme(), uri.getHost(), port), null, secure);
+    }
+
+    private ConnectionEndpoint open(HttpRoute route) throws Exception {
+        LeaseRequest lease = connectionManager.lease("prewarm", route, Timeout.of(connectionRequestTimeout), null);
+        ConnectionEndpoint endpoint = lease.get(Timeout.of(connectionRequestTimeout));
+        try {
+            if (!endpoint.isConnected()) {
+                connectionManager.connect(endpoint, Timeout.of(connectTimeout), HttpClientContext.create());
+            }
+            return endpoint;
+        } catch (Exception e) {
+            connectionManager.release(endpoint, null, TimeValue.ZERO_MILLISECONDS);
+            throw e;
+        }
+    }
+
+    /**
+     * Keep-alive theo header Keep-Alive: timeout=N của WSO2 IS nhưng không quá keep-alive cấu hình;
+     * không có header thì dùng keep-alive cấu hình (mặc định của HttpClient5 là giữ vô hạn)
+     */
+    private TimeValue keepAliveDuration(HttpResponse response, HttpContext context) {
+        Iterator<HeaderElement> elements = MessageSupport.iterate(response, HeaderElements.KEEP_ALIVE);
+        while (elements.hasNext()) {
+            HeaderElement element = elements.next();
+            if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                try {
+                    TimeValue server = TimeValue.ofSeconds(Long.parseLong(element.getValue().trim()));
+                    return server.compareTo(keepAlive) < 0 ? server : keepAlive;
+                } catch (NumberFormatException ignored) {
+                    // Header không hợp lệ: dùng keep-alive cấu hình
+                }
+            }
+        }
+        return keepAlive;
+    }
+
+    /**
+     * RequestConfig theo deadline của request inbound: response timeout và thời gian chờ lease connection
+     * không vượt quá thời gian còn lại. Null (không có deadline) thì request factory dùng timeout mặc định
+     */
+    private HttpContext deadlineContext() {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return null;
+        }
+        // Đã hết hạn thì Wso2CallExecutor chặn trước khi gọi; 1ms chỉ để timeout không bằng 0 (= vô hạn)
+        long remainingMillis = Math.max(1, deadline.remaining().toMillis());
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(Math.min(remainingMillis, connectionRequestTimeout.toMillis())))
+            .setResponseTimeout(Timeout.ofMilliseconds(remainingMillis))
+            .build());
+        return context;
+    }
+}
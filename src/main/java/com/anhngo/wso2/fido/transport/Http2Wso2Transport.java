@@ -0,0 +1,103 @@
+package com.anhngo.wso2.fido.transport;
+
+import com.anhngo.wso2.fido.filter.Deadline;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * JDK HttpClient với HTTP/2: các request đồng thời tới cùng WSO2 IS host được multiplex thành stream trên
+ * một connection TLS (ALPN h2) thay vì mỗi request một connection; server chỉ có HTTP/1.1 thì tự fallback.
+ * Khác classic: JDK HttpClient luôn kiểm tra hostname của certificate
+ * (tắt được bằng -Djdk.internal.httpclient.disableHostnameVerification, chỉ cho môi trường dev).
+ */
+public class Http2Wso2Transport implements Wso2Transport, AutoCloseable {
+
+    private final HttpClient httpClient;
+    private final Executor executor;
+    private final Duration defaultReadTimeout;
+    private final boolean deadlines;
+    private final JdkClientHttpRequestFactory defaultRequestFactory;
+
+    public Http2Wso2Transport(SSLContext sslContext, SSLParameters sslParameters, Duration connectTimeout,
+                              Duration defaultReadTimeout, boolean deadlines, Executor executor) {
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .sslContext(sslContext)
+            .sslParameters(sslParameters)
+            .connectTimeout(connectTimeout)
+            .executor(executor)
+            .build();
+        this.executor = executor;
+        this.defaultReadTimeout = defaultReadTimeout;
+        this.deadlines = deadlines;
+        this.defaultRequestFactory = requestFactory(defaultReadTimeout);
+    }
+
+    @Override
+    public String name() {
+        return "http2";
+    }
+
+    @Override
+    public ClientHttpRequestFactory requestFactory() {
+        if (!deadlines) {
+            return defaultRequestFactory;
+        }
+        // Read timeout của JdkClientHttpRequestFactory là cố định nên tạo factory (nhẹ, dùng chung HttpClient)
+        // theo thời gian còn lại của deadline cho từng request
+        return (uri, method) -> {
+            Deadline deadline = Deadline.current();
+            if (deadline == null) {
+                return defaultRequestFactory.createRequest(uri, method);
+            }
+            Duration remaining = deadline.remaining();
+            Duration timeout = remaining.compareTo(defaultReadTimeout) < 0 ? remaining : defaultReadTimeout;
+            return requestFactory(timeout.isNegative() || timeout.isZero() ? Duration.ofMillis(1) : timeout)
+                .createRequest(uri, method);
+        };
+    }
+
+    /**
+     * Với HTTP/2 mọi request dùng chung một connection nên chỉ cần một HEAD request để mở connection và thương lượng h2
+     */
+    @Override
+    public int prewarm(URI origin, int connections) {
+        if (connections <= 0) {
+            return 0;
+        }
+        HttpRequest request = HttpRequest.newBuilder(origin)
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .timeout(defaultReadTimeout)
+            .build();
+        try {
+            httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return 1;
+        } catch (IOException e) {
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        httpClient.close();
+    }
+
+    private JdkClientHttpRequestFactory requestFactory(Duration readTimeout) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient, executor);
+        factory.setReadTimeout(readTimeout);
+        return factory;
+    }
+}
@@ -0,0 +1,140 @@
+package com.anhngo.wso2.fido.transport;
+
+import com.anhngo.wso2.fido.config.Wso2TlsConfig;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.InputStream;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+
+/**
+ * Cấu hình TLS chung cho mọi client tới WSO2 IS (classic, http2, WebClient): trust store, protocols và
+ * client session cache. Một SSLContext dùng chung cho cả pool nên connection mới tới cùng host:port
+ * resume session đã có (TLS 1.3 PSK / session ID) thay vì full handshake.
+ */
+@Component
+public class Wso2Tls {
+
+    // X509ExtendedTrustManager để JDK không bọc thêm bước kiểm tra hostname; hostname do verifyHostname() quyết định
+    private static final X509ExtendedTrustManager TRUST_ALL = new X509ExtendedTrustManager() {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    };
+
+    private final Wso2TlsConfig config;
+    private final SSLContext sslContext;
+
+    public Wso2Tls(Wso2TlsConfig config) {
+        this.config = config;
+        this.sslContext = createSslContext();
+    }
+
+    public SSLContext sslContext() {
+        return sslContext;
+    }
+
+    public boolean isTrustAll() {
+        return config.isTrustAll();
+    }
+
+    /**
+     * Trust manager cho SSLContext của transport blocking; trust-all dùng TRUST_ALL (chỉ cho dev)
+     */
+    public TrustManager[] trustManagers() {
+        if (config.isTrustAll()) {
+            return new TrustManager[] { TRUST_ALL };
+        }
+        return trustManagerFactory().getTrustManagers();
+    }
+
+    /**
+     * Trust manager từ trust-store (hoặc cacerts của JDK), không xét trust-all
+     */
+    public TrustManagerFactory trustManagerFactory() {
+        try {
+            KeyStore trustStore = null;
+            if (config.getTrustStore() != null) {
+                trustStore = KeyStore.getInstance(config.getTrustStoreType());
+                char[] password = config.getTrustStorePassword() != null ? config.getTrustStorePassword().toCharArray() : null;
+                try (InputStream in = config.getTrustStore().getInputStream()) {
+                    trustStore.load(in, password);
+                }
+            }
+            // Null trust store = JDK default cacerts
+            TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            factory.init(trustStore);
+            return factory;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load WSO2 IS trust store: " + e.getMessage(), e);
+        }
+    }
+
+    public String[] protocols() {
+        return config.getProtocols().toArray(String[]::new);
+    }
+
+    public boolean verifyHostname() {
+        return !config.isTrustAll() && config.isVerifyHostname();
+    }
+
+    public SSLParameters sslParameters() {
+        SSLParameters parameters = sslContext().getDefaultSSLParameters();
+        parameters.setProtocols(protocols());
+        return parameters;
+    }
+
+    public int sessionCacheSize() {
+        return config.getSessionCacheSize();
+    }
+
+    public long sessionTimeoutSeconds() {
+        return config.getSessionTimeout().toSeconds();
+    }
+
+    private SSLContext createSslContext() {
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, trustManagers(), null);
+            SSLSessionContext sessions = context.getClientSessionContext();
+            sessions.setSessionCacheSize(config.getSessionCacheSize());
+            sessions.setSessionTimeout((int) config.getSessionTimeout().toSeconds());
+            return context;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create WSO2 IS SSL context: " + e.getMessage(), e);
+        }
+    }
+}
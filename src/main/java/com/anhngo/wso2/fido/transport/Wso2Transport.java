@@ -0,0 +1,27 @@
+package com.anhngo.wso2.fido.transport;
+
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+import java.net.URI;
+
+/**
+ * Transport HTTP tới WSO2 IS, chọn bằng wso2.transport.type.
+ * RestTemplate (Wso2Service, OAuth2Service, token manager, JWKS) gửi request qua requestFactory() của transport,
+ * nên Wso2CallExecutor, streaming pass-through và error handling không phụ thuộc transport.
+ * Mọi implementation phải áp timeout theo Deadline của request inbound nếu có.
+ */
+public interface Wso2Transport {
+
+    /**
+     * Tên transport (classic, http2), dùng cho log
+     */
+    String name();
+
+    ClientHttpRequestFactory requestFactory();
+
+    /**
+     * Mở trước connection (kèm TLS handshake) tới origin để các request đầu tiên sau deploy không phải chờ handshake.
+     * Trả về số connection đã mở
+     */
+    int prewarm(URI origin, int connections);
+}
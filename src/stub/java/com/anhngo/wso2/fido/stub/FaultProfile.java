@@ -0,0 +1,111 @@
+package com.anhngo.wso2.fido.stub;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Độ trễ và lỗi giả lập cho một nhóm endpoint của stub.
+ * Độ trễ theo phân phối log-normal xác định bởi median và p99; lỗi, timeout và connection reset theo tỉ lệ.
+ *
+ * Đọc từ system properties, theo thứ tự: stub.&lt;group&gt;.&lt;name&gt;, stub.&lt;name&gt;, rồi preset của stub.profile
+ * (fast, realistic, degraded, outage).
+ */
+final class FaultProfile {
+
+    enum Outcome { OK, ERROR, TIMEOUT, RESET }
+
+    // z-score của p99 trong phân phối chuẩn
+    private static final double Z_99 = 2.326;
+
+    private final double medianMillis;
+    private final double sigma;
+    private final double errorRate;
+    private final int errorStatus;
+    private final double timeoutRate;
+    private final long timeoutMillis;
+    private final double resetRate;
+
+    private FaultProfile(double medianMillis, double p99Millis, double errorRate, int errorStatus,
+                         double timeoutRate, long timeoutMillis, double resetRate) {
+        this.medianMillis = medianMillis;
+        this.sigma = medianMillis > 0 && p99Millis > medianMillis ? Math.log(p99Millis / medianMillis) / Z_99 : 0;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        this.timeoutRate = timeoutRate;
+        this.timeoutMillis = timeoutMillis;
+        this.resetRate = resetRate;
+    }
+
+    static FaultProfile forGroup(String group) {
+        Preset preset = Preset.valueOf(System.getProperty("stub.profile", "realistic").toUpperCase());
+        return new FaultProfile(
+            number(group, "latency.median-ms", preset.medianMillis),
+            number(group, "latency.p99-ms", preset.p99Millis),
+            number(group, "error-rate", preset.errorRate),
+            (int) number(group, "error-status", 503),
+            number(group, "timeout-rate", preset.timeoutRate),
+            (long) number(group, "timeout-ms", 30_000),
+            number(group, "reset-rate", preset.resetRate)
+        );
+    }
+
+    Outcome nextOutcome() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < resetRate) {
+            return Outcome.RESET;
+        }
+        if (roll < resetRate + timeoutRate) {
+            return Outcome.TIMEOUT;
+        }
+        if (roll < resetRate + timeoutRate + errorRate) {
+            return Outcome.ERROR;
+        }
+        return Outcome.OK;
+    }
+
+    long sampleLatencyMillis() {
+        if (medianMillis <= 0) {
+            return 0;
+        }
+        return Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    int errorStatus() {
+        return errorStatus;
+    }
+
+    long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("median=%.0fms sigma=%.2f error=%.3f timeout=%.3f reset=%.3f",
+            medianMillis, sigma, errorRate, timeoutRate, resetRate);
+    }
+
+    private static double number(String group, String name, double defaultValue) {
+        String value = System.getProperty("stub." + group + "." + name, System.getProperty("stub." + name));
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    private enum Preset {
+        FAST(0, 0, 0, 0, 0),
+        REALISTIC(30, 250, 0, 0, 0),
+        DEGRADED(150, 2_000, 0.05, 0.01, 0.01),
+        OUTAGE(500, 5_000, 0.5, 0.2, 0.1);
+
+        final double medianMillis;
+        final double p99Millis;
+        final double errorRate;
+        final double timeoutRate;
+        final double resetRate;
+
+        Preset(double medianMillis, double p99Millis, double errorRate, double timeoutRate, double resetRate) {
+            this.medianMillis = medianMillis;
+            this.p99Millis = p99Millis;
+            this.errorRate = errorRate;
+            this.timeoutRate = timeoutRate;
+            this.resetRate = resetRate;
+        }
+    }
+}
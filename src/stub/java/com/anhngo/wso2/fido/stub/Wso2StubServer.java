@@ -0,0 +1,425 @@
+package com.anhngo.wso2.fido.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WSO2 IS giả lập cho load test offline: các endpoint mà Wso2Service, OAuth2Service và ReactiveWso2Client gọi
+ * (/oauth2/token, introspect, revoke, jwks, authorize/authn native flow, WebAuthn start/finish).
+ * Token là JWT RS256 ký bằng key sinh lúc khởi động, JWKS có ở /oauth2/jwks.
+ * Độ trễ và lỗi cấu hình theo nhóm endpoint qua FaultProfile; /stub/stats trả số request theo nhóm và kết quả.
+ *
+ * ./gradlew runWso2Stub -Dstub.port=9445 -Dstub.profile=degraded -Dstub.token.error-rate=0.1
+ * rồi chạy gateway với --spring.profiles.active=stub
+ */
+public class Wso2StubServer {
+
+    private static final String PASSKEY_AUTHENTICATOR_ID = "RklET0F1dGhlbnRpY2F0b3I6TE9DQUw";
+    private static final String KEY_ID = "stub-key";
+    private static final long TOKEN_LIFETIME_SECONDS = 3600;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String issuer;
+    private final KeyPair signingKey;
+    private final Map<String, FaultProfile> profiles = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> stats = new ConcurrentHashMap<>();
+    private final Set<String> revokedTokens = ConcurrentHashMap.newKeySet();
+    private final HttpServer server;
+
+    public Wso2StubServer(int port) throws Exception {
+        this.issuer = System.getProperty("stub.public-url", "http://localhost:" + port) + "/oauth2/token";
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        this.signingKey = generator.generateKeyPair();
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(System.getProperty("stub.port", args.length > 0 ? args[0] : "9445"));
+        Wso2StubServer stub = new Wso2StubServer(port);
+        stub.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::stop));
+        System.out.println("WSO2 IS stub listening on http://localhost:" + port + " (profile "
+            + System.getProperty("stub.profile", "realistic") + ")");
+        for (String group : new String[]{"token", "introspect", "revoke", "jwks", "native", "fido"}) {
+            System.out.println("  " + group + ": " + stub.profile(group));
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            String path = normalize(exchange.getRequestURI().getPath());
+            String method = exchange.getRequestMethod();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+
+            if (path.equals("/stub/stats")) {
+                send(exchange, 200, objectMapper.writeValueAsBytes(new TreeMap<>(snapshot())));
+                return;
+            }
+
+            String group = group(path);
+            if (group == null) {
+                count("unknown", "not_found");
+                send(exchange, 404, json("error", "Not found: " + method + " " + path));
+                return;
+            }
+
+            FaultProfile profile = profile(group);
+            FaultProfile.Outcome outcome = profile.nextOutcome();
+            count(group, outcome.name().toLowerCase());
+            sleep(outcome == FaultProfile.Outcome.TIMEOUT ? profile.timeoutMillis() : profile.sampleLatencyMillis());
+
+            switch (outcome) {
+                case RESET -> reset(exchange);
+                case ERROR -> send(exchange, profile.errorStatus(), json("error", "Injected failure"));
+                default -> route(exchange, method, path, body);
+            }
+        } catch (IOException e) {
+            // Client đã đóng kết nối (timeout phía gateway) hoặc reset giả lập, bỏ qua
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, String method, String path, String body) throws IOException {
+        switch (path) {
+            case "/oauth2/token" -> send(exchange, 200, token(form(body)));
+            case "/oauth2/introspect" -> send(exchange, 200, introspect(form(body).get("token")));
+            case "/oauth2/revoke" -> {
+                revokedTokens.add(form(body).getOrDefault("token", ""));
+                send(exchange, 200, new byte[0]);
+            }
+            case "/oauth2/jwks" -> send(exchange, 200, jwks());
+            case "/oauth2/authorize" -> {
+                if ("GET".equals(method)) {
+                    authorizeRedirect(exchange);
+                } else {
+                    send(exchange, 200, nativeAuthInit());
+                }
+            }
+            case "/oauth2/authn" -> send(exchange, 200, nativeAuthStep(objectMapper.readTree(body)));
+            default -> webauthn(exchange, method, path.substring(path.lastIndexOf('/') + 1));
+        }
+    }
+
+    private void webauthn(HttpExchange exchange, String method, String operation) throws IOException {
+        if ("DELETE".equals(method)) {
+            send(exchange, 204, null);
+            return;
+        }
+        switch (operation) {
+            case "start-registration", "start-usernameless-registration" -> send(exchange, 200, registrationOptions());
+            case "start-authentication", "start-usernameless-authentication" -> send(exchange, 200, authenticationOptions());
+            case "finish-registration", "finish-authentication" -> send(exchange, 200, json("status", "SUCCESS"));
+            default -> send(exchange, 404, json("error", "Unknown WebAuthn operation: " + operation));
+        }
+    }
+
+    private byte[] token(Map<String, String> form) throws IOException {
+        String username = form.getOrDefault("username", "admin");
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("access_token", signJwt(username, form.getOrDefault("scope", "openid")));
+        response.put("refresh_token", UUID.randomUUID().toString());
+        response.put("id_token", signJwt(username, "openid"));
+        response.put("token_type", "Bearer");
+        response.put("scope", form.getOrDefault("scope", "openid"));
+        response.put("expires_in", TOKEN_LIFETIME_SECONDS);
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private byte[] introspect(String token) throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        if (token == null || revokedTokens.contains(token)) {
+            response.put("active", false);
+            return objectMapper.writeValueAsBytes(response);
+        }
+        long now = System.currentTimeMillis() / 1000;
+        response.put("active", true);
+        response.put("client_id", "stub-client");
+        response.put("username", "admin");
+        response.put("scope", "openid");
+        response.put("token_type", "Bearer");
+        response.put("iat", now);
+        response.put("exp", now + TOKEN_LIFETIME_SECONDS);
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private byte[] jwks() throws IOException {
+        RSAPublicKey publicKey = (RSAPublicKey) signingKey.getPublic();
+        ObjectNode key = objectMapper.createObjectNode();
+        key.put("kty", "RSA");
+        key.put("kid", KEY_ID);
+        key.put("use", "sig");
+        key.put("alg", "RS256");
+        key.put("n", base64Url(unsigned(publicKey.getModulus())));
+        key.put("e", base64Url(unsigned(publicKey.getPublicExponent())));
+
+        ObjectNode jwks = objectMapper.createObjectNode();
+        jwks.putArray("keys").add(key);
+        return objectMapper.writeValueAsBytes(jwks);
+    }
+
+    private void authorizeRedirect(HttpExchange exchange) throws IOException {
+        Map<String, String> query = form(exchange.getRequestURI().getRawQuery());
+        String location = query.getOrDefault("redirect_uri", "/") + "?code=" + UUID.randomUUID()
+            + (query.containsKey("state") ? "&state=" + query.get("state") : "");
+        exchange.getResponseHeaders().add("Location", location);
+        send(exchange, 302, null);
+    }
+
+    private byte[] nativeAuthInit() throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("flowId", UUID.randomUUID().toString());
+        response.put("flowStatus", "INCOMPLETE");
+        response.put("flowType", "AUTHENTICATION");
+
+        ObjectNode nextStep = response.putObject("nextStep");
+        nextStep.put("stepType", "MULTI_OPTIONS_PROMPT");
+        ArrayNode authenticators = nextStep.putArray("authenticators");
+        authenticators.addObject()
+            .put("authenticatorId", "QmFzaWNBdXRoZW50aWNhdG9yOkxPQ0FM")
+            .put("authenticator", "Username & Password")
+            .put("idp", "LOCAL");
+        authenticators.addObject()
+            .put("authenticatorId", PASSKEY_AUTHENTICATOR_ID)
+            .put("authenticator", "Passkey")
+            .put("idp", "LOCAL");
+
+        response.putArray("links").addObject()
+            .put("name", "authentication")
+            .put("href", "/oauth2/authn")
+            .put("method", "POST");
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private byte[] nativeAuthStep(JsonNode request) throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("flowId", request.path("flowId").asText(UUID.randomUUID().toString()));
+
+        if (request.path("selectedAuthenticator").has("params")) {
+            response.put("flowStatus", "SUCCESS_COMPLETED");
+            response.putObject("authData").put("code", UUID.randomUUID().toString());
+            return objectMapper.writeValueAsBytes(response);
+        }
+
+        response.put("flowStatus", "INCOMPLETE");
+        response.put("flowType", "AUTHENTICATION");
+        ObjectNode authenticator = response.putObject("nextStep").put("stepType", "AUTHENTICATOR_PROMPT")
+            .putArray("authenticators").addObject()
+            .put("authenticatorId", PASSKEY_AUTHENTICATOR_ID)
+            .put("authenticator", "Passkey")
+            .put("idp", "LOCAL");
+        ObjectNode challengeData = objectMapper.createObjectNode();
+        challengeData.put("requestId", UUID.randomUUID().toString());
+        challengeData.set("publicKeyCredentialRequestOptions", requestOptions());
+        authenticator.putObject("metadata").put("promptType", "INTERNAL_PROMPT")
+            .putObject("additionalData")
+            .put("challengeData", Base64.getEncoder().encodeToString(objectMapper.writeValueAsBytes(challengeData)));
+        authenticator.putArray("requiredParams").add("tokenResponse");
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private byte[] registrationOptions() throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("requestId", UUID.randomUUID().toString());
+        ObjectNode options = response.putObject("publicKeyCredentialCreationOptions");
+        options.putObject("rp").put("name", "FIDO Demo Application").put("id", "localhost");
+        options.putObject("user").put("name", "admin").put("displayName", "admin").put("id", base64Url(randomBytes(16)));
+        options.put("challenge", base64Url(randomBytes(32)));
+        ArrayNode params = options.putArray("pubKeyCredParams");
+        params.addObject().put("type", "public-key").put("alg", -7);
+        params.addObject().put("type", "public-key").put("alg", -257);
+        options.put("timeout", 60000);
+        options.put("attestation", "none");
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private byte[] authenticationOptions() throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("requestId", UUID.randomUUID().toString());
+        response.set("publicKeyCredentialRequestOptions", requestOptions());
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private ObjectNode requestOptions() {
+        ObjectNode options = objectMapper.createObjectNode();
+        options.put("challenge", base64Url(randomBytes(32)));
+        options.put("rpId", "localhost");
+        options.put("timeout", 60000);
+        options.put("userVerification", "preferred");
+        return options;
+    }
+
+    private String signJwt(String subject, String scope) throws IOException {
+        long now = System.currentTimeMillis() / 1000;
+        ObjectNode header = objectMapper.createObjectNode().put("alg", "RS256").put("kid", KEY_ID).put("typ", "at+jwt");
+        ObjectNode claims = objectMapper.createObjectNode()
+            .put("sub", subject)
+            .put("username", subject)
+            .put("name", subject)
+            .put("iss", issuer)
+            .put("aud", "stub-client")
+            .put("scope", scope)
+            .put("jti", UUID.randomUUID().toString())
+            .put("iat", now)
+            .put("exp", now + TOKEN_LIFETIME_SECONDS);
+
+        String signingInput = base64Url(objectMapper.writeValueAsBytes(header)) + "." + base64Url(objectMapper.writeValueAsBytes(claims));
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(signingKey.getPrivate());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + base64Url(signature.sign());
+        } catch (Exception e) {
+            throw new IOException("Failed to sign stub token", e);
+        }
+    }
+
+    /**
+     * Giả lập connection reset: gửi header với Content-Length rồi đóng kết nối giữa chừng body
+     */
+    private void reset(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 1024);
+        OutputStream out = exchange.getResponseBody();
+        out.write("{\"partial\":".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        // Đóng stream khi chưa đủ Content-Length: HttpServer đóng luôn kết nối
+        out.close();
+    }
+
+    private FaultProfile profile(String group) {
+        return profiles.computeIfAbsent(group, FaultProfile::forGroup);
+    }
+
+    private static String group(String path) {
+        return switch (path) {
+            case "/oauth2/token" -> "token";
+            case "/oauth2/introspect" -> "introspect";
+            case "/oauth2/revoke" -> "revoke";
+            case "/oauth2/jwks" -> "jwks";
+            case "/oauth2/authorize", "/oauth2/authn" -> "native";
+            default -> path.startsWith("/api/users/v2/me/webauthn/") ? "fido" : null;
+        };
+    }
+
+    /**
+     * Bỏ tiền tố tenant (/t/carbon.super) và dấu / cuối
+     */
+    private static String normalize(String path) {
+        if (path.startsWith("/t/")) {
+            int next = path.indexOf('/', 3);
+            path = next > 0 ? path.substring(next) : "/";
+        }
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    private void count(String group, String outcome) {
+        stats.computeIfAbsent(group + "." + outcome, key -> new LongAdder()).increment();
+    }
+
+    private Map<String, Long> snapshot() {
+        Map<String, Long> result = new HashMap<>();
+        stats.forEach((key, value) -> result.put(key, value.sum()));
+        return result;
+    }
+
+    private byte[] json(String field, String value) throws IOException {
+        return objectMapper.writeValueAsBytes(Map.of(field, value));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> form(String encoded) {
+        Map<String, String> result = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return result;
+        }
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                result.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
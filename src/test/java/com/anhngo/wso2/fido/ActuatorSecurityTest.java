@@ -0,0 +1,93 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.service.Wso2WireLogger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ActuatorSecurityTest {
+
+    private static final String ENABLE_WIRE_LOG = "{\"enabled\":true,\"sampleRate\":1}";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private Wso2WireLogger wireLogger;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+        wireLogger.setEnabled(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        wireLogger.setEnabled(false);
+    }
+
+    @Test
+    void anonymousWireLogWriteShouldBeRejected() throws Exception {
+        mockMvc.perform(post("/actuator/wirelog")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(ENABLE_WIRE_LOG))
+            .andExpect(status().isUnauthorized());
+
+        assertFalse(wireLogger.isEnabled());
+    }
+
+    @Test
+    void crossOriginWireLogWriteShouldBeRejected() throws Exception {
+        mockMvc.perform(post("/actuator/wirelog")
+                .with(user("actuator").roles("ACTUATOR"))
+                .header(HttpHeaders.ORIGIN, "https://attacker.example")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(ENABLE_WIRE_LOG))
+            .andExpect(status().isForbidden());
+
+        assertFalse(wireLogger.isEnabled());
+    }
+
+    @Test
+    void wireLogWriteShouldRequireActuatorRole() throws Exception {
+        mockMvc.perform(post("/actuator/wirelog")
+                .with(user("someone").roles("USER"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(ENABLE_WIRE_LOG))
+            .andExpect(status().isForbidden());
+
+        mockMvc.perform(post("/actuator/wirelog")
+                .with(user("actuator").roles("ACTUATOR"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(ENABLE_WIRE_LOG))
+            .andExpect(status().isOk());
+
+        assertTrue(wireLogger.isEnabled());
+    }
+
+    @Test
+    void metricsShouldRequireAuthenticationButHealthShouldNot() throws Exception {
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/info")).andExpect(status().isOk());
+    }
+}
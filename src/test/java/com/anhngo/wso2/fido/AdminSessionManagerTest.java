@@ -0,0 +1,212 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.AdminSessionConfig;
+import com.anhngo.wso2.fido.config.DeadlineConfig;
+import com.anhngo.wso2.fido.config.WireLogConfig;
+import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.config.Wso2ResilienceConfig;
+import com.anhngo.wso2.fido.config.Wso2RetryConfig;
+import com.anhngo.wso2.fido.service.AdminSessionManager;
+import com.anhngo.wso2.fido.service.JsonCodec;
+import com.anhngo.wso2.fido.service.Wso2CallExecutor;
+import com.anhngo.wso2.fido.service.Wso2Resilience;
+import com.anhngo.wso2.fido.service.Wso2Retries;
+import com.anhngo.wso2.fido.service.Wso2WireLogger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withUnauthorizedRequest;
+
+class AdminSessionManagerTest {
+
+    private static final String TOKEN_URL = "https://wso2.test/oauth2/token";
+    private static final String USERS_URL = "https://wso2.test/scim2/Users";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+    private Wso2Executors executors;
+    private AdminSessionManager sessionManager;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+
+        Wso2Config wso2Config = new Wso2Config();
+        wso2Config.setBaseUrl("https://wso2.test");
+        wso2Config.setAdminUsername("admin");
+        wso2Config.setAdminPassword("admin");
+        wso2Config.getOauth().setClientKey("client");
+        wso2Config.getOauth().setClientSecret("secret");
+
+        AdminSessionConfig adminSessionConfig = new AdminSessionConfig();
+        adminSessionConfig.setExpirySkew(Duration.ofSeconds(30));
+        adminSessionConfig.setInitialBackoff(Duration.ofSeconds(1));
+        adminSessionConfig.setMaxBackoff(Duration.ofSeconds(60));
+
+        executors = new Wso2Executors(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        sessionManager = new AdminSessionManager(restTemplate, wso2Config, JsonCodec.standalone(), adminSessionConfig,
+            new Wso2CallExecutor(meterRegistry, new Wso2WireLogger(new WireLogConfig()),
+                new Wso2Resilience(new Wso2ResilienceConfig(), meterRegistry), new DeadlineConfig(),
+                new Wso2Retries(new Wso2RetryConfig(), executors, meterRegistry)), clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    void concurrentCallersShouldShareOneLogin() throws Exception {
+        CountDownLatch loginStarted = new CountDownLatch(1);
+        CountDownLatch releaseLogin = new CountDownLatch(1);
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL))
+            .andExpect(method(HttpMethod.POST))
+            .andRespond(request -> {
+                loginStarted.countDown();
+                releaseLogin.await(5, TimeUnit.SECONDS);
+                return withSuccess(token("admin-token", 3600), MediaType.APPLICATION_JSON).createResponse(request);
+            });
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> sessions = new ArrayList<>();
+            sessions.add(callers.submit(sessionManager::getSession));
+            assertTrue(loginStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                sessions.add(callers.submit(sessionManager::getSession));
+            }
+            releaseLogin.countDown();
+
+            for (Future<String> session : sessions) {
+                assertEquals("admin-token", session.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        server.verify();
+    }
+
+    @Test
+    void sessionShouldExpireFromExpiresInMinusSkew() {
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL))
+            .andRespond(withSuccess(token("first", 120), MediaType.APPLICATION_JSON));
+
+        assertEquals("first", sessionManager.getSession());
+        // expires_in 120s - expiry-skew 30s = dùng được 90s
+        clock.addAndGet(Duration.ofSeconds(89).toMillis());
+        assertEquals("first", sessionManager.getSession());
+        server.verify();
+
+        server.reset();
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL))
+            .andRespond(withSuccess(token("second", 120), MediaType.APPLICATION_JSON));
+
+        clock.addAndGet(Duration.ofSeconds(1).toMillis());
+        assertEquals("second", sessionManager.getSession());
+        server.verify();
+    }
+
+    @Test
+    void failedLoginsShouldBackOffExponentially() {
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL)).andRespond(withServerError());
+
+        assertThrows(RuntimeException.class, sessionManager::getSession);
+        // Trong back-off (1s) không gửi login mới
+        RuntimeException backingOff = assertThrows(RuntimeException.class, sessionManager::getSession);
+        assertTrue(backingOff.getMessage().contains("backing off"));
+        server.verify();
+
+        server.reset();
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL)).andRespond(withServerError());
+        clock.addAndGet(Duration.ofSeconds(1).toMillis());
+        assertThrows(RuntimeException.class, sessionManager::getSession);
+        server.verify();
+
+        // Back-off lần hai là 2s
+        server.reset();
+        clock.addAndGet(Duration.ofMillis(1500).toMillis());
+        assertThrows(RuntimeException.class, sessionManager::getSession);
+        server.verify();
+
+        server.reset();
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL))
+            .andRespond(withSuccess(token("recovered", 3600), MediaType.APPLICATION_JSON));
+        clock.addAndGet(Duration.ofMillis(500).toMillis());
+        assertEquals("recovered", sessionManager.getSession());
+        server.verify();
+    }
+
+    @Test
+    void unauthorizedCallShouldLoginAgainAndRetryOnce() {
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL))
+            .andRespond(withSuccess(token("stale", 3600), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(USERS_URL))
+            .andExpect(header("Authorization", "Bearer stale"))
+            .andRespond(withUnauthorizedRequest());
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL))
+            .andRespond(withSuccess(token("fresh", 3600), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(USERS_URL))
+            .andExpect(header("Authorization", "Bearer fresh"))
+            .andRespond(withSuccess("{\"totalResults\":1}", MediaType.APPLICATION_JSON));
+
+        assertEquals("{\"totalResults\":1}", sessionManager.execute(this::listUsers));
+        assertEquals("fresh", sessionManager.getSession());
+        server.verify();
+    }
+
+    @Test
+    void secondUnauthorizedShouldNotLoginAgain() {
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL))
+            .andRespond(withSuccess(token("first", 3600), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(USERS_URL)).andRespond(withUnauthorizedRequest());
+        server.expect(ExpectedCount.once(), requestTo(TOKEN_URL))
+            .andRespond(withSuccess(token("second", 3600), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(USERS_URL)).andRespond(withUnauthorizedRequest());
+
+        assertThrows(HttpClientErrorException.Unauthorized.class, () -> sessionManager.execute(this::listUsers));
+        server.verify();
+    }
+
+    private String listUsers(String accessToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        return restTemplate.exchange(USERS_URL, HttpMethod.GET, new HttpEntity<>(headers), String.class)
+            .getBody();
+    }
+
+    private static String token(String accessToken, long expiresIn) {
+        return "{\"access_token\":\"" + accessToken + "\",\"token_type\":\"Bearer\",\"expires_in\":" + expiresIn + "}";
+    }
+}
@@ -0,0 +1,80 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.DeadlineConfig;
+import com.anhngo.wso2.fido.config.TokenCacheConfig;
+import com.anhngo.wso2.fido.config.WireLogConfig;
+import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.config.Wso2ResilienceConfig;
+import com.anhngo.wso2.fido.config.Wso2RetryConfig;
+import com.anhngo.wso2.fido.service.ClientCredentialsTokenManager;
+import com.anhngo.wso2.fido.service.JsonCodec;
+import com.anhngo.wso2.fido.service.Wso2CallExecutor;
+import com.anhngo.wso2.fido.service.Wso2Resilience;
+import com.anhngo.wso2.fido.service.Wso2Retries;
+import com.anhngo.wso2.fido.service.Wso2WireLogger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class ClientCredentialsTokenManagerTest {
+
+    private MockRestServiceServer server;
+    private Wso2Executors executors;
+    private ClientCredentialsTokenManager tokenManager;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+
+        Wso2Config wso2Config = new Wso2Config();
+        wso2Config.setBaseUrl("https://wso2.test");
+        wso2Config.getOauth().setClientKey("client");
+        wso2Config.getOauth().setClientSecret("secret");
+
+        executors = new Wso2Executors(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        tokenManager = new ClientCredentialsTokenManager(restTemplate, wso2Config, JsonCodec.standalone(),
+            new TokenCacheConfig(), executors, new Wso2CallExecutor(meterRegistry, new Wso2WireLogger(new WireLogConfig()),
+                new Wso2Resilience(new Wso2ResilienceConfig(), meterRegistry), new DeadlineConfig(),
+                new Wso2Retries(new Wso2RetryConfig(), executors, meterRegistry)), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    void cachedTokenShouldBeReusedUntilInvalidated() {
+        server.expect(ExpectedCount.once(), requestTo("https://wso2.test/oauth2/token"))
+            .andExpect(method(HttpMethod.POST))
+            .andRespond(withSuccess("{\"access_token\":\"first\",\"expires_in\":3600}", MediaType.APPLICATION_JSON));
+
+        assertEquals("first", tokenManager.getToken("openid"));
+        assertEquals("first", tokenManager.getToken("openid"));
+        assertEquals(1, tokenManager.getMissCount());
+        assertEquals(1, tokenManager.getHitCount());
+        server.verify();
+
+        server.reset();
+        server.expect(ExpectedCount.once(), requestTo("https://wso2.test/oauth2/token"))
+            .andRespond(withSuccess("{\"access_token\":\"second\",\"expires_in\":3600}", MediaType.APPLICATION_JSON));
+
+        tokenManager.invalidate("openid");
+        assertEquals("second", tokenManager.getToken("openid"));
+        server.verify();
+    }
+}
@@ -0,0 +1,68 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.DeadlineConfig;
+import com.anhngo.wso2.fido.config.WireLogConfig;
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.config.Wso2ResilienceConfig;
+import com.anhngo.wso2.fido.config.Wso2RetryConfig;
+import com.anhngo.wso2.fido.exception.DeadlineExceededException;
+import com.anhngo.wso2.fido.filter.Deadline;
+import com.anhngo.wso2.fido.filter.DeadlineFilter;
+import com.anhngo.wso2.fido.service.Wso2CallExecutor;
+import com.anhngo.wso2.fido.service.Wso2Operation;
+import com.anhngo.wso2.fido.service.Wso2Resilience;
+import com.anhngo.wso2.fido.service.Wso2Retries;
+import com.anhngo.wso2.fido.service.Wso2WireLogger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DeadlineConfig deadlineConfig = new DeadlineConfig();
+    private final Wso2CallExecutor wso2Calls = new Wso2CallExecutor(meterRegistry, new Wso2WireLogger(new WireLogConfig()),
+        new Wso2Resilience(new Wso2ResilienceConfig(), meterRegistry), deadlineConfig,
+        new Wso2Retries(new Wso2RetryConfig(), new Wso2Executors(false), meterRegistry));
+
+    @Test
+    void deadlineShouldOnlyExistWhileTheRequestIsHandled() throws Exception {
+        new DeadlineFilter(Duration.ofSeconds(8)).doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(),
+            (request, response) -> {
+                assertNotNull(Deadline.current());
+                assertTrue(wso2Calls.hasBudgetFor(Wso2Operation.NATIVE_AUTH_CHALLENGE));
+            });
+
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void expiredDeadlineShouldSkipTheCallAndCountIt() throws Exception {
+        AtomicBoolean called = new AtomicBoolean();
+
+        new DeadlineFilter(Duration.ZERO).doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(),
+            (request, response) -> {
+                assertFalse(wso2Calls.hasBudgetFor(Wso2Operation.NATIVE_AUTH_CHALLENGE));
+                assertThrows(DeadlineExceededException.class, () -> wso2Calls.execute(Wso2Operation.NATIVE_AUTH_INIT, () -> {
+                    called.set(true);
+                    return ResponseEntity.ok("{}");
+                }));
+            });
+
+        assertFalse(called.get());
+        assertEquals(1.0, meterRegistry.get("gateway.deadline.exceeded").tag("stage", "before-call").counter().count());
+        assertEquals(1.0, meterRegistry.get("gateway.deadline.fallbacks").counter().count());
+    }
+}
@@ -1,5 +1,9 @@
 package com.anhngo.wso2.fido;
 
+import com.anhngo.wso2.fido.controller.FidoController;
+import com.anhngo.wso2.fido.controller.NativeAuthController;
+import com.anhngo.wso2.fido.controller.ReactiveFidoController;
+import com.anhngo.wso2.fido.controller.ReactiveNativeAuthController;
 import com.anhngo.wso2.fido.dto.FidoAuthenticationOptionsRequest;
 import com.anhngo.wso2.fido.dto.FidoRegistrationOptionsRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -8,15 +12,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
+@ActiveProfiles("test")
 @AutoConfigureWebMvc
 class FidoControllerTest {
 
@@ -33,6 +40,15 @@ class FidoControllerTest {
         // Test that the application context loads successfully
     }
 
+    @Test
+    void defaultModeShouldUseSynchronousControllers() {
+        // wso2.client.reactive=false: handler đồng bộ, không qua servlet async dispatch
+        assertEquals(1, webApplicationContext.getBeansOfType(FidoController.class).size());
+        assertEquals(1, webApplicationContext.getBeansOfType(NativeAuthController.class).size());
+        assertEquals(0, webApplicationContext.getBeansOfType(ReactiveFidoController.class).size());
+        assertEquals(0, webApplicationContext.getBeansOfType(ReactiveNativeAuthController.class).size());
+    }
+
     @Test
     void healthEndpointShouldReturnSuccess() throws Exception {
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
@@ -0,0 +1,90 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.ConcurrencyLimitConfig;
+import com.anhngo.wso2.fido.filter.GradientConcurrencyLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradientConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private GradientConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+        config.setInitialLimit(20);
+        config.setMinLimit(5);
+        config.setLongWindow(10);
+        config.setSampleWindow(Duration.ZERO);
+        config.setMinWindowSamples(20);
+        limiter = new GradientConcurrencyLimiter(config, new SimpleMeterRegistry(), clock::get);
+    }
+
+    @Test
+    void requestsAboveTheLimitShouldBeRejected() {
+        List<GradientConcurrencyLimiter.Permit> permits = acquire(20);
+        assertEquals(20, permits.size());
+        assertNull(limiter.tryAcquire());
+
+        permits.get(0).release();
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void limitShouldShrinkWhenLatencyRises() {
+        for (int i = 0; i < 5; i++) {
+            round(Duration.ofMillis(10), false);
+        }
+        int steadyLimit = limiter.getLimit();
+        assertTrue(steadyLimit >= 20);
+
+        for (int i = 0; i < 5; i++) {
+            round(Duration.ofMillis(100), false);
+        }
+        assertTrue(limiter.getLimit() < steadyLimit);
+    }
+
+    @Test
+    void droppedRequestsShouldBackOffTheLimit() {
+        round(Duration.ofMillis(10), true);
+
+        assertEquals(18, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private void round(Duration latency, boolean dropped) {
+        List<GradientConcurrencyLimiter.Permit> permits = acquire(20);
+        clock.addAndGet(latency.toNanos());
+        for (GradientConcurrencyLimiter.Permit permit : permits) {
+            if (dropped) {
+                permit.dropped();
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    private List<GradientConcurrencyLimiter.Permit> acquire(int count) {
+        List<GradientConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            GradientConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            if (permit == null) {
+                break;
+            }
+            permits.add(permit);
+        }
+        return permits;
+    }
+}
@@ -0,0 +1,90 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.IntrospectionCacheConfig;
+import com.anhngo.wso2.fido.service.IntrospectionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class IntrospectionCacheTest {
+
+    private IntrospectionCache introspectionCache;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        IntrospectionCacheConfig config = new IntrospectionCacheConfig();
+        config.setNegativeTtl(Duration.ofMinutes(1));
+        introspectionCache = new IntrospectionCache(config, new SimpleMeterRegistry());
+        upstreamCalls = new AtomicInteger();
+    }
+
+    @Test
+    void concurrentLookupsShouldShareOneUpstreamCall() {
+        CompletableFuture<Map<String, Object>> upstream = new CompletableFuture<>();
+
+        CompletableFuture<Map<String, Object>> first = introspectionCache.getAsync("opaque", t -> {
+            upstreamCalls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<Map<String, Object>> second = introspectionCache.getAsync("opaque", t -> {
+            upstreamCalls.incrementAndGet();
+            return upstream;
+        });
+        assertFalse(first.isDone());
+
+        upstream.complete(result(true, System.currentTimeMillis() / 1000 + 3600));
+
+        assertEquals(true, first.join().get("active"));
+        assertEquals(true, second.join().get("active"));
+        assertEquals(true, introspectionCache.get("opaque", this::countingLoader).get("active"));
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void inactiveResultShouldBeCachedAndRevokeShouldEvict() {
+        assertEquals(false, introspectionCache.get("revoked", t -> {
+            upstreamCalls.incrementAndGet();
+            return result(false, null);
+        }).get("active"));
+        assertEquals(false, introspectionCache.get("revoked", this::countingLoader).get("active"));
+        assertEquals(1, upstreamCalls.get());
+
+        introspectionCache.evict("revoked");
+        assertEquals(true, introspectionCache.get("revoked", this::countingLoader).get("active"));
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void activeResultShouldNotOutliveTokenExp() {
+        introspectionCache.get("expiring", t -> {
+            upstreamCalls.incrementAndGet();
+            return result(true, System.currentTimeMillis() / 1000 - 1);
+        });
+        introspectionCache.get("expiring", this::countingLoader);
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    private Map<String, Object> countingLoader(String token) {
+        upstreamCalls.incrementAndGet();
+        return result(true, System.currentTimeMillis() / 1000 + 3600);
+    }
+
+    private static Map<String, Object> result(boolean active, Long exp) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("active", active);
+        if (exp != null) {
+            result.put("exp", exp);
+        }
+        return result;
+    }
+}
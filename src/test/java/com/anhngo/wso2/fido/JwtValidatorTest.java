@@ -0,0 +1,204 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.DeadlineConfig;
+import com.anhngo.wso2.fido.config.JwtValidationConfig;
+import com.anhngo.wso2.fido.config.WireLogConfig;
+import com.anhngo.wso2.fido.config.Wso2Config;
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.config.Wso2ResilienceConfig;
+import com.anhngo.wso2.fido.config.Wso2RetryConfig;
+import com.anhngo.wso2.fido.exception.JwtValidationException;
+import com.anhngo.wso2.fido.service.JwtValidator;
+import com.anhngo.wso2.fido.service.Wso2CallExecutor;
+import com.anhngo.wso2.fido.service.Wso2Resilience;
+import com.anhngo.wso2.fido.service.Wso2Retries;
+import com.anhngo.wso2.fido.service.Wso2WireLogger;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class JwtValidatorTest {
+
+    private MockRestServiceServer server;
+    private JwtValidator jwtValidator;
+    private RSAKey signingKey;
+    private JwtValidationConfig jwtConfig;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+
+        Wso2Config wso2Config = new Wso2Config();
+        wso2Config.setBaseUrl("https://wso2.test");
+
+        jwtConfig = new JwtValidationConfig();
+        jwtConfig.setIssuer("https://wso2.test/oauth2/token");
+        jwtConfig.setJwksMinRefreshInterval(Duration.ZERO);
+
+        signingKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        jwtValidator = new JwtValidator(restTemplate, wso2Config, jwtConfig, new Wso2CallExecutor(meterRegistry, new Wso2WireLogger(new WireLogConfig()),
+                new Wso2Resilience(new Wso2ResilienceConfig(), meterRegistry), new DeadlineConfig(),
+                new Wso2Retries(new Wso2RetryConfig(), new Wso2Executors(false), meterRegistry)), meterRegistry);
+    }
+
+    @Test
+    void validJwtShouldBeValidatedOnceAndServedFromCache() throws Exception {
+        server.expect(ExpectedCount.once(), requestTo("https://wso2.test/oauth2/jwks"))
+            .andRespond(withSuccess(new JWKSet(signingKey.toPublicJWK()).toString(), MediaType.APPLICATION_JSON));
+
+        String token = sign(signingKey, "alice", Duration.ofMinutes(10));
+
+        Map<String, Object> result = jwtValidator.introspect(token);
+        assertEquals(true, result.get("active"));
+        assertEquals("alice", result.get("sub"));
+        assertEquals("alice", jwtValidator.introspect(token).get("sub"));
+        server.verify();
+    }
+
+    @Test
+    void expiredOrForeignJwtShouldBeInactiveAndOpaqueTokenShouldFallBack() throws Exception {
+        server.expect(ExpectedCount.times(2), requestTo("https://wso2.test/oauth2/jwks"))
+            .andRespond(withSuccess(new JWKSet(signingKey.toPublicJWK()).toString(), MediaType.APPLICATION_JSON));
+
+        assertEquals(false, jwtValidator.introspect(sign(signingKey, "alice", Duration.ofMinutes(-10))).get("active"));
+
+        // Key không có trong JWKS: tải lại JWKS một lần rồi từ chối
+        RSAKey foreignKey = new RSAKeyGenerator(2048).keyID("key-2").generate();
+        assertEquals(false, jwtValidator.introspect(sign(foreignKey, "mallory", Duration.ofMinutes(10))).get("active"));
+
+        assertNull(jwtValidator.introspect("3f2b8c1e-opaque-token"));
+        server.verify();
+    }
+
+    @Test
+    void revokedJwtShouldBeInactiveUntilItExpires() throws Exception {
+        server.expect(ExpectedCount.once(), requestTo("https://wso2.test/oauth2/jwks"))
+            .andRespond(withSuccess(new JWKSet(signingKey.toPublicJWK()).toString(), MediaType.APPLICATION_JSON));
+
+        String token = sign(signingKey, "alice", Duration.ofMinutes(10));
+        assertEquals(true, jwtValidator.introspect(token).get("active"));
+
+        jwtValidator.revoke(token);
+
+        assertEquals(false, jwtValidator.introspect(token).get("active"));
+        assertThrows(JwtValidationException.class, () -> jwtValidator.validate(token));
+        // Token khác của cùng user không bị ảnh hưởng
+        assertEquals(true, jwtValidator.introspect(sign(signingKey, "alice", Duration.ofMinutes(5))).get("active"));
+        server.verify();
+    }
+
+    @Test
+    void failedJwksFetchShouldBeRateLimitedAndFallBackToIntrospection() throws Exception {
+        jwtConfig.setJwksMinRefreshInterval(Duration.ofMinutes(1));
+        server.expect(ExpectedCount.once(), requestTo("https://wso2.test/oauth2/jwks"))
+            .andRespond(withServerError());
+
+        String token = sign(signingKey, "alice", Duration.ofMinutes(10));
+        assertNull(jwtValidator.introspect(token));
+        // Trong khoảng min-refresh-interval không gọi lại JWKS
+        assertNull(jwtValidator.introspect(token));
+        assertNull(jwtValidator.introspect(sign(signingKey, "bob", Duration.ofMinutes(10))));
+        server.verify();
+    }
+
+    @Test
+    void unknownKeyWithinRefreshIntervalShouldFallBackToIntrospection() throws Exception {
+        jwtConfig.setJwksMinRefreshInterval(Duration.ofMinutes(1));
+        server.expect(ExpectedCount.once(), requestTo("https://wso2.test/oauth2/jwks"))
+            .andRespond(withSuccess(new JWKSet(signingKey.toPublicJWK()).toString(), MediaType.APPLICATION_JSON));
+
+        assertEquals(true, jwtValidator.introspect(sign(signingKey, "alice", Duration.ofMinutes(10))).get("active"));
+
+        // Key mới rotate: không tải lại JWKS ngay, cũng không báo inactive mà để WSO2 IS quyết định
+        RSAKey rotatedKey = new RSAKeyGenerator(2048).keyID("key-2").generate();
+        assertNull(jwtValidator.introspect(sign(rotatedKey, "alice", Duration.ofMinutes(10))));
+        server.verify();
+    }
+
+    @Test
+    void idTokenAndTokenWithoutExpShouldBeInactive() throws Exception {
+        server.expect(ExpectedCount.once(), requestTo("https://wso2.test/oauth2/jwks"))
+            .andRespond(withSuccess(new JWKSet(signingKey.toPublicJWK()).toString(), MediaType.APPLICATION_JSON));
+
+        // ID token: cùng key, cùng iss, có azp nhưng kèm at_hash/nonce
+        JWTClaimsSet idToken = claims("alice", Duration.ofMinutes(10))
+            .audience("client")
+            .claim("azp", "client")
+            .claim("at_hash", "x1y2z3")
+            .claim("nonce", "n-0S6_WzA2Mj")
+            .build();
+        assertEquals(false, jwtValidator.introspect(sign(signingKey, JOSEObjectType.JWT, idToken)).get("active"));
+
+        JWTClaimsSet noExp = new JWTClaimsSet.Builder()
+            .subject("alice")
+            .issuer("https://wso2.test/oauth2/token")
+            .claim("client_id", "client")
+            .build();
+        assertEquals(false, jwtValidator.introspect(sign(signingKey, JOSEObjectType.JWT, noExp)).get("active"));
+
+        // Không có typ của access token, hoặc không có client_id/azp
+        assertEquals(false, jwtValidator.introspect(sign(signingKey, null,
+            claims("alice", Duration.ofMinutes(10)).claim("client_id", "client").build())).get("active"));
+        assertEquals(false, jwtValidator.introspect(sign(signingKey, JOSEObjectType.JWT,
+            claims("alice", Duration.ofMinutes(10)).build())).get("active"));
+        server.verify();
+    }
+
+    @Test
+    void configuredAudiencesShouldReplaceClientIdCheck() throws Exception {
+        jwtConfig.setAudiences(List.of("https://api.test"));
+        server.expect(ExpectedCount.once(), requestTo("https://wso2.test/oauth2/jwks"))
+            .andRespond(withSuccess(new JWKSet(signingKey.toPublicJWK()).toString(), MediaType.APPLICATION_JSON));
+
+        JOSEObjectType atJwt = new JOSEObjectType("at+jwt");
+        assertEquals(true, jwtValidator.introspect(sign(signingKey, atJwt,
+            claims("alice", Duration.ofMinutes(10)).audience("https://api.test").build())).get("active"));
+        assertEquals(false, jwtValidator.introspect(sign(signingKey, atJwt,
+            claims("alice", Duration.ofMinutes(10)).audience("client").claim("client_id", "client").build())).get("active"));
+        server.verify();
+    }
+
+    private static String sign(RSAKey key, String subject, Duration lifetime) throws Exception {
+        return sign(key, JOSEObjectType.JWT, claims(subject, lifetime).claim("client_id", "client").build());
+    }
+
+    private static String sign(RSAKey key, JOSEObjectType type, JWTClaimsSet claims) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).type(type).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private static JWTClaimsSet.Builder claims(String subject, Duration lifetime) {
+        return new JWTClaimsSet.Builder()
+            .subject(subject)
+            .issuer("https://wso2.test/oauth2/token")
+            .expirationTime(new Date(System.currentTimeMillis() + lifetime.toMillis()));
+    }
+}
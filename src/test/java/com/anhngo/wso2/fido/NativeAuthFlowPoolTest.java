@@ -0,0 +1,197 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.NativeAuthPoolConfig;
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.dto.RawJson;
+import com.anhngo.wso2.fido.service.NativeAuthFlowPool;
+import com.anhngo.wso2.fido.service.Wso2Service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NativeAuthFlowPoolTest {
+
+    private static final String REDIRECT_URI = "https://app.test/callback";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final AtomicInteger initCalls = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+
+    private NativeAuthPoolConfig config;
+    private Wso2Executors executors;
+    private Wso2Service wso2Service;
+
+    @BeforeEach
+    void setUp() {
+        config = new NativeAuthPoolConfig();
+        config.setEnabled(true);
+        config.setRedirectUris(List.of(REDIRECT_URI));
+        config.setSize(3);
+        config.setTtl(Duration.ofMinutes(2));
+        config.setRefillRate(10);
+        config.setRefillInterval(Duration.ofSeconds(1));
+        config.setInitialBackoff(Duration.ofSeconds(1));
+        config.setMaxBackoff(Duration.ofSeconds(4));
+        config.setMaxFailures(3);
+        executors = new Wso2Executors(false);
+
+        // Fake Wso2Service: mỗi flow init trả về challenge khác nhau, hoặc lỗi khi failing=true
+        wso2Service = new Wso2Service(null, null, null, null, null, null, null) {
+            @Override
+            public RawJson initPasskeyFlow(String redirectUri, String scope, String responseType, String responseMode) {
+                int call = initCalls.incrementAndGet();
+                if (failing.get()) {
+                    throw new RuntimeException("Failed to pre-initialize WSO2 IS native auth flow");
+                }
+                return RawJson.of("{\"flowId\":\"flow-" + call + "\"}");
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    void enabledPoolShouldRequireRedirectUris() {
+        config.setRedirectUris(List.of());
+        assertThrows(IllegalStateException.class, this::newPool);
+    }
+
+    @Test
+    void pooledFlowShouldBeServedOnlyOnce() {
+        config.setSize(1);
+        NativeAuthFlowPool pool = newPool();
+        pool.refill();
+
+        RawJson first = take(pool);
+        assertNotNull(first);
+        assertNull(take(pool));
+
+        pool.refill();
+        RawJson second = take(pool);
+        assertNotNull(second);
+        assertNotEquals(first, second);
+        assertEquals(2, initCalls.get());
+    }
+
+    @Test
+    void unknownClientShouldNeverBePooled() {
+        NativeAuthFlowPool pool = newPool();
+
+        assertNull(pool.take("https://attacker.test/callback", "openid profile", "code", "direct"));
+        pool.refill();
+
+        assertEquals(1, pool.clientCount());
+        assertEquals(3, initCalls.get());
+    }
+
+    @Test
+    void flowsOlderThanTtlShouldBeEvicted() {
+        NativeAuthFlowPool pool = newPool();
+        pool.refill();
+        assertEquals(3, pool.size());
+
+        clock.addAndGet(Duration.ofMinutes(2).toMillis() + 1);
+        assertNull(take(pool));
+        assertEquals(0, pool.size());
+
+        pool.refill();
+        assertEquals(3, pool.size());
+        assertNotNull(take(pool));
+    }
+
+    @Test
+    void refillShouldBeLimitedByRefillRate() {
+        config.setSize(10);
+        config.setRefillRate(2);
+        NativeAuthFlowPool pool = newPool();
+
+        pool.refill();
+        assertEquals(2, initCalls.get());
+        pool.refill();
+        assertEquals(4, initCalls.get());
+        assertEquals(4, pool.size());
+    }
+
+    @Test
+    void failingClientShouldBackOffAndThenBeEvicted() {
+        config.setSize(1);
+        failing.set(true);
+        NativeAuthFlowPool pool = newPool();
+
+        pool.refill();
+        assertEquals(1, initCalls.get());
+
+        // Trong back-off (1s) không init lại
+        clock.addAndGet(500);
+        pool.refill();
+        assertEquals(1, initCalls.get());
+
+        clock.addAndGet(600);
+        pool.refill();
+        assertEquals(2, initCalls.get());
+
+        // Back-off lần hai là 2s
+        clock.addAndGet(1500);
+        pool.refill();
+        assertEquals(2, initCalls.get());
+
+        clock.addAndGet(600);
+        pool.refill();
+        assertEquals(3, initCalls.get());
+        assertEquals(0, pool.clientCount());
+
+        clock.addAndGet(Duration.ofMinutes(1).toMillis());
+        pool.refill();
+        assertEquals(3, initCalls.get());
+        assertNull(take(pool));
+    }
+
+    @Test
+    void successShouldResetFailureCount() {
+        config.setSize(1);
+        failing.set(true);
+        NativeAuthFlowPool pool = newPool();
+
+        pool.refill();
+        clock.addAndGet(1100);
+        pool.refill();
+        assertEquals(2, initCalls.get());
+
+        failing.set(false);
+        clock.addAndGet(2100);
+        pool.refill();
+        assertNotNull(take(pool));
+
+        failing.set(true);
+        for (int i = 0; i < 2; i++) {
+            clock.addAndGet(Duration.ofSeconds(5).toMillis());
+            pool.refill();
+        }
+        assertEquals(1, pool.clientCount());
+    }
+
+    private NativeAuthFlowPool newPool() {
+        // Init flow chạy ngay trên thread gọi refill() để test không phụ thuộc timing
+        return new NativeAuthFlowPool(wso2Service, config, executors, new SimpleMeterRegistry(), Runnable::run, clock::get);
+    }
+
+    private RawJson take(NativeAuthFlowPool pool) {
+        return pool.take(REDIRECT_URI, "openid profile", "code", "direct");
+    }
+}
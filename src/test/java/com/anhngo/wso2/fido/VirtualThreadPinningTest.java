@@ -0,0 +1,140 @@
+package com.anhngo.wso2.fido;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Kiểm tra đường gọi WSO2 IS trên virtual thread (RestTemplate + HttpClient5 pool + Logback) không pin carrier thread.
+ * Chạy với -Djdk.tracePinnedThreads=short (build.gradle): JVM in stack trace ra System.out mỗi khi
+ * virtual thread park trong lúc giữ monitor, test bắt output đó.
+ */
+class VirtualThreadPinningTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningTest.class);
+    // Header của stack trace pinning: Thread[#22,ForkJoinPool-1-worker-1,5,CarrierThreads]
+    private static final String PINNED_TRACE_MARKER = "CarrierThreads";
+
+    private HttpServer wso2Stub;
+    private ExecutorService stubThreads;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private RestTemplate restTemplate;
+    private String tokenUrl;
+
+    private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(System.getProperty("jdk.tracePinnedThreads") != null, "requires -Djdk.tracePinnedThreads");
+
+        byte[] body = "{\"access_token\":\"pinning\",\"expires_in\":3600}".getBytes(StandardCharsets.UTF_8);
+        wso2Stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        // Stub chạy trên platform threads: chỉ virtual thread phía client được trace
+        stubThreads = Executors.newFixedThreadPool(4);
+        wso2Stub.setExecutor(stubThreads);
+        wso2Stub.createContext("/oauth2/token", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        wso2Stub.start();
+        tokenUrl = "http://127.0.0.1:" + wso2Stub.getAddress().getPort() + "/oauth2/token";
+
+        // Pool nhỏ hơn số thread để lease phải chờ connection (đường dễ pin nhất)
+        connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(4)
+            .setMaxConnPerRoute(4)
+            .build();
+        restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(
+            HttpClients.custom().setConnectionManager(connectionManager).build()));
+
+        originalOut = System.out;
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (originalOut != null) {
+            System.setOut(originalOut);
+        }
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+        if (wso2Stub != null) {
+            wso2Stub.stop(0);
+            stubThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    void wso2CallsOnVirtualThreadsShouldNotPin() throws Exception {
+        try (ExecutorService requestThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int call = i;
+                results.add(requestThreads.submit(() -> {
+                    String token = restTemplate.postForObject(tokenUrl, "grant_type=client_credentials", String.class);
+                    logger.info("WSO2 call {} completed", call);
+                    return token;
+                }));
+            }
+            for (Future<String> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS).contains("pinning"));
+            }
+        }
+
+        String output = captured.toString(StandardCharsets.UTF_8);
+        assertFalse(output.contains(PINNED_TRACE_MARKER), () -> "Virtual thread pinned:\n" + output);
+    }
+
+    @Test
+    void pinningShouldBeDetected() throws Exception {
+        // Đối chứng: park trong synchronized chắc chắn pin, nếu không bắt được thì test trên không có ý nghĩa
+        Object monitor = new Object();
+        Thread pinned = Thread.ofVirtual().start(() -> {
+            synchronized (monitor) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        pinned.join();
+
+        assertTrue(captured.toString(StandardCharsets.UTF_8).contains(PINNED_TRACE_MARKER));
+    }
+}
@@ -0,0 +1,46 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.dto.ApiResponse;
+import com.anhngo.wso2.fido.dto.RawJson;
+import com.anhngo.wso2.fido.service.JsonCodec;
+import com.anhngo.wso2.fido.service.Wso2Passthrough;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Wso2PassthroughTest {
+
+    private static final String BODY = "{\"requestId\":\"r-1\",\"publicKeyCredentialRequestOptions\":{\"challenge\":\"Y2hhbA\"},\"x\":[1]}";
+
+    @Test
+    void envelopedStreamShouldMatchApiResponseSerialization() throws Exception {
+        MockClientHttpResponse upstream = new MockClientHttpResponse(BODY.getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+        upstream.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        Wso2Passthrough.enveloped(servletResponse, "Authentication options retrieved successfully").write(upstream);
+
+        String expected = JsonCodec.standalone().write(
+            ApiResponse.success("Authentication options retrieved successfully", RawJson.of(BODY)));
+        assertEquals(expected, servletResponse.getContentAsString());
+        assertEquals(200, servletResponse.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, servletResponse.getContentType());
+    }
+
+    @Test
+    void rawStreamShouldKeepUpstreamStatusAndBody() throws Exception {
+        MockClientHttpResponse upstream = new MockClientHttpResponse(BODY.getBytes(StandardCharsets.UTF_8), HttpStatus.CREATED);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        Wso2Passthrough.raw(servletResponse).write(upstream);
+
+        assertEquals(BODY, servletResponse.getContentAsString());
+        assertEquals(201, servletResponse.getStatus());
+    }
+}
@@ -0,0 +1,62 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.dto.ApiResponse;
+import com.anhngo.wso2.fido.dto.NativeAuthFlowResponse;
+import com.anhngo.wso2.fido.dto.RawJson;
+import com.anhngo.wso2.fido.dto.Wso2TokenResponse;
+import com.anhngo.wso2.fido.service.JsonCodec;
+import com.anhngo.wso2.fido.service.Wso2Payloads;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class Wso2PayloadsTest {
+
+    private final JsonCodec jsonCodec = JsonCodec.standalone();
+
+    @Test
+    void streamingPasskeyVerifyBodyShouldMatchTreeBasedBody() throws Exception {
+        for (String userHandle : new String[]{null, "dXNlci0x"}) {
+            String responseJson = Wso2Payloads.passkeyTokenResponseJson(jsonCodec, "req-1", "cred\"id",
+                "authData", "clientData+/=", "sig", userHandle);
+            String expected = Wso2Payloads.passkeyVerifyBody(jsonCodec, "flow-1", "auth-1",
+                Base64.getEncoder().encodeToString(responseJson.getBytes(StandardCharsets.UTF_8)));
+
+            byte[] actual = Wso2Payloads.passkeyVerifyBodyBytes(jsonCodec, "flow-1", "auth-1",
+                "req-1", "cred\"id", "authData", "clientData+/=", "sig", userHandle);
+
+            assertEquals(expected, new String(actual, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void typedResponsesShouldBindOnlyNeededFields() throws Exception {
+        Wso2TokenResponse token = jsonCodec.read("{\"access_token\":\"at\",\"scope\":\"openid\",\"expires_in\":3600,"
+            + "\"extra\":{\"nested\":[1,2]}}", Wso2TokenResponse.class);
+        assertEquals("at", token.accessToken());
+        assertEquals(3600L, token.expiresIn());
+        assertNull(token.refreshToken());
+
+        NativeAuthFlowResponse flow = jsonCodec.read("{\"flowId\":\"f-1\",\"nextStep\":{\"authenticators\":["
+            + "{\"authenticatorId\":\"QmFzaWM6TE9DQUw\",\"metadata\":{\"params\":[]}},"
+            + "{\"authenticatorId\":\"RklET0F1dGhlbnRpY2F0b3I6TE9DQUw\"}]},\"links\":[]}",
+            NativeAuthFlowResponse.class);
+        assertEquals("f-1", flow.flowId());
+        assertEquals("RklET0F1dGhlbnRpY2F0b3I6TE9DQUw", Wso2Payloads.findPasskeyAuthenticatorId(flow));
+        assertNull(Wso2Payloads.findPasskeyAuthenticatorId(jsonCodec.read("{}", NativeAuthFlowResponse.class)));
+    }
+
+    @Test
+    void rawJsonShouldPassWso2BodyThroughUnchanged() throws Exception {
+        String body = "{\"flowId\":\"f-1\",\"unknown\":{\"a\":[true,null,1.5]}}";
+
+        assertEquals(body, jsonCodec.write(RawJson.of(body)));
+        assertEquals("{\"success\":true,\"message\":\"ok\",\"data\":" + body + "}",
+            jsonCodec.write(ApiResponse.success("ok", RawJson.of(body))));
+        assertEquals(body, jsonCodec.read(body, RawJson.class).json());
+    }
+}
@@ -0,0 +1,118 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.Wso2ResilienceConfig;
+import com.anhngo.wso2.fido.exception.Wso2UnavailableException;
+import com.anhngo.wso2.fido.service.Wso2Operation;
+import com.anhngo.wso2.fido.service.Wso2OperationClass;
+import com.anhngo.wso2.fido.service.Wso2Resilience;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Wso2ResilienceTest {
+
+    private Wso2ResilienceConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new Wso2ResilienceConfig();
+        config.getCircuitBreaker().setSlidingWindowSize(4);
+        config.getCircuitBreaker().setMinimumNumberOfCalls(4);
+    }
+
+    @Test
+    void ioErrorsShouldOpenOnlyTheBreakerOfThatOperationClass() {
+        Wso2Resilience resilience = new Wso2Resilience(config, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResourceAccessException.class, () -> resilience.call(Wso2Operation.FIDO_REGISTRATION_FINISH, () -> {
+                throw new ResourceAccessException("Read timed out");
+            }));
+        }
+
+        Wso2UnavailableException rejected = assertThrows(Wso2UnavailableException.class,
+            () -> resilience.call(Wso2Operation.FIDO_REGISTRATION_OPTIONS, () -> "never called"));
+        assertEquals("fido-registration", rejected.getOperationClass());
+        assertEquals(CircuitBreaker.State.OPEN, resilience.state(Wso2OperationClass.FIDO_REGISTRATION));
+        assertEquals("ok", resilience.call(Wso2Operation.FIDO_AUTHENTICATION_OPTIONS, () -> "ok"));
+    }
+
+    @Test
+    void webClientCallsShouldShareTheBreakerOfTheirOperationClass() {
+        Wso2Resilience resilience = new Wso2Resilience(config, new SimpleMeterRegistry());
+        Mono<String> failing = Mono.error(new WebClientRequestException(new IOException("Connection reset"),
+            HttpMethod.POST, URI.create("https://wso2.test/oauth2/authn/"), new HttpHeaders()));
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(WebClientRequestException.class, () -> resilience.decorate(Wso2Operation.NATIVE_AUTH_VERIFY, failing).block());
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, resilience.state(Wso2OperationClass.NATIVE_AUTH));
+        assertThrows(Wso2UnavailableException.class,
+            () -> resilience.decorate(Wso2Operation.NATIVE_AUTH_INIT, Mono.just("never used")).block());
+        assertThrows(Wso2UnavailableException.class,
+            () -> resilience.call(Wso2Operation.NATIVE_AUTH_CHALLENGE, () -> "never called"));
+    }
+
+    @Test
+    void clientErrorsShouldNotOpenTheBreaker() {
+        Wso2Resilience resilience = new Wso2Resilience(config, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpClientErrorException.class, () -> resilience.call(Wso2Operation.TOKEN_INTROSPECT, () -> {
+                throw new HttpClientErrorException(HttpStatus.UNAUTHORIZED);
+            }));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, resilience.state(Wso2OperationClass.TOKEN));
+    }
+
+    @Test
+    void fullBulkheadShouldRejectImmediately() throws Exception {
+        config.getBulkhead().getMaxConcurrentCallsPerClass().put("native-auth", 1);
+        Wso2Resilience resilience = new Wso2Resilience(config, new SimpleMeterRegistry());
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> resilience.call(Wso2Operation.NATIVE_AUTH_INIT, () -> {
+                inFlight.countDown();
+                await(release);
+                return "slow";
+            }));
+            inFlight.await(5, TimeUnit.SECONDS);
+
+            assertThrows(Wso2UnavailableException.class,
+                () -> resilience.call(Wso2Operation.NATIVE_AUTH_CHALLENGE, () -> "rejected"));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.Wso2Executors;
+import com.anhngo.wso2.fido.config.Wso2RetryConfig;
+import com.anhngo.wso2.fido.service.Wso2Operation;
+import com.anhngo.wso2.fido.service.Wso2Retries;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Wso2RetriesTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Wso2RetryConfig config;
+    private Wso2Executors executors;
+
+    @BeforeEach
+    void setUp() {
+        config = new Wso2RetryConfig();
+        config.setBaseDelay(Duration.ofMillis(1));
+        config.setMaxDelay(Duration.ofMillis(5));
+        executors = new Wso2Executors(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    void transientFailuresShouldBeRetried() {
+        Wso2Retries retries = new Wso2Retries(config, executors, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retries.retry(Wso2Operation.TOKEN_INTROSPECT, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return "active";
+        });
+
+        assertEquals("active", result);
+        assertEquals(3, calls.get());
+        assertEquals(2.0, meterRegistry.get("wso2.client.retries").tag("outcome", "retried").counter().count());
+    }
+
+    @Test
+    void transientWebClientFailuresShouldBeRetried() {
+        Wso2Retries retries = new Wso2Retries(config, executors, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Mono.defer: mỗi lần subscribe lại là một request mới, như WebClient retrieve()
+        Mono<String> attempt = Mono.defer(() -> calls.incrementAndGet() < 3
+            ? Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null))
+            : Mono.just("active"));
+
+        assertEquals("active", retries.retryAsync(Wso2Operation.TOKEN_INTROSPECT, attempt, null).block(Duration.ofSeconds(5)));
+        assertEquals(3, calls.get());
+        assertEquals(2.0, meterRegistry.get("wso2.client.retries").tag("outcome", "retried").counter().count());
+    }
+
+    @Test
+    void clientErrorsShouldNotBeRetried() {
+        Wso2Retries retries = new Wso2Retries(config, executors, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(HttpClientErrorException.class, () -> retries.retry(Wso2Operation.TOKEN_INTROSPECT, () -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.UNAUTHORIZED);
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void retriesShouldStopWhenTheBudgetIsSpent() {
+        config.setBudgetReserve(1);
+        config.setBudgetRatio(0);
+        Wso2Retries retries = new Wso2Retries(config, executors, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ResourceAccessException.class, () -> retries.retry(Wso2Operation.JWKS, () -> {
+            calls.incrementAndGet();
+            throw new ResourceAccessException("Connection reset");
+        }));
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, meterRegistry.get("wso2.client.retries").tag("outcome", "budget-exhausted").counter().count());
+    }
+
+    @Test
+    void emptyReserveShouldStillEarnRetriesFromTheRatio() {
+        config.setBudgetReserve(0);
+        config.setBudgetRatio(0.5);
+        Wso2Retries retries = new Wso2Retries(config, executors, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Call thứ nhất nạp 0.5 retry: chưa đủ để retry
+        assertThrows(ResourceAccessException.class, () -> retries.retry(Wso2Operation.JWKS, () -> {
+            calls.incrementAndGet();
+            throw new ResourceAccessException("Connection reset");
+        }));
+        assertEquals(1, calls.get());
+
+        // Call thứ hai nạp thêm 0.5: đủ đúng một retry
+        assertThrows(ResourceAccessException.class, () -> retries.retry(Wso2Operation.JWKS, () -> {
+            calls.incrementAndGet();
+            throw new ResourceAccessException("Connection reset");
+        }));
+        assertEquals(3, calls.get());
+        assertEquals(1.0, meterRegistry.get("wso2.client.retries").tag("outcome", "retried").counter().count());
+    }
+
+    @Test
+    void slowCallShouldBeHedged() throws Exception {
+        config.getHedge().setEnabled(true);
+        config.getHedge().setInitialDelay(Duration.ofMillis(20));
+        Wso2Retries retries = new Wso2Retries(config, executors, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch releaseSlowCall = new CountDownLatch(1);
+
+        try {
+            String result = retries.hedge(Wso2Operation.FIDO_AUTHENTICATION_OPTIONS, () -> {
+                if (calls.incrementAndGet() == 1) {
+                    try {
+                        releaseSlowCall.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "slow";
+                }
+                return "hedged";
+            });
+
+            assertEquals("hedged", result);
+            assertEquals(1.0, meterRegistry.get("wso2.client.hedges").tag("outcome", "won").counter().count());
+        } finally {
+            releaseSlowCall.countDown();
+        }
+    }
+}
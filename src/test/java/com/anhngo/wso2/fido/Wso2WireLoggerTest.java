@@ -0,0 +1,64 @@
+package com.anhngo.wso2.fido;
+
+import com.anhngo.wso2.fido.config.WireLogConfig;
+import com.anhngo.wso2.fido.service.Wso2WireLogger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Wso2WireLoggerTest {
+
+    private final Wso2WireLogger wireLogger = new Wso2WireLogger(new WireLogConfig());
+
+    @Test
+    void tokensAndSecretsShouldBeRedacted() {
+        String json = wireLogger.redactBody("{\"access_token\":\"eyJhbGci.secret\",\"token_type\":\"Bearer\",\"id_token\" : \"abc\\\"def\"}");
+        assertEquals("{\"access_token\":\"***\",\"token_type\":\"Bearer\",\"id_token\":\"***\"}", json);
+
+        assertEquals("grant_type=password&username=alice&password=***",
+            wireLogger.redactBody("grant_type=password&username=alice&password=s3cret"));
+
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("client_id", "app");
+        form.add("client_secret", "s3cret");
+        String redactedForm = wireLogger.redactBody(form);
+        assertTrue(redactedForm.contains("client_secret=***"));
+        assertFalse(redactedForm.contains("s3cret"));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth("eyJhbGci.secret");
+        headers.add("Content-Type", "application/json");
+        Map<String, Object> redactedHeaders = wireLogger.redactHeaders(headers);
+        assertEquals("***", redactedHeaders.get("Authorization"));
+        assertEquals(List.of("application/json"), redactedHeaders.get("Content-Type"));
+    }
+
+    @Test
+    void objectAndArrayValuesShouldBeRedacted() {
+        String json = wireLogger.redactBody("{\"requestId\":\"r1\",\"credential\":{\"id\":\"cred-id\","
+            + "\"response\":{\"attestationObject\":\"o2NmbXQ\"}},\"nested\":[{\"tokenResponse\":[\"a\",\"b\"]}]}");
+        assertEquals("{\"requestId\":\"r1\",\"credential\":\"***\",\"nested\":[{\"tokenResponse\":\"***\"}]}", json);
+
+        // Message lỗi có body JSON ở giữa: không parse được, object bị che cùng phần phía sau
+        String message = wireLogger.redactBody("400 Bad Request: \"{\"credential\":{\"id\":\"cred-id\"},\"code\":\"c1\"}\"");
+        assertEquals("400 Bad Request: \"{\"credential\":\"***\"...(redacted)", message);
+        assertFalse(message.contains("cred-id"));
+    }
+
+    @Test
+    void samplingShouldBeOffByDefault() {
+        assertFalse(wireLogger.sample());
+
+        wireLogger.setEnabled(true);
+        wireLogger.setSampleRate(1.0);
+        assertTrue(wireLogger.sample());
+    }
+}